@@ -21,11 +21,12 @@ import org.valkyrienskies.mod.common.ships.QueryableShipData;
 import org.valkyrienskies.mod.common.ships.ShipData;
 import org.valkyrienskies.mod.common.ships.ShipDataMethods;
 import org.valkyrienskies.mod.common.ships.chunk_claims.ShipChunkAllocator;
+import org.valkyrienskies.mod.common.ships.ship_world.PhysicsObject;
 import org.valkyrienskies.mod.common.util.ValkyrienUtils;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Optional;
+import javax.annotation.Nullable;
 
 @Mixin(value = Chunk.class, priority = 1001)
 public abstract class MixinChunk implements ITileEntitiesToRenderProvider {
@@ -47,6 +48,10 @@ public abstract class MixinChunk implements ITileEntitiesToRenderProvider {
 
     // We keep track of these so we can quickly update the tile entities that need rendering.
     private List<TileEntity>[] tileEntitiesByExtendedData = new List[16];
+    // The ship that claims this chunk, as of QueryableShipData.getChunkClaimsVersion() being
+    // owningShipVersion. Looked up again when the version changes.
+    private ShipData owningShip;
+    private int owningShipVersion = -1;
 
     public List<TileEntity> getTileEntitiesToRender(int chunkExtendedDataIndex) {
         return tileEntitiesByExtendedData[chunkExtendedDataIndex];
@@ -86,11 +91,32 @@ public abstract class MixinChunk implements ITileEntitiesToRenderProvider {
     @Inject(method = "setBlockState", at = @At("HEAD"))
     private void pre_setBlockState(BlockPos pos, IBlockState state, CallbackInfoReturnable<IBlockState> cir) {
         if (!world.isRemote) {
+            // Most block changes aren't in ships, so get out of their way as quickly as possible
+            ShipData shipData = getOwningShip();
+            if (shipData == null) {
+                return;
+            }
             IBlockState oldState = getBlockState(pos);
-            QueryableShipData queryableShipData = QueryableShipData.get(world);
-            Optional<ShipData> shipDataOptional = queryableShipData.getShipFromChunk(pos.getX() >> 4, pos.getZ() >> 4);
-            shipDataOptional.ifPresent(shipData -> ShipDataMethods.onSetBlockState(shipData, pos, oldState, state));
+            ShipDataMethods.onSetBlockState(shipData, pos, oldState, state);
+            // The ship's mass and forces may have changed, so it can't keep sleeping
+            PhysicsObject physicsObject = ValkyrienUtils.getPhysObjWorld(world).getPhysObjectFromUUID(shipData.getUuid());
+            if (physicsObject != null) {
+                physicsObject.getPhysicsCalculations().wakeUp();
+                // The blocks the ship can collide with may have changed too
+                physicsObject.setNeedsCollisionCacheUpdate(true);
+            }
+        }
+    }
+
+    @Nullable
+    private ShipData getOwningShip() {
+        int version = QueryableShipData.getChunkClaimsVersion();
+        if (version != owningShipVersion) {
+            owningShip = ShipChunkAllocator.isChunkInShipyard(x, z)
+                ? QueryableShipData.get(world).getShipFromChunk(x, z).orElse(null) : null;
+            owningShipVersion = version;
         }
+        return owningShip;
     }
 
     /**
@@ -245,6 +245,7 @@ public class EventsCommon {
                     .getPhysObjectsInAABB(toCheck);
             // Process the explosion on the nearby ships
             for (PhysicsObject ship : shipsNear) {
+                ship.getPhysicsCalculations().wakeUp();
                 Vector3d inLocal = new Vector3d(center);
                 inLocal.mulPosition(ship.getShipTransform().getGlobalToSubspace());
 
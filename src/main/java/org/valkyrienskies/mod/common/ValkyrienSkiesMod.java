@@ -40,6 +40,7 @@ import org.valkyrienskies.mod.common.piloting.PilotControlsMessageHandler;
 import org.valkyrienskies.mod.common.ships.deprecated_api.VS_APIPhysicsEntityManager;
 import org.valkyrienskies.mod.common.tileentity.TileEntityCaptainsChair;
 import org.valkyrienskies.mod.common.tileentity.TileEntityPassengerChair;
+import org.valkyrienskies.mod.common.util.multithreaded.VSPhysicsRuntime;
 import org.valkyrienskies.mod.proxy.CommonProxy;
 import valkyrienwarfare.api.IPhysicsEntityManager;
 
@@ -47,8 +48,6 @@ import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 @Mod(
     modid = ValkyrienSkiesMod.MOD_ID,
@@ -78,10 +77,10 @@ public class ValkyrienSkiesMod {
     static final int VS_ENTITY_LOAD_DISTANCE = 128;
 
     /**
-     * This service is directly responsible for running collision tasks.
+     * Runs the physics ticks of every world, and the collision tasks of those ticks.
      */
     @Getter
-    private static ExecutorService PHYSICS_THREADS_EXECUTOR = null;
+    private static VSPhysicsRuntime PHYSICS_RUNTIME = null;
 
     public Block captainsChair;
     public Block passengerChair;
@@ -112,9 +111,9 @@ public class ValkyrienSkiesMod {
         log.debug("Initializing configuration.");
         runConfiguration();
 
-        log.debug("Instantiating the physics thread executor.");
-        ValkyrienSkiesMod.PHYSICS_THREADS_EXECUTOR = Executors
-            .newFixedThreadPool(VSConfig.threadCount);
+        log.debug("Instantiating the physics runtime.");
+        ValkyrienSkiesMod.PHYSICS_RUNTIME = new VSPhysicsRuntime(VSConfig.threadCount,
+            VSConfig.collisionCacheThreadCount);
 
         log.debug("Initializing networks.");
         registerNetworks(event);
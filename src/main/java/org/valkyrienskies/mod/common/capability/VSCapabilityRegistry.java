@@ -7,6 +7,7 @@ import net.minecraftforge.common.capabilities.Capability;
 import net.minecraftforge.common.capabilities.CapabilityInject;
 import net.minecraftforge.common.capabilities.CapabilityManager;
 import net.minecraftforge.event.AttachCapabilitiesEvent;
+import net.minecraftforge.event.world.WorldEvent;
 import net.minecraftforge.fml.common.Mod.EventBusSubscriber;
 import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
 import org.valkyrienskies.mod.common.ValkyrienSkiesMod;
@@ -18,10 +19,14 @@ import org.valkyrienskies.mod.common.capability.framework.VSDefaultCapabilitySto
 import org.valkyrienskies.mod.common.capability.framework.VSDefaultCapabilityTransientStorage;
 
 import javax.annotation.Nonnull;
+import java.io.File;
 
 @EventBusSubscriber(modid = ValkyrienSkiesMod.MOD_ID)
 public class VSCapabilityRegistry {
 
+    // Relative to the save folder of the dimension
+    private static final String SHIP_SAVE_FILE = "valkyrienskies/ships.dat";
+
     @CapabilityInject(VSWorldDataCapability.class)
     public static final Capability<VSWorldDataCapability> VS_WORLD_DATA = getNull();
 
@@ -30,9 +35,30 @@ public class VSCapabilityRegistry {
 
     @SubscribeEvent
     public static void attachWorldCapabilities(AttachCapabilitiesEvent<World> event) {
+        VSDefaultCapabilityProvider<VSWorldDataCapability> provider =
+            new VSDefaultCapabilityProvider<>(VS_WORLD_DATA);
+        World world = event.getObject();
+        // Capabilities are attached before they're read, so this is known by the time the ships are loaded
+        if (!world.isRemote && world.getSaveHandler().getWorldDirectory() != null) {
+            File folder = world.getSaveHandler().getWorldDirectory();
+            if (world.provider.getSaveFolder() != null) {
+                folder = new File(folder, world.provider.getSaveFolder());
+            }
+            provider.getCapability(VS_WORLD_DATA, null)
+                .setShipSaveFile(new File(folder, SHIP_SAVE_FILE));
+        }
         event.addCapability(
-            new ResourceLocation(ValkyrienSkiesMod.MOD_ID, "world_data_capability"),
-            new VSDefaultCapabilityProvider<>(VS_WORLD_DATA));
+            new ResourceLocation(ValkyrienSkiesMod.MOD_ID, "world_data_capability"), provider);
+    }
+
+    @SubscribeEvent
+    public static void onWorldUnload(WorldEvent.Unload event) {
+        // Worlds are saved right before they unload, so wait for those ships to be written. Otherwise they'd be lost
+        // if the game stops now.
+        VSWorldDataCapability worldData = event.getWorld().getCapability(VS_WORLD_DATA, null);
+        if (worldData != null) {
+            worldData.flushSaves();
+        }
     }
 
     @SubscribeEvent
@@ -1,14 +1,39 @@
 package org.valkyrienskies.mod.common.capability;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.log4j.Log4j2;
+import net.minecraft.nbt.NBTBase;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.util.EnumFacing;
 import org.valkyrienskies.mod.common.capability.framework.VSDefaultCapability;
+import org.valkyrienskies.mod.common.ships.QueryableShipData;
+import org.valkyrienskies.mod.common.ships.ShipData;
+import org.valkyrienskies.mod.common.ships.chunk_claims.ShipChunkAllocator;
+import org.valkyrienskies.mod.common.ships.persistence.ShipDataStore;
 import org.valkyrienskies.mod.common.ships.ship_world.VSWorldData;
+import org.valkyrienskies.mod.common.util.cqengine.ConcurrentUpdatableIndexedCollection;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
 
 /**
  * This sort of class basically only exists because Java generics are trash
+ * <p>
+ * On the server the ships are saved to their own file with a {@link ShipDataStore}, so a save only writes the ships
+ * that changed, and does so in the background. The NBT just holds the chunk allocator. Worlds saved in the old
+ * format, where the NBT holds all of the {@link VSWorldData}, are still read, and switch to the new format the next
+ * time they're saved.
  */
+@Log4j2
 public class VSWorldDataCapability extends VSDefaultCapability<VSWorldData> {
 
+    private static final String ALLOCATOR_KEY = "shipChunkAllocator";
+
+    // Null on the client, which doesn't save anything
+    @Nullable
+    private ShipDataStore shipDataStore;
+
     public VSWorldDataCapability(ObjectMapper mapper) {
         super(VSWorldData.class, VSWorldData::new, mapper);
     }
@@ -17,4 +42,68 @@ public class VSWorldDataCapability extends VSDefaultCapability<VSWorldData> {
         super(VSWorldData.class, VSWorldData::new);
     }
 
+    /**
+     * Makes this save ships to file instead of to the NBT. Must be called before the NBT is read.
+     */
+    public void setShipSaveFile(File file) {
+        this.shipDataStore = new ShipDataStore(file, getMapper());
+    }
+
+    @Nullable
+    @Override
+    public NBTBase writeNBT(EnumFacing side) {
+        if (shipDataStore == null) {
+            return super.writeNBT(side);
+        }
+        boolean writeFailed = shipDataStore.hasWriteFailed();
+        // Writes every ship again if the last write failed
+        shipDataStore.save(get().getQueryableShipData());
+        if (writeFailed) {
+            // The ship file is missing changes until that write finishes, so keep a full copy in the old format
+            log.warn("The last write of the ship file failed, so the ships are saved the old way too");
+            return super.writeNBT(side);
+        }
+        try {
+            NBTTagCompound compound = new NBTTagCompound();
+            compound.setByteArray(ALLOCATOR_KEY, getMapper().writeValueAsBytes(get().getShipChunkAllocator()));
+            return compound;
+        } catch (IOException ex) {
+            log.fatal("Failed to save the ship chunk allocator, saving everything the old way instead", ex);
+            return super.writeNBT(side);
+        }
+    }
+
+    /**
+     * Waits until the ships of every save so far are written to their file.
+     */
+    public void flushSaves() {
+        if (shipDataStore != null) {
+            shipDataStore.flush();
+        }
+    }
+
+    @Override
+    public VSWorldData readNBT(NBTBase base, EnumFacing side) {
+        if (shipDataStore == null || !(base instanceof NBTTagCompound)) {
+            // The old format, ShipDataStore hasn't saved anything yet so it will save every ship next time
+            return super.readNBT(base, side);
+        }
+        long time = System.currentTimeMillis();
+
+        try {
+            ShipChunkAllocator allocator = getMapper().readValue(
+                ((NBTTagCompound) base).getByteArray(ALLOCATOR_KEY), ShipChunkAllocator.class);
+            ConcurrentUpdatableIndexedCollection<ShipData> ships = new ConcurrentUpdatableIndexedCollection<>();
+            ships.addAll(shipDataStore.load());
+            set(new VSWorldData(new QueryableShipData(ships), allocator));
+            log.info("VS deserialization took {} ms. Read {} ships.", System.currentTimeMillis() - time,
+                ships.size());
+        } catch (IOException ex) {
+            log.fatal("Failed to read your ship data? Ships will probably be missing", ex);
+            set(new VSWorldData());
+        }
+
+        return get();
+    }
+
 }
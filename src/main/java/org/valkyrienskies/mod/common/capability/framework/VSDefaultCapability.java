@@ -60,7 +60,7 @@ public abstract class VSDefaultCapability<K> {
     }
 
     @Nullable
-    public NBTTagByteArray writeNBT(EnumFacing side) {
+    public NBTBase writeNBT(EnumFacing side) {
         long time = System.currentTimeMillis();
         byte[] value;
         try {
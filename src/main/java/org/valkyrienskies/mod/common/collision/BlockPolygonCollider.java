@@ -0,0 +1,303 @@
+package org.valkyrienskies.mod.common.collision;
+
+import lombok.Getter;
+import org.joml.Vector3d;
+import org.joml.Vector3dc;
+import org.valkyrienskies.mod.common.ships.ship_transform.ShipTransform;
+import valkyrienwarfare.api.TransformType;
+
+/**
+ * A separating axis test between a block or box of blocks of a ship (a rotated box) and a block
+ * in the world (an axis aligned box) that doesn't allocate anything. Gives exactly the same
+ * results as building two {@link Polygon}s, colliding them with a {@link PhysPolygonCollider} and
+ * picking the contact points with {@link PolygonCollisionPointFinder}, but reuses the same corners
+ * and projections for every pair.
+ * <p>
+ * Not thread safe, every {@link ShipCollisionTask} has its own.
+ */
+public class BlockPolygonCollider {
+
+    // Same as the starting values used by PhysPolygonCollider and PolygonCollisionPointFinder
+    private static final double MAX_MIN_DISTANCE = 420;
+    private static final double MAX_TOP_DOT = 99999999D;
+    private static final double MIN_BOTTOM_DOT = -9999999999D;
+    // Below this the box is considered not to move along an axis
+    private static final double SWEEP_EPSILON = 1e-9;
+    // Cross products of parallel axes are zero, and normalizing them gives NaN
+    private static final double MIN_AXIS_LENGTH_SQ = 1e-8;
+
+    private final Vector3d[] shipCorners;
+    private final Vector3d[] worldCorners;
+    // Separate from the corners above so sweep() doesn't change the results of collide()
+    private final Vector3d[] sweepShipCorners;
+    private final Vector3d[] sweepWorldCorners;
+    private final double[] shipProjection;
+    private final double[] worldProjection;
+    private final Vector3d shipCenter;
+    private final Vector3d worldCenter;
+    // The penetration distance along every axis of the last collision
+    private double[] penetrationDistances;
+    private Vector3dc[] axes;
+    /**
+     * The index of the axis with the smallest penetration distance in the last collision.
+     */
+    @Getter
+    private int minDistanceIndex;
+    // The results of the last findContactPoints()
+    @Getter
+    private Vector3dc contactTop;
+    @Getter
+    private Vector3dc contactBottom;
+
+    public BlockPolygonCollider() {
+        this.shipCorners = createCorners();
+        this.worldCorners = createCorners();
+        this.sweepShipCorners = createCorners();
+        this.sweepWorldCorners = createCorners();
+        this.shipProjection = new double[8];
+        this.worldProjection = new double[8];
+        this.shipCenter = new Vector3d();
+        this.worldCenter = new Vector3d();
+        this.penetrationDistances = new double[0];
+    }
+
+    /**
+     * Tests the ship block at (shipX, shipY, shipZ) against the world block at (worldX, worldY,
+     * worldZ).
+     *
+     * @param axes The axes to test, usually {@link org.valkyrienskies.mod.common.ships.ship_transform.ShipTransformationManager#normals}.
+     * @return True if the blocks collide, in which case {@link #getPenetrationDistance(int)} and
+     * {@link #getMinDistanceIndex()} describe the collision.
+     */
+    public boolean collide(int shipX, int shipY, int shipZ, int worldX, int worldY, int worldZ,
+        ShipTransform shipTransform, Vector3dc[] axes) {
+        return collide(shipX, shipY, shipZ, shipX, shipY, shipZ, worldX, worldY, worldZ,
+            shipTransform, axes);
+    }
+
+    /**
+     * Tests the box of ship blocks from (shipMinX, shipMinY, shipMinZ) to (shipMaxX, shipMaxY,
+     * shipMaxZ) inclusive against the world block at (worldX, worldY, worldZ).
+     *
+     * @see #collide(int, int, int, int, int, int, ShipTransform, Vector3dc[])
+     */
+    public boolean collide(int shipMinX, int shipMinY, int shipMinZ, int shipMaxX, int shipMaxY,
+        int shipMaxZ, int worldX, int worldY, int worldZ, ShipTransform shipTransform,
+        Vector3dc[] axes) {
+        setCorners(shipCorners, shipMinX, shipMinY, shipMinZ, shipMaxX + 1, shipMaxY + 1,
+            shipMaxZ + 1);
+        for (Vector3d corner : shipCorners) {
+            shipTransform.transformPosition(corner, TransformType.SUBSPACE_TO_GLOBAL);
+        }
+        setCorners(worldCorners, worldX, worldY, worldZ, worldX + 1, worldY + 1, worldZ + 1);
+
+        if (penetrationDistances.length != axes.length) {
+            penetrationDistances = new double[axes.length];
+        }
+        this.axes = axes;
+
+        for (int i = 0; i < axes.length; i++) {
+            Vector3dc axis = axes[i];
+            project(shipCorners, axis, shipProjection);
+            project(worldCorners, axis, worldProjection);
+            double movMaxFixMin = min(shipProjection) - max(worldProjection);
+            double movMinFixMax = max(shipProjection) - min(worldProjection);
+            if (movMaxFixMin > 0 || movMinFixMax < 0) {
+                return false;
+            }
+            // Set the penetration to be the smaller distance
+            if (Math.abs(movMaxFixMin) > Math.abs(movMinFixMax)) {
+                penetrationDistances[i] = movMinFixMax;
+            } else {
+                penetrationDistances[i] = movMaxFixMin;
+            }
+        }
+
+        double minDistance = MAX_MIN_DISTANCE;
+        minDistanceIndex = 0;
+        for (int i = 0; i < axes.length; i++) {
+            // Take the collision response closest to 0
+            if (Math.abs(penetrationDistances[i]) < minDistance) {
+                minDistanceIndex = i;
+                minDistance = Math.abs(penetrationDistances[i]);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Moves the box of the ship from (shipMinX, shipMinY, shipMinZ) to (shipMaxX, shipMaxY,
+     * shipMaxZ) in ship coordinates along displacement in world coordinates, and finds when it
+     * first touches the world block at (worldX, worldY, worldZ). The ship doesn't rotate during the
+     * move. This doesn't change the results of the last {@link #collide}.
+     *
+     * @return The fraction of displacement at which the box first touches the block, or -1 if it
+     * doesn't touch the block during the move or already touches it at the start.
+     */
+    public double sweep(double shipMinX, double shipMinY, double shipMinZ, double shipMaxX,
+        double shipMaxY, double shipMaxZ, int worldX, int worldY, int worldZ,
+        ShipTransform shipTransform, Vector3dc[] axes, Vector3dc displacement) {
+        setCorners(sweepShipCorners, shipMinX, shipMinY, shipMinZ, shipMaxX, shipMaxY, shipMaxZ);
+        for (Vector3d corner : sweepShipCorners) {
+            shipTransform.transformPosition(corner, TransformType.SUBSPACE_TO_GLOBAL);
+        }
+        setCorners(sweepWorldCorners, worldX, worldY, worldZ, worldX + 1, worldY + 1,
+            worldZ + 1);
+
+        // The box touches the block while it overlaps it along every axis
+        double enterTime = Double.NEGATIVE_INFINITY;
+        double exitTime = Double.POSITIVE_INFINITY;
+        for (Vector3dc axis : axes) {
+            // Unrotated ships and ships only turned around y have some of these, they can't
+            // separate anything. Written this way so NaN axes are skipped too.
+            if (!(axis.lengthSquared() >= MIN_AXIS_LENGTH_SQ)) {
+                continue;
+            }
+            project(sweepShipCorners, axis, shipProjection);
+            project(sweepWorldCorners, axis, worldProjection);
+            double shipMin = min(shipProjection);
+            double shipMax = max(shipProjection);
+            double worldMin = min(worldProjection);
+            double worldMax = max(worldProjection);
+            double speed = displacement.dot(axis);
+            if (Math.abs(speed) < SWEEP_EPSILON) {
+                if (shipMax <= worldMin || shipMin >= worldMax) {
+                    // Never overlaps along this axis
+                    return -1;
+                }
+                continue;
+            }
+            double axisEnterTime = (worldMin - shipMax) / speed;
+            double axisExitTime = (worldMax - shipMin) / speed;
+            if (speed < 0) {
+                double temp = axisEnterTime;
+                axisEnterTime = axisExitTime;
+                axisExitTime = temp;
+            }
+            enterTime = Math.max(enterTime, axisEnterTime);
+            exitTime = Math.min(exitTime, axisExitTime);
+            if (enterTime > exitTime) {
+                return -1;
+            }
+        }
+        if (!(enterTime > 0) || enterTime > 1) {
+            return -1;
+        }
+        return enterTime;
+    }
+
+    /**
+     * @return The penetration distance along the given axis of the last collision.
+     */
+    public double getPenetrationDistance(int axisIndex) {
+        return penetrationDistances[axisIndex];
+    }
+
+    /**
+     * @return The axis of the given index of the last collision.
+     */
+    public Vector3dc getAxis(int axisIndex) {
+        return axes[axisIndex];
+    }
+
+    /**
+     * Finds the deepest corner of each block along the given axis of the last collision, which can
+     * then be read with {@link #getContactTop()} and {@link #getContactBottom()}. These are only
+     * valid until the next call to {@link #collide}.
+     */
+    public void findContactPoints(int axisIndex) {
+        Vector3dc collisionNormal = axes[axisIndex];
+        getCenter(shipCorners, shipCenter);
+        getCenter(worldCorners, worldCenter);
+
+        Vector3dc[] topCorners;
+        Vector3dc[] bottomCorners;
+        if (shipCenter.sub(worldCenter).dot(collisionNormal) > 0) {
+            // Then the ship is the bottom
+            topCorners = worldCorners;
+            bottomCorners = shipCorners;
+        } else {
+            // Then the world is the bottom
+            topCorners = shipCorners;
+            bottomCorners = worldCorners;
+        }
+
+        double minDot = MAX_TOP_DOT;
+        int topIndex = -1;
+        for (int i = 0; i < topCorners.length; i++) {
+            double dotProduct = topCorners[i].dot(collisionNormal);
+            if (dotProduct < minDot) {
+                minDot = dotProduct;
+                topIndex = i;
+            }
+        }
+
+        double maxDot = MIN_BOTTOM_DOT;
+        int bottomIndex = -1;
+        for (int i = 0; i < bottomCorners.length; i++) {
+            double dotProduct = bottomCorners[i].dot(collisionNormal);
+            if (dotProduct > maxDot) {
+                maxDot = dotProduct;
+                bottomIndex = i;
+            }
+        }
+
+        contactTop = topCorners[topIndex];
+        contactBottom = bottomCorners[bottomIndex];
+    }
+
+    private static Vector3d[] createCorners() {
+        Vector3d[] corners = new Vector3d[8];
+        for (int i = 0; i < corners.length; i++) {
+            corners[i] = new Vector3d();
+        }
+        return corners;
+    }
+
+    /**
+     * Sets corners to the corners of the box from (minX, minY, minZ) to (maxX, maxY, maxZ), in the
+     * same order as {@link Polygon}.
+     */
+    private static void setCorners(Vector3d[] corners, double minX, double minY, double minZ,
+        double maxX, double maxY, double maxZ) {
+        corners[0].set(minX, minY, minZ);
+        corners[1].set(minX, maxY, minZ);
+        corners[2].set(minX, minY, maxZ);
+        corners[3].set(minX, maxY, maxZ);
+        corners[4].set(maxX, minY, minZ);
+        corners[5].set(maxX, maxY, minZ);
+        corners[6].set(maxX, minY, maxZ);
+        corners[7].set(maxX, maxY, maxZ);
+    }
+
+    private static void project(Vector3dc[] corners, Vector3dc axis, double[] dest) {
+        for (int i = 0; i < corners.length; i++) {
+            dest[i] = axis.dot(corners[i]);
+        }
+    }
+
+    private static void getCenter(Vector3dc[] corners, Vector3d dest) {
+        dest.zero();
+        for (Vector3dc corner : corners) {
+            dest.add(corner);
+        }
+        dest.mul(1.0 / corners.length);
+    }
+
+    // min() and max() iterate backwards like VSMath.getMinMaxOfArray()
+    private static double min(double[] elements) {
+        double min = elements[elements.length - 1];
+        for (int i = elements.length - 2; i >= 0; i--) {
+            min = Math.min(min, elements[i]);
+        }
+        return min;
+    }
+
+    private static double max(double[] elements) {
+        double max = elements[elements.length - 1];
+        for (int i = elements.length - 2; i >= 0; i--) {
+            max = Math.max(max, elements[i]);
+        }
+        return max;
+    }
+}
@@ -1,17 +1,34 @@
 package org.valkyrienskies.mod.common.collision;
 
 import net.minecraft.block.state.IBlockState;
+import org.joml.Vector3dc;
 
 public class CollisionInformationHolder {
 
-    protected final PhysPolygonCollider collider;
+    protected final Vector3dc collisionNormal;
+    // The index of collisionNormal in the collision axes of the ship
+    protected final int collisionAxisIndex;
+    protected final double penetrationDistance;
+    // The deepest corners of the two blocks along collisionNormal
+    protected final double topX, topY, topZ, bottomX, bottomY, bottomZ;
     protected final int inWorldX, inWorldY, inWorldZ, inLocalX, inLocalY, inLocalZ;
     protected final IBlockState inWorldState, inLocalState;
 
-    public CollisionInformationHolder(PhysPolygonCollider collider, int inWorldX, int inWorldY,
-        int inWorldZ, int inLocalX, int inLocalY, int inLocalZ, IBlockState inWorldState,
+    public CollisionInformationHolder(Vector3dc collisionNormal, int collisionAxisIndex,
+        double penetrationDistance,
+        Vector3dc contactTop, Vector3dc contactBottom, int inWorldX, int inWorldY, int inWorldZ,
+        int inLocalX, int inLocalY, int inLocalZ, IBlockState inWorldState,
         IBlockState inLocalState) {
-        this.collider = collider;
+        this.collisionNormal = collisionNormal;
+        this.collisionAxisIndex = collisionAxisIndex;
+        this.penetrationDistance = penetrationDistance;
+
+        this.topX = contactTop.x();
+        this.topY = contactTop.y();
+        this.topZ = contactTop.z();
+        this.bottomX = contactBottom.x();
+        this.bottomY = contactBottom.y();
+        this.bottomZ = contactBottom.z();
 
         this.inWorldX = inWorldX;
         this.inWorldY = inWorldY;
@@ -0,0 +1,67 @@
+package org.valkyrienskies.mod.common.collision;
+
+/**
+ * Decides how many potential hits each {@link ShipCollisionTask} of a ship checks. Tasks should be
+ * long enough that forking them costs little next to their work, while still being plenty for
+ * every physics thread to get a share. This keeps a running estimate of how long a single
+ * potential hit takes to check, measured from the tasks that actually ran.
+ * <p>
+ * Not thread safe, only the physics thread of the ship should touch it.
+ */
+class CollisionTaskSizer {
+
+    // How long a task should take at least, so that forking it is worth it
+    static final long TARGET_TASK_NANOS = 50000;
+    // Below this the whole collision of a ship is cheaper to run than to hand to another thread
+    static final long INLINE_NANOS = 20000;
+    // More tasks than threads, so that threads that finish early can steal work
+    static final int TASKS_PER_THREAD = 4;
+    // How much of the estimate is replaced by every new measurement
+    private static final double SMOOTHING = .2;
+    // Close to the old fixed 45 potential hits per task
+    private static final double INITIAL_NANOS_PER_HIT = 1000;
+
+    private double nanosPerHit;
+
+    CollisionTaskSizer() {
+        this.nanosPerHit = INITIAL_NANOS_PER_HIT;
+    }
+
+    /**
+     * @return The number of potential hits each task should check.
+     */
+    int getTaskSize(int potentialHits, int parallelism) {
+        if (shouldRunInline(potentialHits)) {
+            return Math.max(1, potentialHits);
+        }
+        int sizeForCost = (int) Math.ceil(TARGET_TASK_NANOS / nanosPerHit);
+        // Large ships get bigger tasks instead of thousands of them
+        int sizeForThreads = (int) Math.ceil(
+            (double) potentialHits / (Math.max(1, parallelism) * TASKS_PER_THREAD));
+        return Math.max(1, Math.max(sizeForCost, sizeForThreads));
+    }
+
+    /**
+     * @return True if checking the given number of potential hits is expected to be so quick that
+     * it should be done by the calling thread.
+     */
+    boolean shouldRunInline(int potentialHits) {
+        return potentialHits * nanosPerHit < INLINE_NANOS;
+    }
+
+    /**
+     * Updates the estimate with the total time the tasks of a physics tick took to check the given
+     * number of potential hits.
+     */
+    void recordTick(int potentialHits, long totalNanos) {
+        if (potentialHits <= 0 || totalNanos <= 0) {
+            return;
+        }
+        double measured = (double) totalNanos / potentialHits;
+        nanosPerHit += (measured - nanosPerHit) * SMOOTHING;
+    }
+
+    double getNanosPerHit() {
+        return nanosPerHit;
+    }
+}
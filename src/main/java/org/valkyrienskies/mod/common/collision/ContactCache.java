@@ -0,0 +1,158 @@
+package org.valkyrienskies.mod.common.collision;
+
+import org.joml.Vector3d;
+import org.joml.Vector3dc;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Remembers the impulse applied to every contact between a ship and the world, so the next
+ * physics step can start from it instead of from zero (warm starting). A contact is identified by
+ * the ship block, the world block, the collision axis and which of the two contact points it is.
+ * Contacts that weren't solved in the previous step are forgotten. Each contact also holds what
+ * the contact solver in {@link WorldPhysicsCollider} needs to know about it during a step.
+ * <p>
+ * Not thread safe, only the physics thread of the ship should touch it.
+ */
+class ContactCache {
+
+    private final Map<ContactKey, Contact> contacts;
+    // Reused to look up contacts without allocating a key every time
+    private final ContactKey lookupKey;
+    private int step;
+
+    ContactCache() {
+        this.contacts = new HashMap<>();
+        this.lookupKey = new ContactKey();
+        this.step = 0;
+    }
+
+    /**
+     * Starts a new physics step, and forgets the contacts that weren't solved in the last one.
+     */
+    void nextStep() {
+        step++;
+        contacts.values().removeIf(contact -> contact.lastSolvedStep < step - 1);
+    }
+
+    /**
+     * @return The contact of the given contact point of info, created if it doesn't exist yet.
+     */
+    Contact getContact(CollisionInformationHolder info, boolean isTop) {
+        lookupKey.set(info, isTop);
+        Contact contact = contacts.get(lookupKey);
+        if (contact == null) {
+            contact = new Contact();
+            contacts.put(new ContactKey(lookupKey), contact);
+        }
+        return contact;
+    }
+
+    /**
+     * Must be called before solving contact in this step. The first time a contact is solved in a
+     * step its accumulated impulse and friction are set to those from the last step times
+     * warmStartFactor, or to zero if it wasn't touching last step.
+     *
+     * @return False if contact was already begun this step.
+     */
+    boolean beginSolving(Contact contact, double warmStartFactor) {
+        if (contact.lastSolvedStep == step) {
+            return false;
+        }
+        if (contact.lastSolvedStep == step - 1) {
+            contact.accumulatedImpulse *= warmStartFactor;
+            contact.accumulatedFriction.mul(warmStartFactor);
+        } else {
+            contact.accumulatedImpulse = 0;
+            contact.accumulatedFriction.zero();
+        }
+        contact.lastSolvedStep = step;
+        return true;
+    }
+
+    int size() {
+        return contacts.size();
+    }
+
+    static class Contact {
+
+        /**
+         * The total impulse pushing the ship out of the world block at this contact in the
+         * current step. Never negative, contacts can only push.
+         */
+        double accumulatedImpulse;
+        /**
+         * The total friction impulse at this contact in the current step, in world coordinates.
+         * Along the contact surface, and never longer than the friction coefficient times
+         * accumulatedImpulse.
+         */
+        final Vector3d accumulatedFriction = new Vector3d();
+        // The rest is only valid for the current step, and filled in by the solver.
+        final Vector3d inBody = new Vector3d();
+        final Vector3d pushDirection = new Vector3d();
+        Vector3dc axis;
+        // The impulse along axis needed to change the velocity along axis at this point by 1
+        double normalMass;
+        // Makes the solver aim for a bounce instead of just stopping the ship
+        double restitutionVelocity;
+        // Starts out so that a new contact never gets warm started
+        private int lastSolvedStep = Integer.MIN_VALUE;
+    }
+
+    private static class ContactKey {
+
+        private int worldX, worldY, worldZ, shipX, shipY, shipZ;
+        // The collision axis and which of its two contact points this is
+        private int feature;
+
+        ContactKey() {
+        }
+
+        ContactKey(ContactKey toCopy) {
+            this.worldX = toCopy.worldX;
+            this.worldY = toCopy.worldY;
+            this.worldZ = toCopy.worldZ;
+            this.shipX = toCopy.shipX;
+            this.shipY = toCopy.shipY;
+            this.shipZ = toCopy.shipZ;
+            this.feature = toCopy.feature;
+        }
+
+        void set(CollisionInformationHolder info, boolean isTop) {
+            this.worldX = info.inWorldX;
+            this.worldY = info.inWorldY;
+            this.worldZ = info.inWorldZ;
+            this.shipX = info.inLocalX;
+            this.shipY = info.inLocalY;
+            this.shipZ = info.inLocalZ;
+            this.feature = info.collisionAxisIndex * 2 + (isTop ? 0 : 1);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ContactKey)) {
+                return false;
+            }
+            ContactKey other = (ContactKey) o;
+            return worldX == other.worldX && worldY == other.worldY && worldZ == other.worldZ
+                && shipX == other.shipX && shipY == other.shipY && shipZ == other.shipZ
+                && feature == other.feature;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = worldX;
+            result = 31 * result + worldY;
+            result = 31 * result + worldZ;
+            result = 31 * result + shipX;
+            result = 31 * result + shipY;
+            result = 31 * result + shipZ;
+            result = 31 * result + feature;
+            return result;
+        }
+    }
+}
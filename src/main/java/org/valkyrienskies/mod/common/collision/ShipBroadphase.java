@@ -0,0 +1,106 @@
+package org.valkyrienskies.mod.common.collision;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.Value;
+import net.minecraft.util.math.AxisAlignedBB;
+import org.joml.Vector3d;
+import org.valkyrienskies.mod.common.ships.ship_transform.ShipTransform;
+import org.valkyrienskies.mod.common.ships.ship_world.PhysicsObject;
+import valkyrienwarfare.api.TransformType;
+
+/**
+ * Finds the pairs of ships whose AABBs overlap, using a {@link SweepAndPrune}. Ships don't move
+ * far in a physics tick, so an update costs about the number of ships plus the number of
+ * overlapping pairs.
+ * <p>
+ * The AABBs come from the physics transforms, so this is only up to date on the physics thread.
+ * Not thread safe, only the physics thread of the world should touch it.
+ */
+public class ShipBroadphase {
+
+    private final SweepAndPrune<PhysicsObject> sweepAndPrune;
+    private final Map<PhysicsObject, List<PhysicsObject>> neighbours;
+    private final List<ShipPair> overlappingPairs;
+    private final Vector3d corner;
+
+    public ShipBroadphase() {
+        this.sweepAndPrune = new SweepAndPrune<>();
+        this.neighbours = new IdentityHashMap<>();
+        this.overlappingPairs = new ArrayList<>();
+        this.corner = new Vector3d();
+    }
+
+    /**
+     * Moves the AABB of every ship to where its physics transform is now, and finds the pairs that
+     * overlap. Ships that aren't in ships anymore are forgotten.
+     */
+    public void update(Collection<PhysicsObject> ships) {
+        overlappingPairs.clear();
+        neighbours.clear();
+        sweepAndPrune.update(ships, this::getBounds, (first, second, overlap) -> {
+            overlappingPairs.add(new ShipPair(first, second, overlap));
+            neighbours.computeIfAbsent(first, ship -> new ArrayList<>()).add(second);
+            neighbours.computeIfAbsent(second, ship -> new ArrayList<>()).add(first);
+        });
+    }
+
+    /**
+     * @return The pairs of ships whose AABBs overlapped at the last update.
+     */
+    public List<ShipPair> getOverlappingPairs() {
+        return Collections.unmodifiableList(overlappingPairs);
+    }
+
+    /**
+     * @return The ships whose AABBs overlapped the AABB of ship at the last update.
+     */
+    public List<PhysicsObject> getNeighbours(PhysicsObject ship) {
+        List<PhysicsObject> shipNeighbours = neighbours.get(ship);
+        if (shipNeighbours == null) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(shipNeighbours);
+    }
+
+    /**
+     * @return The world space AABB of ship at its physics transform, or null if it has none yet.
+     */
+    private AxisAlignedBB getBounds(PhysicsObject ship) {
+        AxisAlignedBB subspaceBB = ship.getShipTransformationManager().getSubspaceBB();
+        ShipTransform transform = ship.getShipTransformationManager().getCurrentPhysicsTransform();
+        if (subspaceBB == null || transform == null) {
+            return null;
+        }
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY, minZ = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < 8; i++) {
+            corner.set((i & 1) == 0 ? subspaceBB.minX : subspaceBB.maxX,
+                (i & 2) == 0 ? subspaceBB.minY : subspaceBB.maxY,
+                (i & 4) == 0 ? subspaceBB.minZ : subspaceBB.maxZ);
+            transform.transformPosition(corner, TransformType.SUBSPACE_TO_GLOBAL);
+            minX = Math.min(minX, corner.x);
+            minY = Math.min(minY, corner.y);
+            minZ = Math.min(minZ, corner.z);
+            maxX = Math.max(maxX, corner.x);
+            maxY = Math.max(maxY, corner.y);
+            maxZ = Math.max(maxZ, corner.z);
+        }
+        return new AxisAlignedBB(minX, minY, minZ, maxX, maxY, maxZ);
+    }
+
+    /**
+     * Two ships whose AABBs overlap, and the box where they overlap.
+     */
+    @Value
+    public static class ShipPair {
+
+        PhysicsObject first;
+        PhysicsObject second;
+        AxisAlignedBB overlap;
+    }
+}
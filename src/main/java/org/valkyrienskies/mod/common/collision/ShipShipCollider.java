@@ -0,0 +1,338 @@
+package org.valkyrienskies.mod.common.collision;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import net.minecraft.util.math.AxisAlignedBB;
+import org.joml.Matrix3dc;
+import org.joml.Vector3d;
+import org.joml.Vector3dc;
+import org.valkyrienskies.mod.common.config.VSConfig;
+import org.valkyrienskies.mod.common.physics.PhysicsCalculations;
+import org.valkyrienskies.mod.common.ships.ship_transform.ShipTransform;
+import org.valkyrienskies.mod.common.ships.ship_world.PhysicsObject;
+import org.valkyrienskies.mod.common.util.datastructures.SurfaceVoxelSet;
+import valkyrienwarfare.api.TransformType;
+
+/**
+ * Collides the blocks of pairs of ships found by the {@link ShipBroadphase}. Only the part of each
+ * ship inside the overlap of their AABBs is looked at. Sections of either ship without surface
+ * blocks in there are skipped, and the rest are compared as the merged cuboids of {@link
+ * SurfaceVoxelSet}, using the separating axis test between two oriented boxes.
+ * <p>
+ * The contacts found are solved by impulses applied to both ships. Not thread safe, only the
+ * physics thread of the world should touch it.
+ */
+public class ShipShipCollider {
+
+    // Stops a pair of huge ships pressed together from taking forever. Only the boxes nearest to
+    // the middle of the overlap get collided, the rest once those have pushed the ships apart.
+    static final int MAX_BOXES_PER_SHIP = 256;
+    // How much of the penetration is corrected every second
+    private static final double PENETRATION_CORRECTION = 4;
+    // Penetration that is left alone, so resting ships don't jitter
+    private static final double PENETRATION_SLOP = .05;
+    // Below this speed ships don't bounce off each other
+    private static final double RESTITUTION_THRESHOLD = .5;
+    // Cross products of nearly parallel axes aren't worth testing
+    private static final double MIN_AXIS_LENGTH_SQ = 1e-8;
+
+    private final List<double[]> firstBoxes;
+    private final List<double[]> secondBoxes;
+    private final List<Contact> contacts;
+    // Reused by findContact()
+    private final Vector3d centerOffset;
+    private final Vector3d axis;
+    private final Vector3d bestAxis;
+    private final Vector3d firstDeepest;
+    private final Vector3d secondDeepest;
+
+    public ShipShipCollider() {
+        this.firstBoxes = new ArrayList<>();
+        this.secondBoxes = new ArrayList<>();
+        this.contacts = new ArrayList<>();
+        this.centerOffset = new Vector3d();
+        this.axis = new Vector3d();
+        this.bestAxis = new Vector3d();
+        this.firstDeepest = new Vector3d();
+        this.secondDeepest = new Vector3d();
+    }
+
+    /**
+     * Finds the contacts between the blocks of two ships and pushes them apart. Both ships must be
+     * simulated this physics tick.
+     *
+     * @return The number of contacts that were found.
+     */
+    public int collide(ShipBroadphase.ShipPair pair) {
+        PhysicsObject first = pair.getFirst();
+        PhysicsObject second = pair.getSecond();
+        ShipTransform firstTransform = first.getShipTransformationManager()
+            .getCurrentPhysicsTransform();
+        ShipTransform secondTransform = second.getShipTransformationManager()
+            .getCurrentPhysicsTransform();
+        if (!collectBoxes(first, firstTransform, pair.getOverlap(), firstBoxes)
+            || !collectBoxes(second, secondTransform, pair.getOverlap(), secondBoxes)) {
+            return 0;
+        }
+
+        Matrix3dc firstRotation = firstTransform.createRotationMatrix(TransformType.SUBSPACE_TO_GLOBAL);
+        Matrix3dc secondRotation = secondTransform.createRotationMatrix(TransformType.SUBSPACE_TO_GLOBAL);
+        Vector3d[] firstAxes = getAxes(firstRotation);
+        Vector3d[] secondAxes = getAxes(secondRotation);
+
+        Box firstBox = new Box(firstAxes);
+        Box secondBox = new Box(secondAxes);
+        for (double[] firstCuboid : firstBoxes) {
+            firstBox.set(firstCuboid, firstTransform);
+            for (double[] secondCuboid : secondBoxes) {
+                secondBox.set(secondCuboid, secondTransform);
+                Contact contact = findContact(firstBox, secondBox);
+                if (contact != null) {
+                    contacts.add(contact);
+                }
+            }
+        }
+        int contactCount = contacts.size();
+        if (contactCount > 0) {
+            solveContacts(first, firstTransform, second, secondTransform);
+        }
+        contacts.clear();
+        return contactCount;
+    }
+
+    /**
+     * Fills boxes with the merged cuboids of ship that are inside the world space overlap, in ship
+     * space. If there are more than {@link #MAX_BOXES_PER_SHIP}, only the ones nearest to the
+     * middle of the overlap are kept, since that's where the ships are pressed together the most.
+     *
+     * @return False if the ship has no surface blocks inside the overlap.
+     */
+    private static boolean collectBoxes(PhysicsObject ship, ShipTransform transform,
+        AxisAlignedBB overlap, List<double[]> boxes) {
+        boxes.clear();
+        SurfaceVoxelSet surfaceVoxels = ship.getSurfaceVoxels();
+        if (surfaceVoxels == null || transform == null) {
+            return false;
+        }
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY, minZ = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+        Vector3d corner = new Vector3d();
+        for (int i = 0; i < 8; i++) {
+            corner.set((i & 1) == 0 ? overlap.minX : overlap.maxX,
+                (i & 2) == 0 ? overlap.minY : overlap.maxY,
+                (i & 4) == 0 ? overlap.minZ : overlap.maxZ);
+            transform.transformPosition(corner, TransformType.GLOBAL_TO_SUBSPACE);
+            minX = Math.min(minX, corner.x);
+            minY = Math.min(minY, corner.y);
+            minZ = Math.min(minZ, corner.z);
+            maxX = Math.max(maxX, corner.x);
+            maxY = Math.max(maxY, corner.y);
+            maxZ = Math.max(maxZ, corner.z);
+        }
+        int blockMinX = (int) Math.floor(minX);
+        int blockMinY = Math.max(0, (int) Math.floor(minY));
+        int blockMinZ = (int) Math.floor(minZ);
+        int blockMaxX = (int) Math.floor(maxX);
+        int blockMaxY = Math.min(255, (int) Math.floor(maxY));
+        int blockMaxZ = (int) Math.floor(maxZ);
+        if (blockMinY > blockMaxY || !surfaceVoxels.anySurfaceInBox(blockMinX, blockMinY, blockMinZ,
+            blockMaxX, blockMaxY, blockMaxZ)) {
+            return false;
+        }
+        surfaceVoxels.forEachCuboidInBox(blockMinX, blockMinY, blockMinZ, blockMaxX, blockMaxY,
+            blockMaxZ, (cuboidMinX, cuboidMinY, cuboidMinZ, cuboidMaxX, cuboidMaxY, cuboidMaxZ) ->
+                boxes.add(new double[] {cuboidMinX, cuboidMinY, cuboidMinZ, cuboidMaxX + 1,
+                    cuboidMaxY + 1, cuboidMaxZ + 1}));
+        if (boxes.size() > MAX_BOXES_PER_SHIP) {
+            keepNearest(boxes, (minX + maxX) / 2, (minY + maxY) / 2, (minZ + maxZ) / 2);
+        }
+        return !boxes.isEmpty();
+    }
+
+    /**
+     * Removes all but the {@link #MAX_BOXES_PER_SHIP} boxes whose centers are nearest to (x, y, z).
+     */
+    static void keepNearest(List<double[]> boxes, double x, double y, double z) {
+        boxes.sort(Comparator.comparingDouble(box -> {
+            double dx = (box[0] + box[3]) / 2 - x;
+            double dy = (box[1] + box[4]) / 2 - y;
+            double dz = (box[2] + box[5]) / 2 - z;
+            return dx * dx + dy * dy + dz * dz;
+        }));
+        boxes.subList(MAX_BOXES_PER_SHIP, boxes.size()).clear();
+    }
+
+    static Vector3d[] getAxes(Matrix3dc rotation) {
+        Vector3d[] axes = new Vector3d[3];
+        for (int i = 0; i < 3; i++) {
+            axes[i] = rotation.getColumn(i, new Vector3d());
+        }
+        return axes;
+    }
+
+    /**
+     * Separating axis test between two oriented boxes. The candidate axes are the 3 axes of each
+     * box and the 9 cross products between them.
+     *
+     * @return The contact pushing first out of second, or null if they don't overlap.
+     */
+    Contact findContact(Box first, Box second) {
+        first.center.sub(second.center, centerOffset);
+        double bestOverlap = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < 15; i++) {
+            if (i < 3) {
+                axis.set(first.axes[i]);
+            } else if (i < 6) {
+                axis.set(second.axes[i - 3]);
+            } else {
+                first.axes[(i - 6) / 3].cross(second.axes[(i - 6) % 3], axis);
+                if (axis.lengthSquared() < MIN_AXIS_LENGTH_SQ) {
+                    continue;
+                }
+                axis.normalize();
+            }
+            double distance = centerOffset.dot(axis);
+            double overlap = first.getProjectedRadius(axis) + second.getProjectedRadius(axis)
+                - Math.abs(distance);
+            if (overlap <= 0) {
+                return null;
+            }
+            if (overlap < bestOverlap) {
+                bestOverlap = overlap;
+                // Always point from second towards first
+                axis.mul(distance < 0 ? -1 : 1, bestAxis);
+            }
+        }
+        // Halfway between the deepest corner of each box along the normal
+        first.getSupportPoint(bestAxis, -1, firstDeepest);
+        second.getSupportPoint(bestAxis, 1, secondDeepest);
+        return new Contact(firstDeepest.add(secondDeepest).mul(.5), bestAxis, bestOverlap);
+    }
+
+    private void solveContacts(PhysicsObject first, ShipTransform firstTransform,
+        PhysicsObject second, ShipTransform secondTransform) {
+        PhysicsCalculations firstCalculations = first.getPhysicsCalculations();
+        PhysicsCalculations secondCalculations = second.getPhysicsCalculations();
+        for (Contact contact : contacts) {
+            contact.firstInBody.set(contact.point.x - firstTransform.getPosX(),
+                contact.point.y - firstTransform.getPosY(), contact.point.z - firstTransform.getPosZ());
+            contact.secondInBody.set(contact.point.x - secondTransform.getPosX(),
+                contact.point.y - secondTransform.getPosY(), contact.point.z - secondTransform.getPosZ());
+            double inverseMass = firstCalculations.getInvMass() + secondCalculations.getInvMass()
+                + getAngularInverseMass(firstCalculations, contact.firstInBody, contact.normal)
+                + getAngularInverseMass(secondCalculations, contact.secondInBody, contact.normal);
+            contact.normalMass = 1 / inverseMass;
+
+            double closingVelocity = getRelativeVelocity(firstCalculations, secondCalculations,
+                contact);
+            double bounceVelocity = closingVelocity < -RESTITUTION_THRESHOLD
+                ? -WorldPhysicsCollider.COEFFICIENT_OF_RESTITUTION * closingVelocity : 0;
+            double correctionVelocity = PENETRATION_CORRECTION
+                * Math.max(0, contact.penetration - PENETRATION_SLOP);
+            contact.targetVelocity = Math.max(bounceVelocity, correctionVelocity);
+        }
+        for (int iteration = 0; iteration < VSConfig.contactSolverIterations; iteration++) {
+            for (Contact contact : contacts) {
+                double impulse = (contact.targetVelocity
+                    - getRelativeVelocity(firstCalculations, secondCalculations, contact))
+                    * contact.normalMass;
+                // Contacts can only push, but can take back impulse that turned out to be too much
+                double oldAccumulatedImpulse = contact.accumulatedImpulse;
+                contact.accumulatedImpulse = Math.max(0, oldAccumulatedImpulse + impulse);
+                double impulseToApply = contact.accumulatedImpulse - oldAccumulatedImpulse;
+                if (impulseToApply == 0) {
+                    continue;
+                }
+                Vector3d impulseVector = contact.normal.mul(impulseToApply, new Vector3d());
+                applyImpulse(firstCalculations, contact.firstInBody, impulseVector);
+                applyImpulse(secondCalculations, contact.secondInBody, impulseVector.negate());
+            }
+        }
+    }
+
+    private static double getAngularInverseMass(PhysicsCalculations calculations, Vector3dc inBody,
+        Vector3dc normal) {
+        Vector3d cross = inBody.cross(normal, new Vector3d());
+        calculations.getPhysInvMOITensor().transform(cross);
+        return cross.cross(inBody).dot(normal);
+    }
+
+    // How fast the contact is separating, negative if its closing
+    private static double getRelativeVelocity(PhysicsCalculations firstCalculations,
+        PhysicsCalculations secondCalculations, Contact contact) {
+        return firstCalculations.getVelocityAtPoint(contact.firstInBody)
+            .sub(secondCalculations.getVelocityAtPoint(contact.secondInBody))
+            .dot(contact.normal);
+    }
+
+    private static void applyImpulse(PhysicsCalculations calculations, Vector3dc inBody,
+        Vector3dc impulse) {
+        calculations.getLinearVelocity().add(impulse.mul(calculations.getInvMass(), new Vector3d()));
+        Vector3d angularImpulse = inBody.cross(impulse, new Vector3d());
+        calculations.getPhysInvMOITensor().transform(angularImpulse);
+        calculations.getAngularVelocity().add(angularImpulse);
+    }
+
+    /**
+     * A cuboid of ship blocks, moved into world space.
+     */
+    static class Box {
+
+        final Vector3d[] axes;
+        final Vector3d center;
+        final double[] halfExtents;
+
+        Box(Vector3d[] axes) {
+            this.axes = axes;
+            this.center = new Vector3d();
+            this.halfExtents = new double[3];
+        }
+
+        void set(double[] cuboid, ShipTransform transform) {
+            center.set((cuboid[0] + cuboid[3]) / 2, (cuboid[1] + cuboid[4]) / 2,
+                (cuboid[2] + cuboid[5]) / 2);
+            transform.transformPosition(center, TransformType.SUBSPACE_TO_GLOBAL);
+            for (int i = 0; i < 3; i++) {
+                halfExtents[i] = (cuboid[i + 3] - cuboid[i]) / 2;
+            }
+        }
+
+        double getProjectedRadius(Vector3dc axis) {
+            return halfExtents[0] * Math.abs(axes[0].dot(axis))
+                + halfExtents[1] * Math.abs(axes[1].dot(axis))
+                + halfExtents[2] * Math.abs(axes[2].dot(axis));
+        }
+
+        // Sets dest to the corner furthest along direction * sign
+        Vector3d getSupportPoint(Vector3dc direction, double sign, Vector3d dest) {
+            dest.set(center);
+            for (int i = 0; i < 3; i++) {
+                double along = axes[i].dot(direction) * sign;
+                dest.fma(along >= 0 ? halfExtents[i] : -halfExtents[i], axes[i]);
+            }
+            return dest;
+        }
+    }
+
+    static class Contact {
+
+        final Vector3d point;
+        // Points from the second ship towards the first
+        final Vector3d normal;
+        final double penetration;
+        final Vector3d firstInBody;
+        final Vector3d secondInBody;
+        double normalMass;
+        double targetVelocity;
+        double accumulatedImpulse;
+
+        Contact(Vector3dc point, Vector3dc normal, double penetration) {
+            this.point = new Vector3d(point);
+            this.normal = new Vector3d(normal);
+            this.penetration = penetration;
+            this.firstInBody = new Vector3d();
+            this.secondInBody = new Vector3d();
+        }
+    }
+}
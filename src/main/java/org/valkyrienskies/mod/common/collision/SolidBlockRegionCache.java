@@ -0,0 +1,323 @@
+package org.valkyrienskies.mod.common.collision;
+
+import gnu.trove.iterator.TLongIterator;
+import gnu.trove.list.TIntList;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.set.TLongSet;
+import gnu.trove.set.hash.TLongHashSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import javax.annotation.Nullable;
+import lombok.Getter;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.gen.structure.StructureBoundingBox;
+import org.valkyrienskies.mod.common.ships.block_relocation.SpatialDetector;
+import org.valkyrienskies.mod.common.ships.chunk_claims.TerrainSection;
+import org.valkyrienskies.mod.common.ships.chunk_claims.TerrainSnapshot;
+import org.valkyrienskies.mod.common.ships.chunk_claims.TerrainSnapshotController;
+import org.valkyrienskies.mod.common.util.datastructures.IndexedIntSet;
+import org.valkyrienskies.mod.common.util.multithreaded.BoundedWorkerPool;
+
+/**
+ * Keeps track of the solid world blocks inside a box that moves along with a ship. When the box
+ * moves only the slabs it moved into are scanned and only the slabs it left are evicted, and blocks
+ * that change inside the box are reported by the {@link TerrainSnapshotController} through {@link
+ * #onBlockChanged(BlockPos)} rather than found by rescanning. This way the cost of keeping the
+ * set up to date is proportional to how far the ship moved, not to how big it is.
+ * <p>
+ * Blocks are stored as {@link SpatialDetector} hashes relative to {@link #getCenter()}, which only
+ * changes when the whole box has to be rescanned. They can be read by index, so the collision
+ * tasks can split them into ranges without copying them.
+ */
+class SolidBlockRegionCache {
+
+    // Scans of fewer blocks than this aren't worth handing to other threads
+    private static final int PARALLEL_SCAN_MIN_BLOCKS = 16 * 16 * 16;
+
+    @Getter
+    private final IndexedIntSet solidBlocks;
+    // Blocks the game thread told us changed since the last update.
+    private final Queue<BlockPos> changedBlocks;
+    // Chunks inside the region that weren't in the snapshot last time we tried to scan them.
+    private final TLongSet missingChunks;
+    /**
+     * The region being tracked. Published before the snapshot is read so that the game thread
+     * reports every block that changes in later snapshots.
+     */
+    private volatile StructureBoundingBox region;
+    @Getter
+    private BlockPos center;
+
+    SolidBlockRegionCache() {
+        this.solidBlocks = new IndexedIntSet();
+        this.changedBlocks = new ConcurrentLinkedQueue<>();
+        this.missingChunks = new TLongHashSet();
+        this.region = null;
+        this.center = null;
+    }
+
+    /**
+     * Called by the game thread whenever a world block changes, after the change has been
+     * published in a terrain snapshot.
+     *
+     * @return True if the block is inside the tracked region.
+     */
+    boolean onBlockChanged(BlockPos pos) {
+        StructureBoundingBox currentRegion = region;
+        if (currentRegion != null && currentRegion.isVecInside(pos)) {
+            changedBlocks.add(pos.toImmutable());
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Moves the tracked region to the given box and brings the set of solid blocks up to date.
+     * The box must be within the y range of the world, and less than {@link
+     * SpatialDetector#maxRange} blocks across.
+     *
+     * @param pool Runs big scans in parallel, or null to run them on the calling thread.
+     * @return False if some of the scanning failed, in which case solidBlocks is incomplete, and
+     * the next update rescans the whole region.
+     */
+    boolean update(TerrainSnapshotController terrain, int minX, int minY, int minZ, int maxX, int maxY,
+        int maxZ, @Nullable BoundedWorkerPool pool) {
+        StructureBoundingBox oldRegion = region;
+        StructureBoundingBox newRegion = new StructureBoundingBox(minX, minY, minZ, maxX, maxY, maxZ);
+        boolean fullScan = oldRegion == null || !oldRegion.intersectsWith(newRegion)
+            || !isHashable(newRegion, center);
+
+        region = newRegion;
+        TerrainSnapshot snapshot = terrain.getSnapshot();
+        List<StructureBoundingBox> toScan = new ArrayList<>();
+        if (fullScan) {
+            solidBlocks.clear();
+            missingChunks.clear();
+            changedBlocks.clear();
+            center = new BlockPos((minX + maxX) / 2, (minY + maxY) / 2, (minZ + maxZ) / 2);
+            toScan.add(newRegion);
+        } else {
+            applyBlockChanges(snapshot, newRegion);
+            addMissingChunks(newRegion, toScan);
+            forEachBoxInDifference(oldRegion, newRegion, this::evictBox);
+            forgetMissingChunksOutside(newRegion);
+            forEachBoxInDifference(newRegion, oldRegion, toScan::add);
+        }
+        if (!scanBoxes(snapshot, toScan, pool)) {
+            // Start over next time rather than keep track of what is missing
+            region = null;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Forgets every block, so that the next update rescans the whole region.
+     */
+    void clear() {
+        region = null;
+        solidBlocks.clear();
+        missingChunks.clear();
+        changedBlocks.clear();
+    }
+
+    private void applyBlockChanges(TerrainSnapshot snapshot, StructureBoundingBox newRegion) {
+        BlockPos pos;
+        while ((pos = changedBlocks.poll()) != null) {
+            if (!newRegion.isVecInside(pos)) {
+                continue;
+            }
+            if (!snapshot.hasChunk(pos.getX() >> 4, pos.getZ() >> 4)) {
+                missingChunks.add(ChunkPos.asLong(pos.getX() >> 4, pos.getZ() >> 4));
+                continue;
+            }
+            int hash = SpatialDetector.getHashWithRespectTo(pos.getX(), pos.getY(), pos.getZ(), center);
+            if (snapshot.isSolid(pos.getX(), pos.getY(), pos.getZ())) {
+                solidBlocks.add(hash);
+            } else {
+                solidBlocks.remove(hash);
+            }
+        }
+    }
+
+    /**
+     * Adds the parts of newRegion inside chunks that were missing last time to toScan.
+     */
+    private void addMissingChunks(StructureBoundingBox newRegion, List<StructureBoundingBox> toScan) {
+        if (missingChunks.isEmpty()) {
+            return;
+        }
+        long[] toRescan = missingChunks.toArray();
+        missingChunks.clear();
+        for (long chunkPos : toRescan) {
+            int chunkX = (int) chunkPos;
+            int chunkZ = (int) (chunkPos >> 32);
+            StructureBoundingBox chunkBox = new StructureBoundingBox(chunkX << 4, newRegion.minY,
+                chunkZ << 4, (chunkX << 4) + 15, newRegion.maxY, (chunkZ << 4) + 15);
+            if (chunkBox.intersectsWith(newRegion)) {
+                toScan.add(intersection(chunkBox, newRegion));
+            }
+        }
+    }
+
+    private void forgetMissingChunksOutside(StructureBoundingBox newRegion) {
+        TLongIterator iterator = missingChunks.iterator();
+        while (iterator.hasNext()) {
+            long chunkPos = iterator.next();
+            int chunkX = (int) chunkPos;
+            int chunkZ = (int) (chunkPos >> 32);
+            if (!newRegion.intersectsWith(chunkX << 4, chunkZ << 4, (chunkX << 4) + 15, (chunkZ << 4) + 15)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Adds every solid block inside the boxes to solidBlocks. The boxes are split by chunk column,
+     * and if there are enough blocks to scan the columns are scanned in parallel by pool.
+     *
+     * @return False if scanning a column failed.
+     */
+    private boolean scanBoxes(TerrainSnapshot snapshot, List<StructureBoundingBox> boxes,
+        @Nullable BoundedWorkerPool pool) {
+        List<StructureBoundingBox> columns = new ArrayList<>();
+        long blockCount = 0;
+        for (StructureBoundingBox box : boxes) {
+            for (int chunkX = box.minX >> 4; chunkX <= box.maxX >> 4; chunkX++) {
+                for (int chunkZ = box.minZ >> 4; chunkZ <= box.maxZ >> 4; chunkZ++) {
+                    if (!snapshot.hasChunk(chunkX, chunkZ)) {
+                        // Try again once the chunk is available
+                        missingChunks.add(ChunkPos.asLong(chunkX, chunkZ));
+                        continue;
+                    }
+                    StructureBoundingBox column = new StructureBoundingBox(
+                        Math.max(box.minX, chunkX << 4), box.minY, Math.max(box.minZ, chunkZ << 4),
+                        Math.min(box.maxX, (chunkX << 4) + 15), box.maxY,
+                        Math.min(box.maxZ, (chunkZ << 4) + 15));
+                    columns.add(column);
+                    blockCount += (long) column.getXSize() * column.getYSize() * column.getZSize();
+                }
+            }
+        }
+
+        BlockPos center = this.center;
+        if (pool == null || columns.size() < 2 || blockCount < PARALLEL_SCAN_MIN_BLOCKS) {
+            for (StructureBoundingBox column : columns) {
+                scanColumn(snapshot, column, center, solidBlocks::add);
+            }
+            return true;
+        }
+
+        List<TIntList> outputs = new ArrayList<>(columns.size());
+        List<Runnable> tasks = new ArrayList<>(columns.size());
+        for (StructureBoundingBox column : columns) {
+            TIntList output = new TIntArrayList();
+            outputs.add(output);
+            tasks.add(() -> scanColumn(snapshot, column, center, output::add));
+        }
+        if (!pool.invokeAll(tasks)) {
+            return false;
+        }
+        for (TIntList output : outputs) {
+            for (int i = 0; i < output.size(); i++) {
+                solidBlocks.add(output.get(i));
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gives the hash of every solid block inside column, which must be inside a single chunk that
+     * is in snapshot, to output.
+     */
+    private static void scanColumn(TerrainSnapshot snapshot, StructureBoundingBox column,
+        BlockPos center, IntConsumer output) {
+        int chunkX = column.minX >> 4;
+        int chunkZ = column.minZ >> 4;
+        for (int storageY = column.minY >> 4; storageY <= column.maxY >> 4; storageY++) {
+            TerrainSection section = snapshot.getSection(chunkX, storageY, chunkZ);
+            if (section == null) {
+                continue;
+            }
+            int minY = Math.max(column.minY, storageY << 4);
+            int maxY = Math.min(column.maxY, (storageY << 4) + 15);
+            for (int x = column.minX; x <= column.maxX; x++) {
+                for (int z = column.minZ; z <= column.maxZ; z++) {
+                    for (int y = minY; y <= maxY; y++) {
+                        if (section.isSolid(x & 15, y & 15, z & 15)) {
+                            output.accept(SpatialDetector.getHashWithRespectTo(x, y, z, center));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes every block inside box from solidBlocks.
+     */
+    private void evictBox(StructureBoundingBox box) {
+        for (int x = box.minX; x <= box.maxX; x++) {
+            for (int z = box.minZ; z <= box.maxZ; z++) {
+                for (int y = box.minY; y <= box.maxY; y++) {
+                    solidBlocks.remove(SpatialDetector.getHashWithRespectTo(x, y, z, center));
+                }
+            }
+        }
+    }
+
+    /**
+     * @return True if every block in box has a unique hash relative to center.
+     */
+    private static boolean isHashable(StructureBoundingBox box, BlockPos center) {
+        return center != null
+            && box.minX - center.getX() >= -SpatialDetector.maxRangeHalved
+            && box.maxX - center.getX() < SpatialDetector.maxRangeHalved
+            && box.minZ - center.getZ() >= -SpatialDetector.maxRangeHalved
+            && box.maxZ - center.getZ() < SpatialDetector.maxRangeHalved;
+    }
+
+    private static StructureBoundingBox intersection(StructureBoundingBox a, StructureBoundingBox b) {
+        return new StructureBoundingBox(Math.max(a.minX, b.minX), Math.max(a.minY, b.minY),
+            Math.max(a.minZ, b.minZ), Math.min(a.maxX, b.maxX), Math.min(a.maxY, b.maxY),
+            Math.min(a.maxZ, b.maxZ));
+    }
+
+    /**
+     * Splits the blocks inside a but not inside b into at most 6 boxes, and gives each of them to
+     * consumer.
+     */
+    static void forEachBoxInDifference(StructureBoundingBox a, StructureBoundingBox b,
+        Consumer<StructureBoundingBox> consumer) {
+        if (!a.intersectsWith(b)) {
+            consumer.accept(a);
+            return;
+        }
+        // Slice off the x slabs, then the y slabs of what's left, then the z slabs of what's left.
+        int minX = Math.max(a.minX, b.minX), maxX = Math.min(a.maxX, b.maxX);
+        int minY = Math.max(a.minY, b.minY), maxY = Math.min(a.maxY, b.maxY);
+        if (a.minX < b.minX) {
+            consumer.accept(new StructureBoundingBox(a.minX, a.minY, a.minZ, b.minX - 1, a.maxY, a.maxZ));
+        }
+        if (a.maxX > b.maxX) {
+            consumer.accept(new StructureBoundingBox(b.maxX + 1, a.minY, a.minZ, a.maxX, a.maxY, a.maxZ));
+        }
+        if (a.minY < b.minY) {
+            consumer.accept(new StructureBoundingBox(minX, a.minY, a.minZ, maxX, b.minY - 1, a.maxZ));
+        }
+        if (a.maxY > b.maxY) {
+            consumer.accept(new StructureBoundingBox(minX, b.maxY + 1, a.minZ, maxX, a.maxY, a.maxZ));
+        }
+        if (a.minZ < b.minZ) {
+            consumer.accept(new StructureBoundingBox(minX, minY, a.minZ, maxX, maxY, b.minZ - 1));
+        }
+        if (a.maxZ > b.maxZ) {
+            consumer.accept(new StructureBoundingBox(minX, minY, b.maxZ + 1, maxX, maxY, a.maxZ));
+        }
+    }
+}
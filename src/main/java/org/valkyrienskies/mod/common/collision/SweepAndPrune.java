@@ -0,0 +1,133 @@
+package org.valkyrienskies.mod.common.collision;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import net.minecraft.util.math.AxisAlignedBB;
+
+/**
+ * Finds the pairs of objects whose AABBs overlap, using sweep and prune along the x axis. The
+ * objects stay sorted by the min x of their AABB between updates. Objects don't move far between
+ * updates, so re-sorting them with an insertion sort only takes a few swaps. Sweeping the sorted
+ * list then only compares objects whose x ranges overlap, so an update costs about the number of
+ * objects plus the number of overlapping pairs.
+ * <p>
+ * Objects are compared by identity. Not thread safe.
+ *
+ * @param <T> The type of the objects.
+ */
+class SweepAndPrune<T> {
+
+    private final List<Entry<T>> entries;
+    private final Map<T, Entry<T>> entriesByObject;
+
+    SweepAndPrune() {
+        this.entries = new ArrayList<>();
+        this.entriesByObject = new IdentityHashMap<>();
+    }
+
+    /**
+     * Moves the AABB of every object to where it is now, and gives every pair that overlaps to
+     * pairConsumer. Objects that aren't in objects anymore are forgotten.
+     *
+     * @param getBounds Gives the AABB of an object, or null if it doesn't have one right now.
+     */
+    void update(Collection<T> objects, Function<T, AxisAlignedBB> getBounds,
+        PairConsumer<T> pairConsumer) {
+        Map<T, Boolean> stillLoaded = new IdentityHashMap<>();
+        for (T object : objects) {
+            stillLoaded.put(object, Boolean.TRUE);
+            if (!entriesByObject.containsKey(object)) {
+                // Added at the end, the sort moves it into place
+                Entry<T> entry = new Entry<>(object);
+                entries.add(entry);
+                entriesByObject.put(object, entry);
+            }
+        }
+        entries.removeIf(entry -> {
+            if (stillLoaded.containsKey(entry.object)) {
+                return false;
+            }
+            entriesByObject.remove(entry.object);
+            return true;
+        });
+
+        for (Entry<T> entry : entries) {
+            entry.set(getBounds.apply(entry.object));
+        }
+        sortByMinX();
+
+        for (int i = 0; i < entries.size(); i++) {
+            Entry<T> first = entries.get(i);
+            if (first.isEmpty()) {
+                // Empty entries sort last
+                break;
+            }
+            for (int j = i + 1; j < entries.size() && entries.get(j).minX <= first.maxX; j++) {
+                Entry<T> second = entries.get(j);
+                if (first.minY <= second.maxY && first.maxY >= second.minY
+                    && first.minZ <= second.maxZ && first.maxZ >= second.minZ) {
+                    pairConsumer.accept(first.object, second.object,
+                        new AxisAlignedBB(Math.max(first.minX, second.minX),
+                            Math.max(first.minY, second.minY), Math.max(first.minZ, second.minZ),
+                            Math.min(first.maxX, second.maxX), Math.min(first.maxY, second.maxY),
+                            Math.min(first.maxZ, second.maxZ)));
+                }
+            }
+        }
+    }
+
+    private void sortByMinX() {
+        for (int i = 1; i < entries.size(); i++) {
+            Entry<T> toInsert = entries.get(i);
+            int j = i - 1;
+            while (j >= 0 && entries.get(j).minX > toInsert.minX) {
+                entries.set(j + 1, entries.get(j));
+                j--;
+            }
+            entries.set(j + 1, toInsert);
+        }
+    }
+
+    @FunctionalInterface
+    interface PairConsumer<T> {
+
+        /**
+         * @param overlap The box where the AABBs of first and second overlap.
+         */
+        void accept(T first, T second, AxisAlignedBB overlap);
+    }
+
+    private static class Entry<T> {
+
+        final T object;
+        double minX, minY, minZ, maxX, maxY, maxZ;
+
+        Entry(T object) {
+            this.object = object;
+            set(null);
+        }
+
+        // Empty entries have a min x of infinity, so they sort last and never overlap anything
+        void set(AxisAlignedBB bounds) {
+            if (bounds == null) {
+                minX = minY = minZ = Double.POSITIVE_INFINITY;
+                maxX = maxY = maxZ = Double.NEGATIVE_INFINITY;
+                return;
+            }
+            minX = bounds.minX;
+            minY = bounds.minY;
+            minZ = bounds.minZ;
+            maxX = bounds.maxX;
+            maxY = bounds.maxY;
+            maxZ = bounds.maxZ;
+        }
+
+        boolean isEmpty() {
+            return minX > maxX;
+        }
+    }
+}
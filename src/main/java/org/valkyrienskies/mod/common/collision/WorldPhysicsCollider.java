@@ -1,33 +1,28 @@
 package org.valkyrienskies.mod.common.collision;
 
 import gnu.trove.TCollections;
-import gnu.trove.list.TIntList;
-import gnu.trove.list.array.TIntArrayList;
-import net.minecraft.block.state.IBlockState;
 import net.minecraft.util.Tuple;
 import net.minecraft.util.math.AxisAlignedBB;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.BlockPos.MutableBlockPos;
 import net.minecraft.util.math.MathHelper;
-import net.minecraft.world.ChunkCache;
 import net.minecraft.world.World;
-import net.minecraft.world.chunk.Chunk;
-import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
-import org.apache.commons.lang3.tuple.ImmutableTriple;
-import org.apache.commons.lang3.tuple.Triple;
 import org.joml.Vector3d;
 import org.joml.Vector3dc;
-import org.valkyrienskies.mod.common.ships.ship_transform.ShipTransform;
+import org.valkyrienskies.mod.common.ValkyrienSkiesMod;
+import org.valkyrienskies.mod.common.config.VSConfig;
 import org.valkyrienskies.mod.common.physics.PhysicsCalculations;
-import org.valkyrienskies.mod.common.util.datastructures.IBitOctree;
-import org.valkyrienskies.mod.common.util.datastructures.IBitOctreeProvider;
+import org.valkyrienskies.mod.common.ships.chunk_claims.TerrainSnapshot;
+import org.valkyrienskies.mod.common.ships.chunk_claims.TerrainSnapshotController;
+import org.valkyrienskies.mod.common.util.VSIterationUtils;
+import org.valkyrienskies.mod.common.util.ValkyrienUtils;
+import org.valkyrienskies.mod.common.util.datastructures.SurfaceVoxelSet;
 import org.valkyrienskies.mod.common.ships.block_relocation.SpatialDetector;
+import org.valkyrienskies.mod.common.ships.ship_transform.ShipTransform;
 import org.valkyrienskies.mod.common.ships.ship_world.PhysicsObject;
 import valkyrienwarfare.api.TransformType;
 
 import java.util.*;
-import java.util.concurrent.ThreadLocalRandom;
-import java.util.function.Consumer;
 
 /**
  * Handles the task of finding and processing collisions between a PhysicsObject and the game
@@ -45,264 +40,329 @@ public class WorldPhysicsCollider {
     // The minimum depth a collision projection must have, to not use the default
     // collision normal of <0, 1, 0>
     public static final double AXIS_TOLERANCE = .3D;
-    // Time in seconds between collision cache updates. A value of .1D means we
-    // update the collision cache every 1/10th of a second.
-    public static final double CACHE_UPDATE_FREQUENCY = .075D;
+    // The most time in seconds between collision cache updates, even if the ship barely moved.
+    public static final double MAX_CACHE_AGE = .5D;
+    // The collision cache is updated once any part of the ship could have moved this many blocks
+    // since the last update.
+    public static final double CACHE_UPDATE_DISTANCE = 1D;
+    // Ships moving more blocks than this in a single physics tick are swept against the world, so
+    // that they can't tunnel through thin walls.
+    public static final double CCD_DISPLACEMENT_THRESHOLD = .25D;
+    // How much the ship boxes shrink on every side when swept, so that resting on the ground
+    // doesn't count as an impact. The contact solver handles contacts this shallow.
+    private static final double CCD_SKIN = .2D;
+    // Ship boxes that sweep over more world blocks than this aren't swept at all
+    private static final int CCD_MAX_BLOCKS_PER_BOX = 32768;
     // Determines how 'bouncy' collisions are
     public static final double COEFFICIENT_OF_RESTITUTION = .52D;
     // The radius which the algorithm will search for a nearby block to collide with
     public static final double COLLISION_RANGE_CHECK = .65D;
-    // If true, will use the octree assisted algorithm for finding collisions,
-    // (Approx. O(log(n)^3)).
-    // If false then this class uses the much slower iterative approach O(n^3).
-    public static final boolean USE_OCTREE_COLLISION = true;
-    // How likely it is for the collision tasks to shuffle every physics tick
-    // ie. (.50D => 50% chance to shuffle, .30D => 30% chance, etc.)
-    public static final double COLLISION_TASK_SHUFFLE_FREQUENCY = .50D;
     // Greater coefficients result in more friction
     public static final double KINETIC_FRICTION_COEFFICIENT = .15D;
+    // How much of the impulse a contact applied last physics tick gets applied again at the start
+    // of this one. Less than 1 so that contacts that aren't needed anymore fade out.
+    public static final double WARM_START_FACTOR = .8D;
     private final MutableBlockPos mutablePos;
-    // Use ThreadLocalRandom because its much faster than Random.
-    private final ThreadLocalRandom rand;
     private final Collection<ShipCollisionTask> tasks;
     private final PhysicsCalculations calculator;
     private final World worldObj;
     private final PhysicsObject parent;
-    private final TIntList cachedPotentialHits;
-    private final TIntArrayList cachedHitsToRemove;
+    // The solid world blocks around the ship, which are the potential hits
+    private final SolidBlockRegionCache solidBlockCache;
+    private final ContactCache contactCache;
+    // The contacts to solve this physics tick
+    private final List<ContactCache.Contact> solverContacts;
+    private final CollisionTaskSizer taskSizer;
+    // The number of potential hits each of the collision tasks checks
+    private int collisionTaskSize;
+    // What the collision tasks of the last tick did, to measure how long a potential hit takes
+    private int lastTickPotentialHits;
+    private long lastTickTaskNanos;
     // Ensures this always updates the first tick after creation
     private double ticksSinceCacheUpdate;
+    // How far any part of the ship could have moved since the last collision cache update
+    private double distanceSinceCacheUpdate;
+    // Set by the game thread when a world block near the ship changes
+    private volatile boolean worldChangedSinceCacheUpdate;
     private boolean updateCollisionTasksCache;
-    private BlockPos centerPotentialHit;
+    // The world blocks to collide with this tick
+    private TerrainSnapshot terrain;
+    // The number of collision points processed this physics tick
+    private int contactCount;
+    // If true then only the closest ship block to each world block is checked for collision
+    private boolean coarseCollision;
 
     public WorldPhysicsCollider(PhysicsCalculations calculations) {
         this.calculator = calculations;
         this.parent = calculations.getParent();
         this.worldObj = parent.getWorld();
-        this.cachedPotentialHits = new TIntArrayList();
-        this.cachedHitsToRemove = new TIntArrayList();
-        this.rand = ThreadLocalRandom.current();
+        this.solidBlockCache = new SolidBlockRegionCache();
+        this.contactCache = new ContactCache();
+        this.solverContacts = new ArrayList<>();
+        this.taskSizer = new CollisionTaskSizer();
         this.mutablePos = new MutableBlockPos();
         this.tasks = new ArrayList<>();
         this.ticksSinceCacheUpdate = 25D;
         this.updateCollisionTasksCache = true;
-        this.centerPotentialHit = null;
+        this.terrain = TerrainSnapshot.EMPTY;
     }
 
     public void tickUpdatingTheCollisionCache() {
         // Multiply by 20 to convert seconds (physTickSpeed) into ticks
         ticksSinceCacheUpdate += calculator.getPhysicsTimeDeltaPerPhysTick();
-        for (int i = 0; i < cachedHitsToRemove.size(); i++) {
-            cachedPotentialHits.remove(cachedHitsToRemove.get(i));
-        }
-        cachedHitsToRemove.resetQuick();
-        if (ticksSinceCacheUpdate > CACHE_UPDATE_FREQUENCY || parent
-            .isNeedsCollisionCacheUpdate()) {
+        distanceSinceCacheUpdate += getFastestPointSpeed() * calculator.getPhysicsTimeDeltaPerPhysTick();
+        // Ships that barely move keep their cache for a while, fast ones are swept by
+        // sweepForTimeOfImpact() so they can't skip past blocks between updates.
+        if (isCacheOutdated(ticksSinceCacheUpdate, distanceSinceCacheUpdate)
+            || worldChangedSinceCacheUpdate || parent.isNeedsCollisionCacheUpdate()) {
+            // Cleared first, so that requests made during the update aren't lost
+            worldChangedSinceCacheUpdate = false;
+            parent.setNeedsCollisionCacheUpdate(false);
             updatePotentialCollisionCache();
             updateCollisionTasksCache = true;
         }
+        // The collision tasks of this tick all read the world from the same snapshot
+        terrain = getTerrainSnapshots().getSnapshot();
+    }
+
+    /**
+     * @param cacheAge      The time in seconds since the collision cache was last updated.
+     * @param distanceMoved  How far any part of the ship could have moved since then.
+     * @return True if the collision cache could be missing blocks the ship is touching by now.
+     */
+    static boolean isCacheOutdated(double cacheAge, double distanceMoved) {
+        return cacheAge > MAX_CACHE_AGE || distanceMoved > CACHE_UPDATE_DISTANCE;
+    }
+
+    private TerrainSnapshotController getTerrainSnapshots() {
+        return ValkyrienUtils.getServerShipManager(worldObj).getTerrainSnapshots();
     }
 
-    public void splitIntoCollisionTasks(List<ShipCollisionTask> toAdd) {
-        if (updateCollisionTasksCache) {
+    /**
+     * Splits the potential hits into collision tasks and adds them to toAdd. How many potential
+     * hits each task checks is picked by a {@link CollisionTaskSizer}, from how many threads there
+     * are and how long checking a potential hit took in previous ticks.
+     *
+     * @param parallelism The number of threads the tasks will be run on.
+     */
+    public void splitIntoCollisionTasks(List<ShipCollisionTask> toAdd, int parallelism) {
+        contactCount = 0;
+        contactCache.nextStep();
+        taskSizer.recordTick(lastTickPotentialHits, lastTickTaskNanos);
+        lastTickTaskNanos = 0;
+
+        int size = getCachedPotentialHitSize();
+        lastTickPotentialHits = size;
+        int taskSize = taskSizer.getTaskSize(size, parallelism);
+        if (updateCollisionTasksCache || taskSize != collisionTaskSize) {
             tasks.clear();
             int index = 0;
-            int size = cachedPotentialHits.size();
             while (index < size) {
-                ShipCollisionTask task = new ShipCollisionTask(this, index);
-                index += ShipCollisionTask.MAX_TASKS_TO_CHECK;
+                ShipCollisionTask task = new ShipCollisionTask(this, index, taskSize);
+                index += taskSize;
                 tasks.add(task);
             }
+            collisionTaskSize = taskSize;
             updateCollisionTasksCache = false;
         }
-        cachedPotentialHits.shuffle(rand);
         toAdd.addAll(tasks);
     }
 
-    public void processCollisionTask(ShipCollisionTask task) {
-        MutableBlockPos inWorldPos = new MutableBlockPos();
-        MutableBlockPos inLocalPos = new MutableBlockPos();
+    /**
+     * @return True if the collision tasks of this tick are so quick that handing them to other
+     * threads would cost more than running them on the calling thread.
+     */
+    public boolean shouldRunCollisionTasksInline() {
+        return taskSizer.shouldRunInline(getCachedPotentialHitSize());
+    }
 
+    /**
+     * Adds the contacts found by task to the contacts solved by {@link #solveContacts()}.
+     */
+    public void processCollisionTask(ShipCollisionTask task) {
         Iterator<CollisionInformationHolder> collisionIterator = task
             .getCollisionInformationIterator();
 
         while (collisionIterator.hasNext()) {
             CollisionInformationHolder info = collisionIterator.next();
-            inWorldPos.setPos(info.inWorldX, info.inWorldY, info.inWorldZ);
-            inLocalPos.setPos(info.inLocalX, info.inLocalY, info.inLocalZ);
-            handleActualCollision(info.collider, inWorldPos, inLocalPos, info.inWorldState,
-                info.inLocalState);
+            addContacts(info);
+            contactCount++;
         }
-
-        /*
-         * for (CollisionInformationHolder info :
-         * task.getCollisionInformationGenerated()) { inWorldPos.setPos(info.inWorldX,
-         * info.inWorldY, info.inWorldZ); inLocalPos.setPos(info.inLocalX,
-         * info.inLocalY, info.inLocalZ); handleActualCollision(info.collider,
-         * inWorldPos, inLocalPos, info.inWorldState, info.inLocalState); }
-         */
+        lastTickTaskNanos += task.getComputeTimeNano();
 
         task.getCollisionInformationGenerated().clear();
     }
 
-
-    // Takes the collision data along all axes generated prior, and creates the
-    // ideal value that is to be followed
-    private boolean handleActualCollision(PhysPolygonCollider collider, BlockPos inWorldPos,
-        BlockPos inLocalPos,
-        IBlockState inWorldState, IBlockState inLocalState) {
-        PhysCollisionObject toCollideWith = collider.collisions[1];
-
-        if (toCollideWith.penetrationDistance > AXIS_TOLERANCE
-            || toCollideWith.penetrationDistance < -AXIS_TOLERANCE) {
-            toCollideWith = collider.collisions[collider.minDistanceIndex];
+    // Turns the two contact points of a collision into contacts for the solver
+    private void addContacts(CollisionInformationHolder info) {
+        Vector3dc axis = info.collisionNormal;
+        if (info.penetrationDistance == 0) {
+            // No way to tell which way to push
+            return;
         }
-
-        Vector3dc[] collisionPoints = PolygonCollisionPointFinder
-            .getPointsOfCollisionForPolygons(toCollideWith);
-
-        double impulseApplied = 1.0 / collisionPoints.length;;
-
-        for (Vector3dc collisionPos : collisionPoints) {
-            Vector3d inBody = new Vector3d(
-                    collisionPos.x() - parent.getShipTransform().getPosX(),
-                    collisionPos.y() - parent.getShipTransform().getPosY(),
-                    collisionPos.z() - parent.getShipTransform().getPosZ());
-            Vector3d momentumAtPoint = calculator
-                .getVelocityAtPoint(inBody);
-            Vector3dc axis = toCollideWith.collision_normal;
-            Vector3d offsetVector = toCollideWith.getResponse();
-            calculateCollisionImpulseForce(inBody, momentumAtPoint, axis, offsetVector, false,
-                false, impulseApplied);
+        for (int i = 0; i < 2; i++) {
+            boolean isTop = i == 0;
+            ContactCache.Contact contact = contactCache.getContact(info, isTop);
+            contact.inBody.set(
+                (isTop ? info.topX : info.bottomX) - parent.getShipTransform().getPosX(),
+                (isTop ? info.topY : info.bottomY) - parent.getShipTransform().getPosY(),
+                (isTop ? info.topZ : info.bottomZ) - parent.getShipTransform().getPosZ());
+            // The direction that pushes the ship out of the world block
+            axis.mul(info.penetrationDistance > 0 ? -1 : 1, contact.pushDirection);
+            // Force all collision to move in the direction towards the in body vector.
+            if (contact.pushDirection.dot(contact.inBody) >= 0) {
+                continue;
+            }
+            // The same contact can be found by more than one collision task
+            if (contactCache.beginSolving(contact, WARM_START_FACTOR)) {
+                contact.axis = axis;
+                solverContacts.add(contact);
+            }
         }
-
-        return false;
     }
 
-    // Finally, the end of all this spaghetti code! This step takes all of the math
-    // generated before, and it directly adds the result to Ship velocities
-    private void calculateCollisionImpulseForce(Vector3dc inBody,
-                                                Vector3dc velocityAtPointOfCollision,
-                                                Vector3dc axis,
-                                                Vector3dc offsetVector,
-                                                boolean didBlockBreakInShip,
-                                                boolean didBlockBreakInWorld,
-                                                double impulseApplied) {
-        Vector3d firstCross = inBody.cross(axis, new Vector3d());
-
-        calculator.getPhysInvMOITensor().transform(firstCross);
-
-        Vector3d secondCross = firstCross.cross(inBody);
+    /**
+     * Solves all the contacts added since the last physics tick together, using projected
+     * Gauss-Seidel. Each iteration goes over every contact and corrects its impulse so that the
+     * contact stops closing, while keeping the total impulse of each contact from pulling. Then it
+     * corrects the friction of the contact so that it stops sliding, as far as its total impulse
+     * allows.
+     */
+    public void solveContacts() {
+        for (ContactCache.Contact contact : solverContacts) {
+            prepareContact(contact);
+        }
+        // Only apply the warm starts once we know how fast every contact was closing
+        for (ContactCache.Contact contact : solverContacts) {
+            warmStartFriction(contact);
+            if (contact.accumulatedImpulse > 0) {
+                Vector3d warmStartImpulse = contact.pushDirection
+                    .mul(contact.accumulatedImpulse, new Vector3d())
+                    .add(contact.accumulatedFriction);
+                applyImpulse(contact.inBody, warmStartImpulse);
+            }
+        }
+        for (int iteration = 0; iteration < VSConfig.contactSolverIterations; iteration++) {
+            for (ContactCache.Contact contact : solverContacts) {
+                calculateCollisionImpulseForce(contact);
+                calculateFrictionImpulse(contact);
+            }
+        }
+        solverContacts.clear();
+    }
 
-        double impulseMagnitude = -velocityAtPointOfCollision.dot(axis)
-            / (calculator.getInvMass() + secondCross.dot(axis));
+    private void prepareContact(ContactCache.Contact contact) {
+        contact.normalMass = getMassAlong(contact.inBody, contact.axis);
 
         // Below this speed our collision coefficient of restitution is zero.
         final double slopR = .5D;
-        double collisionSpeed = Math.abs(velocityAtPointOfCollision.dot(axis));
-        if (collisionSpeed > slopR) {
-            impulseMagnitude *= (1 + COEFFICIENT_OF_RESTITUTION);
+        double collisionVelocity = calculator.getVelocityAtPoint(contact.inBody).dot(contact.axis);
+        if (Math.abs(collisionVelocity) > slopR) {
+            contact.restitutionVelocity = COEFFICIENT_OF_RESTITUTION * collisionVelocity;
         } else {
             // TODO: Need to reduce this value by some factor
-            // impulseMagnitude *= .5D;
+            contact.restitutionVelocity = 0;
         }
+    }
 
-        Vector3d collisionImpulseForce = axis.mul(impulseMagnitude, new Vector3d());
-
-        // This is just an optimized way to add this force as quickly as possible.
-        // Added collisionImpulseForce.dot(inBody) > 0 to force all collision to move in
-        // the direction towards the in body vector.
-        if (collisionImpulseForce.dot(offsetVector) < 0 && collisionImpulseForce.dot(inBody) < 0) {
-            // collisionImpulseForce.multiply(1.8D);
-            double collisionVelocity = velocityAtPointOfCollision.dot(axis);
+    // Finally, the end of all this spaghetti code! This step takes all of the math
+    // generated before, and it directly adds the result to Ship velocities
+    private void calculateCollisionImpulseForce(ContactCache.Contact contact) {
+        Vector3d velocityAtPointOfCollision = calculator.getVelocityAtPoint(contact.inBody);
+
+        double impulseMagnitude = -(velocityAtPointOfCollision.dot(contact.axis)
+            + contact.restitutionVelocity) * contact.normalMass;
+
+        // Contacts can only ever push, so the total impulse of this contact can't go below zero.
+        // This lets the solver take back impulse that turned out to be too much.
+        double pushImpulse = impulseMagnitude * contact.axis.dot(contact.pushDirection);
+        double oldAccumulatedImpulse = contact.accumulatedImpulse;
+        contact.accumulatedImpulse = Math.max(0, oldAccumulatedImpulse + pushImpulse);
+        double impulseToApply = contact.accumulatedImpulse - oldAccumulatedImpulse;
+        if (impulseToApply == 0) {
+            return;
+        }
 
-            addFrictionToNormalForce(velocityAtPointOfCollision, collisionImpulseForce, inBody);
-            calculator.getLinearVelocity().add(collisionImpulseForce.mul(calculator.getInvMass(), new Vector3d()));
-            Vector3d thirdCross = inBody.cross(collisionImpulseForce, new Vector3d());
+        applyImpulse(contact.inBody, contact.pushDirection.mul(impulseToApply, new Vector3d()));
+    }
 
-            calculator.getPhysInvMOITensor().transform(thirdCross);
+    /**
+     * Corrects the friction impulse of contact so that the contact stops sliding, the same way
+     * {@link #calculateCollisionImpulseForce(ContactCache.Contact)} corrects the push. The total
+     * friction impulse of a contact is kept below {@link #KINETIC_FRICTION_COEFFICIENT} times its
+     * total push impulse, so taking back push impulse takes back friction too.
+     */
+    private void calculateFrictionImpulse(ContactCache.Contact contact) {
+        // The velocity of the contact point along the contact surface
+        Vector3d slidingVelocity = calculator.getVelocityAtPoint(contact.inBody);
+        slidingVelocity.fma(-slidingVelocity.dot(contact.pushDirection), contact.pushDirection);
+        double slidingSpeed = slidingVelocity.length();
+
+        Vector3d newAccumulatedFriction = new Vector3d(contact.accumulatedFriction);
+        if (slidingSpeed > PhysicsCalculations.EPSILON) {
+            Vector3d slidingDirection = slidingVelocity.div(slidingSpeed);
+            // The impulse needed to stop the contact from sliding
+            newAccumulatedFriction.fma(-slidingSpeed * getMassAlong(contact.inBody, slidingDirection),
+                slidingDirection);
+        }
+        clampFriction(contact, newAccumulatedFriction);
 
-            calculator.getAngularVelocity().add(thirdCross, calculator.getAngularVelocity());
+        Vector3d impulseToApply = newAccumulatedFriction.sub(contact.accumulatedFriction, new Vector3d());
+        contact.accumulatedFriction.set(newAccumulatedFriction);
+        if (impulseToApply.lengthSquared() != 0) {
+            applyImpulse(contact.inBody, impulseToApply);
         }
     }
 
-    // Applies the friction force generated by the collision.
-    // The magnitude of this vector must be adjusted to minimize energy
-    private void addFrictionToNormalForce(Vector3dc momentumAtPoint, Vector3d impulseVector, Vector3dc inBody) {
-        Vector3d contactNormal = new Vector3d(impulseVector);
-        contactNormal.normalize();
-
-        Vector3d frictionVector = new Vector3d(momentumAtPoint);
-        frictionVector.normalize();
-        frictionVector.mul(impulseVector.length() * KINETIC_FRICTION_COEFFICIENT);
+    /**
+     * Makes the friction carried over from the last step lie along the contact surface of this
+     * step, and fit the push carried over.
+     */
+    private void warmStartFriction(ContactCache.Contact contact) {
+        Vector3d friction = contact.accumulatedFriction;
+        friction.fma(-friction.dot(contact.pushDirection), contact.pushDirection);
+        clampFriction(contact, friction);
+    }
 
-        if (frictionVector.dot(momentumAtPoint) > 0) {
-            frictionVector.mul(-1D);
+    // Shortens friction so that it is at most KINETIC_FRICTION_COEFFICIENT times the push of contact
+    private static void clampFriction(ContactCache.Contact contact, Vector3d friction) {
+        double maxFriction = KINETIC_FRICTION_COEFFICIENT * contact.accumulatedImpulse;
+        double frictionLength = friction.length();
+        if (frictionLength > maxFriction) {
+            if (maxFriction == 0) {
+                friction.zero();
+            } else {
+                friction.mul(maxFriction / frictionLength);
+            }
         }
+    }
 
-        // Remove all friction components along the impulse vector
-        double frictionImpulseDot = frictionVector.dot(contactNormal);
-        Vector3d toRemove = contactNormal.mul(frictionImpulseDot, new Vector3d());
-        frictionVector.sub(toRemove);
-
-        double inertiaScalarAlongAxis = parent.getPhysicsCalculations()
-            .getInertiaAlongRotationAxis();
-        // The change in velocity vector
-        Vector3dc initialVelocity = parent.getPhysicsCalculations().getLinearVelocity();
-        // Don't forget to multiply by delta t
-        Vector3d deltaVelocity = new Vector3d(frictionVector);
-        deltaVelocity.mul(parent.getPhysicsCalculations().getInvMass() * parent.getPhysicsCalculations()
-                .getDragForPhysTick());
-
-        double A = initialVelocity.lengthSquared();
-        double B = 2 * initialVelocity.dot(deltaVelocity);
-        double C = deltaVelocity.lengthSquared();
-
-        Vector3d initialAngularVelocity = new Vector3d(parent.getPhysicsCalculations().getAngularVelocity());
-        Vector3d deltaAngularVelocity = inBody.cross(frictionVector, new Vector3d());
-        // This might need to be 1 / inertiaScalarAlongAxis
-        deltaAngularVelocity.mul(parent.getPhysicsCalculations().getDragForPhysTick() / inertiaScalarAlongAxis);
-
-        double D = initialAngularVelocity.lengthSquared();
-        double E = 2 * deltaAngularVelocity.dot(initialAngularVelocity);
-        double F = deltaAngularVelocity.lengthSquared();
-
-        // This is tied to PhysicsCalculations line 430
-        if (initialAngularVelocity.lengthSquared() < .05 && initialVelocity.lengthSquared() < .05) {
-            // Remove rotational friction if we are rotating slow enough
-            D = E = F = 0;
-        }
+    /**
+     * @return The impulse along direction at inBody needed to change the velocity along direction
+     * at inBody by 1.
+     */
+    private double getMassAlong(Vector3dc inBody, Vector3dc direction) {
+        Vector3d firstCross = inBody.cross(direction, new Vector3d());
 
-        // The coefficients of energy as a function of energyScaleFactor in the form (A
-        // + B * k + c * k^2)
-        double firstCoefficient =
-            A * parent.getPhysicsCalculations().getMass() + D * inertiaScalarAlongAxis;
-        double secondCoefficient =
-            B * parent.getPhysicsCalculations().getMass() + E * inertiaScalarAlongAxis;
-        double thirdCoefficient =
-            C * parent.getPhysicsCalculations().getMass() + F * inertiaScalarAlongAxis;
+        calculator.getPhysInvMOITensor().transform(firstCross);
 
-        double scaleFactor = -secondCoefficient / (thirdCoefficient * 2);
+        Vector3d secondCross = firstCross.cross(inBody);
 
-        if (new Double(scaleFactor).isNaN()) {
-            scaleFactor = 0;
-        } else {
-            scaleFactor = Math.max(0, Math.min(scaleFactor, 1));
-            frictionVector.mul(scaleFactor);
-        }
+        return 1 / (calculator.getInvMass() + secondCross.dot(direction));
+    }
+
+    // This is just an optimized way to add this force as quickly as possible.
+    private void applyImpulse(Vector3dc inBody, Vector3dc impulse) {
+        calculator.getLinearVelocity().add(impulse.mul(calculator.getInvMass(), new Vector3d()));
+        Vector3d thirdCross = inBody.cross(impulse, new Vector3d());
 
-        // System.out.println(scaleFactor);
-        // ===== Friction Scaling Code End =====
+        calculator.getPhysInvMOITensor().transform(thirdCross);
 
-        impulseVector.add(frictionVector);
+        calculator.getAngularVelocity().add(thirdCross, calculator.getAngularVelocity());
     }
 
     // TODO: The greatest physics lag starts here.
     private void updatePotentialCollisionCache() {
-        ShipTransform currentPhysicsTransform = parent
-            .getShipTransformationManager()
-            .getCurrentPhysicsTransform();
-
         AxisAlignedBB shipBB = parent.getShipBB().grow(3);
 
         // Use the physics tick collision box instead of the game tick collision box.
@@ -315,18 +375,16 @@ public class WorldPhysicsCollider {
                 calculator.getLinearVelocity().z * calculator.getPhysicsTimeDeltaPerPhysTick() * 5);
 
         ticksSinceCacheUpdate = 0D;
+        distanceSinceCacheUpdate = 0D;
         // This is being used to occasionally offset the collision cache update, in the
         // hopes this will prevent multiple ships from all updating
         // in the same tick
         if (Math.random() > .5) {
             ticksSinceCacheUpdate -= .05D;
         }
-        int oldSize = cachedPotentialHits.size();
-        // Resets the potential hits array in O(1) time! Isn't that something.
-        // cachedPotentialHits.resetQuick();
-        cachedPotentialHits.clear();
         // Ship is outside of world blockSpace, just skip this all togvalkyrium
         if (collisionBB.maxY < 0 || collisionBB.minY > 255) {
+            solidBlockCache.clear();
             return;
         }
 
@@ -336,319 +394,191 @@ public class WorldPhysicsCollider {
             collisionBB.minZ);
         BlockPos max = new BlockPos(collisionBB.maxX, Math.min(collisionBB.maxY, 255),
             collisionBB.maxZ);
-        centerPotentialHit = new BlockPos((min.getX() + max.getX()) / 2D,
-            (min.getY() + max.getY()) / 2D,
-            (min.getZ() + max.getZ()) / 2D);
 
-        ChunkCache cache = parent.getCachedSurroundingChunks();
-
-        if (cache == null) {
-            System.err.println(
-                "VS Cached Surrounding Chunks was null! This is going to cause catastophric terrible events!!");
+        if (max.getX() - min.getX() >= SpatialDetector.maxRange
+            || max.getZ() - min.getZ() >= SpatialDetector.maxRange) {
+            // Sanity check; don't execute the rest of the code because we'll just freeze the physics thread.
+            solidBlockCache.clear();
             return;
         }
 
-        int chunkMinX = min.getX() >> 4;
-        int chunkMaxX = (max.getX() >> 4) + 1;
-        int chunkMinZ = min.getZ() >> 4;
-        int chunkMaxZ = (max.getZ() >> 4) + 1;
-        // long startTime = System.nanoTime();
-
-        int minX = min.getX();
-        int minY = min.getY();
-        int minZ = min.getZ();
-        int maxX = max.getX();
-        int maxY = max.getY();
-        int maxZ = max.getZ();
-
-        // More multithreading!
-        if (parent.getBlockPositions().size() > 100) {
-            List<Triple<Integer, Integer, TIntList>> tasks = new ArrayList<>();
-
-            for (int chunkX = chunkMinX; chunkX < chunkMaxX; chunkX++) {
-                for (int chunkZ = chunkMinZ; chunkZ < chunkMaxZ; chunkZ++) {
-                    tasks.add(new ImmutableTriple<>(chunkX, chunkZ, new TIntArrayList()));
-                }
-            }
-
-            Consumer<Triple<Integer, Integer, TIntList>> consumer = i -> { // i is a Tuple<Integer, Integer>
-                // updateCollisionCacheParrallel(cache, cachedPotentialHits, i.getFirst(),
-                // i.getSecond(), minX, minY, minZ, maxX, maxY, maxZ);
-                updateCollisionCacheSequential(cache, i.getLeft(), i.getMiddle(), minX, minY, minZ,
-                    maxX, maxY, maxZ,
-                    shipBB, i.getRight());
-            };
-            try {
-                tasks.parallelStream().forEach(consumer);
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-
-            tasks.forEach(task -> cachedPotentialHits.addAll(task.getRight()));
-        } else {
-            // Cast to double to avoid overflow errors
-            double size = ((double) (chunkMaxX - chunkMinX)) * ((double) (chunkMaxZ - chunkMinZ));
-            if (size > 300000) {
-                // Sanity check; don't execute the rest of the code because we'll just freeze the physics thread.
-                return;
-            }
-            // TODO: VS thread freezes here.
-            for (int chunkX = chunkMinX; chunkX < chunkMaxX; chunkX++) {
-                for (int chunkZ = chunkMinZ; chunkZ < chunkMaxZ; chunkZ++) {
-                    updateCollisionCacheSequential(cache, chunkX, chunkZ, minX, minY, minZ, maxX,
-                        maxY, maxZ, shipBB, cachedPotentialHits);
-                }
-            }
+        // Only scans the parts of the world the ship moved into since last time. Every solid block
+        // in the box is a potential hit; which of them are close enough to a ship block to collide
+        // depends on the pose of the ship, so the collision tasks check that every tick.
+        if (!solidBlockCache.update(getTerrainSnapshots(), min.getX(), min.getY(), min.getZ(),
+            max.getX(), max.getY(), max.getZ(),
+            ValkyrienSkiesMod.getPHYSICS_RUNTIME().getCollisionCachePool())) {
+            // Some potential hits are missing, so try again next tick rather than letting the
+            // ship sink into the blocks we missed
+            parent.setNeedsCollisionCacheUpdate(true);
         }
     }
 
-    private void updateCollisionCacheSequential(ChunkCache cache, int chunkX, int chunkZ, int minX,
-        int minY, int minZ,
-        int maxX, int maxY, int maxZ, AxisAlignedBB shipBB, TIntList output) {
-        int arrayChunkX = chunkX - cache.chunkX;
-        int arrayChunkZ = chunkZ - cache.chunkZ;
-
-        if (!(arrayChunkX < 0 || arrayChunkZ < 0 || arrayChunkX > cache.chunkArray.length - 1
-            || arrayChunkZ > cache.chunkArray[0].length - 1)
-            && cache.chunkArray[arrayChunkX][arrayChunkZ] != null) {
-
-            Vector3d temp1 = new Vector3d();
-            Vector3d temp2 = new Vector3d();
-            Vector3d temp3 = new Vector3d();
-
-            Chunk chunk = cache.chunkArray[arrayChunkX][arrayChunkZ];
-            for (int storageY = minY >> 4; storageY <= maxY >> 4; storageY++) {
-                ExtendedBlockStorage extendedblockstorage = chunk.storageArrays[storageY];
-                if (extendedblockstorage != null) {
-                    int minStorageX = chunkX << 4;
-                    int minStorageY = storageY << 4;
-                    int minStorageZ = chunkZ << 4;
-
-                    int maxStorageX = minStorageX + 16;
-                    int maxStorageY = minStorageY + 16;
-                    int maxStorageZ = minStorageZ + 16;
-
-                    IBitOctreeProvider provider = (IBitOctreeProvider) extendedblockstorage.data;
-                    IBitOctree octree = provider.getBitOctree();
-
-                    if (USE_OCTREE_COLLISION) {
-                        for (int levelThree = 0; levelThree < 8; levelThree++) {
-                            int levelThreeIndex = octree.getOctreeLevelThreeIndex(levelThree);
-                            if (octree.getAtIndex(levelThreeIndex)) {
-                                for (int levelTwo = 0; levelTwo < 8; levelTwo++) {
-                                    int levelTwoIndex = octree
-                                        .getOctreeLevelTwoIndex(levelThreeIndex, levelTwo);
-                                    if (octree.getAtIndex(levelTwoIndex)) {
-                                        for (int levelOne = 0; levelOne < 8; levelOne++) {
-                                            int levelOneIndex = octree
-                                                .getOctreeLevelOneIndex(levelTwoIndex, levelOne);
-                                            if (octree.getAtIndex(levelOneIndex)) {
-
-                                                int baseX =
-                                                    ((levelThree % 2) * 8) + ((levelTwo % 2) * 4)
-                                                        + ((levelOne % 2) * 2);
-                                                int baseY = (((levelThree >> 1) % 2) * 8) + (
-                                                    ((levelTwo >> 1) % 2) * 4)
-                                                    + (((levelOne >> 1) % 2) * 2);
-                                                int baseZ = (((levelThree >> 2) % 2) * 8) + (
-                                                    ((levelTwo >> 2) % 2) * 4)
-                                                    + (((levelOne >> 2) % 2) * 2);
-
-                                                int x = baseX + minStorageX;
-                                                int y = baseY + minStorageY;
-                                                int z = baseZ + minStorageZ;
-
-                                                if (x >= minX && x <= maxX && y >= minY && y <= maxY
-                                                    && z >= minZ
-                                                    && z <= maxZ) {
-                                                    checkForCollision(x, y, z, extendedblockstorage,
-                                                        octree, temp1,
-                                                        temp2, temp3, shipBB, output);
-                                                    checkForCollision(x, y, z + 1,
-                                                        extendedblockstorage, octree, temp1,
-                                                        temp2, temp3, shipBB, output);
-                                                    checkForCollision(x, y + 1, z,
-                                                        extendedblockstorage, octree, temp1,
-                                                        temp2, temp3, shipBB, output);
-                                                    checkForCollision(x, y + 1, z + 1,
-                                                        extendedblockstorage, octree,
-                                                        temp1, temp2, temp3, shipBB, output);
-                                                    checkForCollision(x + 1, y, z,
-                                                        extendedblockstorage, octree, temp1,
-                                                        temp2, temp3, shipBB, output);
-                                                    checkForCollision(x + 1, y, z + 1,
-                                                        extendedblockstorage, octree,
-                                                        temp1, temp2, temp3, shipBB, output);
-                                                    checkForCollision(x + 1, y + 1, z,
-                                                        extendedblockstorage, octree,
-                                                        temp1, temp2, temp3, shipBB, output);
-                                                    checkForCollision(x + 1, y + 1, z + 1,
-                                                        extendedblockstorage, octree,
-                                                        temp1, temp2, temp3, shipBB, output);
-                                                }
-                                            }
-                                        }
-                                    }
-                                }
-                            }
-                        }
-                    } else {
-                        for (int x = minStorageX; x < maxStorageX; x++) {
-                            for (int y = minStorageY; y < maxStorageY; y++) {
-                                for (int z = minStorageZ; z < maxStorageZ; z++) {
-                                    checkForCollision(x, y, z, extendedblockstorage, octree, temp1,
-                                        temp2, temp3,
-                                        shipBB, output);
-                                }
-                            }
-                        }
-                    }
-                }
-            }
+    /**
+     * Called by the game thread whenever a block in the world changes, so that the collision cache
+     * doesn't have to rescan the world to notice.
+     */
+    public void onWorldBlockChanged(BlockPos pos) {
+        if (solidBlockCache.onBlockChanged(pos)) {
+            worldChangedSinceCacheUpdate = true;
         }
     }
 
-    private void checkForCollision(int x, int y, int z, ExtendedBlockStorage storage,
-        IBitOctree octree, Vector3d inLocal,
-        Vector3d inBody,
-        Vector3d speedInBody, AxisAlignedBB shipBB, TIntList output) {
-        if (octree.get(x & 15, y & 15, z & 15)) {
-            inLocal.x = x + .5D;
-            inLocal.y = y + .5D;
-            inLocal.z = z + .5D;
-            // TODO: Something
-            // parent.coordTransform.fromGlobalToLocal(inLocal);
-            if (inLocal.x > shipBB.minX && inLocal.x < shipBB.maxX && inLocal.y > shipBB.minY
-                && inLocal.y < shipBB.maxY
-                && inLocal.z > shipBB.minZ && inLocal.z < shipBB.maxZ) {
-                parent.getShipTransformationManager().getCurrentPhysicsTransform()
-                    .transformPosition(inLocal, TransformType.GLOBAL_TO_SUBSPACE);
-
-                inLocal.sub(parent.getCenterCoord(), inBody);
-                // parent.physicsProcessor.setVectorToVelocityAtPoint(inBody, speedInBody);
-                // speedInBody.multiply(-parent.physicsProcessor.getPhysicsTimeDeltaPerGameTick());
-
-                // TODO: This isnt ideal, but we do gain a lot of performance.
-                speedInBody.zero();
-
-                // double RANGE_CHECK = 1;
-
-                int minX, minY, minZ, maxX, maxY, maxZ;
-                if (speedInBody.x > 0) {
-                    minX = MathHelper.floor(inLocal.x - RANGE_CHECK);
-                    maxX = MathHelper.floor(inLocal.x + RANGE_CHECK + speedInBody.x);
-                } else {
-                    minX = MathHelper.floor(inLocal.x - RANGE_CHECK + speedInBody.x);
-                    maxX = MathHelper.floor(inLocal.x + RANGE_CHECK);
-                }
-
-                if (speedInBody.y > 0) {
-                    minY = MathHelper.floor(inLocal.y - RANGE_CHECK);
-                    maxY = MathHelper.floor(inLocal.y + RANGE_CHECK + speedInBody.y);
-                } else {
-                    minY = MathHelper.floor(inLocal.y - RANGE_CHECK + speedInBody.y);
-                    maxY = MathHelper.floor(inLocal.y + RANGE_CHECK);
-                }
+    /**
+     * @return An upper bound of how fast any point of the ship is moving, in blocks per second.
+     */
+    private double getFastestPointSpeed() {
+        AxisAlignedBB shipBB = parent.getShipBB();
+        double radius = .5 * Math.sqrt(
+            (shipBB.maxX - shipBB.minX) * (shipBB.maxX - shipBB.minX)
+                + (shipBB.maxY - shipBB.minY) * (shipBB.maxY - shipBB.minY)
+                + (shipBB.maxZ - shipBB.minZ) * (shipBB.maxZ - shipBB.minZ));
+        return calculator.getLinearVelocity().length()
+            + calculator.getAngularVelocity().length() * radius;
+    }
 
-                if (speedInBody.z > 0) {
-                    minZ = MathHelper.floor(inLocal.z - RANGE_CHECK);
-                    maxZ = MathHelper.floor(inLocal.z + RANGE_CHECK + speedInBody.z);
-                } else {
-                    minZ = MathHelper.floor(inLocal.z - RANGE_CHECK + speedInBody.z);
-                    maxZ = MathHelper.floor(inLocal.z + RANGE_CHECK);
-                }
+    /**
+     * Continuous collision detection. Sweeps the boxes the ship blocks merge into along
+     * displacement, without rotating them, and finds the first time any of them would hit a solid
+     * world block. Only worth doing when the ship moves far enough in a single physics tick to pass
+     * through a block, see {@link #CCD_DISPLACEMENT_THRESHOLD}.
+     *
+     * @return The fraction of displacement the ship can move before hitting the world, 1 if it
+     * doesn't hit anything.
+     */
+    public double sweepForTimeOfImpact(Vector3dc displacement) {
+        SurfaceVoxelSet surfaceVoxels = parent.getSurfaceVoxels();
+        if (surfaceVoxels == null) {
+            return 1;
+        }
+        TerrainSnapshot snapshot = getTerrainSnapshots().getSnapshot();
+        double timeOfImpact = sweepForTimeOfImpact(surfaceVoxels,
+            parent.getShipTransformationManager().getCurrentPhysicsTransform(),
+            parent.getShipTransformationManager().normals, snapshot::isSolid, displacement);
+
+        if (timeOfImpact < 1) {
+            // Make sure the block we're about to hit is in the collision cache next tick
+            parent.setNeedsCollisionCacheUpdate(true);
+        }
+        return timeOfImpact;
+    }
 
-                minY = Math.min(255, Math.max(minY, 0));
-                maxY = Math.min(255, Math.max(maxY, 0));
-
-                // int localX = MathHelper.floor(inLocal.X);
-                // int localY = MathHelper.floor(inLocal.Y);
-                // int localZ = MathHelper.floor(inLocal.Z);
-
-                // tooTiredToName(localX, localY, localZ, x, y, z);
-                // if (false)
-                // maxX = Math.min(maxX, minX << 4);
-                // maxZ = Math.min(maxZ, minZ << 4);
-
-                Chunk chunkIn00 = parent.getChunkClaim().containsChunk(minX >> 4, minZ >> 4) ? parent.getChunkAt(minX >> 4, minZ >> 4) : null;
-                Chunk chunkIn01 = parent.getChunkClaim().containsChunk(minX >> 4, maxZ >> 4) ? parent.getChunkAt(minX >> 4, maxZ >> 4) : null;
-                Chunk chunkIn10 = parent.getChunkClaim().containsChunk(maxX >> 4, minZ >> 4) ? parent.getChunkAt(maxX >> 4, minZ >> 4) : null;
-                Chunk chunkIn11 = parent.getChunkClaim().containsChunk(maxX >> 4, maxZ >> 4) ? parent.getChunkAt(maxX >> 4, maxZ >> 4) : null;
-
-                breakThisLoop:
-                for (int localX = minX; localX < maxX; localX++) {
-                    for (int localZ = minZ; localZ < maxZ; localZ++) {
-                        Chunk theChunk;
-                        if (localX >> 4 == minX >> 4) {
-                            if (localZ >> 4 == minZ >> 4) {
-                                theChunk = chunkIn00;
-                            } else {
-                                theChunk = chunkIn01;
-                            }
-                        } else {
-                            if (localZ >> 4 == minZ >> 4) {
-                                theChunk = chunkIn10;
-                            } else {
-                                theChunk = chunkIn11;
-                            }
-                        }
-                        if (theChunk == null) {
-                            // No collision here
+    /**
+     * Does the work of {@link #sweepForTimeOfImpact(Vector3dc)} for the ship blocks in
+     * surfaceVoxels at transform, against the world blocks isSolid says are solid.
+     */
+    static double sweepForTimeOfImpact(SurfaceVoxelSet surfaceVoxels, ShipTransform transform,
+        Vector3dc[] axes, VSIterationUtils.IntTernaryPredicate isSolid, Vector3dc displacement) {
+        BlockPolygonCollider sweepCollider = new BlockPolygonCollider();
+        Vector3d corner = new Vector3d();
+        double[] timeOfImpact = {1};
+
+        surfaceVoxels.forEachCuboid((minX, minY, minZ, maxX, maxY, maxZ) -> {
+            double shipMinX = minX + CCD_SKIN, shipMinY = minY + CCD_SKIN, shipMinZ = minZ + CCD_SKIN;
+            double shipMaxX = maxX + 1 - CCD_SKIN, shipMaxY = maxY + 1 - CCD_SKIN, shipMaxZ = maxZ + 1 - CCD_SKIN;
+            // The world blocks the box could touch on the way
+            double sweptMinX = Double.POSITIVE_INFINITY, sweptMinY = Double.POSITIVE_INFINITY, sweptMinZ = Double.POSITIVE_INFINITY;
+            double sweptMaxX = Double.NEGATIVE_INFINITY, sweptMaxY = Double.NEGATIVE_INFINITY, sweptMaxZ = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < 8; i++) {
+                corner.set((i & 1) == 0 ? shipMinX : shipMaxX, (i & 2) == 0 ? shipMinY : shipMaxY,
+                    (i & 4) == 0 ? shipMinZ : shipMaxZ);
+                transform.transformPosition(corner, TransformType.SUBSPACE_TO_GLOBAL);
+                sweptMinX = Math.min(sweptMinX, corner.x + Math.min(0, displacement.x()));
+                sweptMinY = Math.min(sweptMinY, corner.y + Math.min(0, displacement.y()));
+                sweptMinZ = Math.min(sweptMinZ, corner.z + Math.min(0, displacement.z()));
+                sweptMaxX = Math.max(sweptMaxX, corner.x + Math.max(0, displacement.x()));
+                sweptMaxY = Math.max(sweptMaxY, corner.y + Math.max(0, displacement.y()));
+                sweptMaxZ = Math.max(sweptMaxZ, corner.z + Math.max(0, displacement.z()));
+            }
+            int blockMinX = MathHelper.floor(sweptMinX), blockMaxX = MathHelper.floor(sweptMaxX);
+            int blockMinY = Math.max(0, MathHelper.floor(sweptMinY));
+            int blockMaxY = Math.min(255, MathHelper.floor(sweptMaxY));
+            int blockMinZ = MathHelper.floor(sweptMinZ), blockMaxZ = MathHelper.floor(sweptMaxZ);
+            if ((long) (blockMaxX - blockMinX + 1) * (blockMaxY - blockMinY + 1)
+                * (blockMaxZ - blockMinZ + 1) > CCD_MAX_BLOCKS_PER_BOX) {
+                return;
+            }
+            for (int x = blockMinX; x <= blockMaxX; x++) {
+                for (int y = blockMinY; y <= blockMaxY; y++) {
+                    for (int z = blockMinZ; z <= blockMaxZ; z++) {
+                        if (!isSolid.test(x, y, z)) {
                             continue;
                         }
-                        for (int localY = minY; localY < maxY; localY++) {
-                            boolean result = checkForCollisionFast(theChunk, localX, localY,
-                                localZ, x, y, z, output);
-                            if (result) {
-                                break breakThisLoop;
-                            }
-
-                            /*
-                             * if (false) // TODO: This code isn't thread safe. try { boolean result =
-                             * tooTiredToName(localX, localY, localZ, x, y, z); if (result) { break
-                             * breakThisLoop; } } catch (Exception e) { e.printStackTrace(); }
-                             */
+                        double hitTime = sweepCollider.sweep(shipMinX, shipMinY, shipMinZ,
+                            shipMaxX, shipMaxY, shipMaxZ, x, y, z, transform, axes, displacement);
+                        if (hitTime >= 0 && hitTime < timeOfImpact[0]) {
+                            timeOfImpact[0] = hitTime;
                         }
                     }
                 }
             }
-        }
+        });
+        return timeOfImpact[0];
     }
 
-    private boolean checkForCollisionFast(final Chunk chunk, final int localX, final int localY,
-        final int localZ,
-        final int x, final int y, final int z, final TIntList output) {
-        if (chunk.storageArrays[localY >> 4] != null) {
-            IBitOctreeProvider provider = (IBitOctreeProvider) chunk.storageArrays[localY >> 4]
-                .getData();
-            IBitOctree octreeInLocal = provider.getBitOctree();
-            if (octreeInLocal.get(localX & 15, localY & 15, localZ & 15)) {
-                int hash = SpatialDetector.getHashWithRespectTo(x, y, z, centerPotentialHit);
-                // Sometimes we end up adding to the hits array in multiple threads at once,
-                // crashing the physics.
-                try {
-                    output.add(hash);
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
-                return true;
-                // break outermostloop;
-            }
-            // }
+    /**
+     * Returns true if there's a ship block exposed to the world inside the given box of ship
+     * coordinates. The bounds are inclusive, and y is clamped to the world height. Blocks buried
+     * inside the ship can't touch the world, so they're ignored. Empty parts of the box are skipped
+     * using octrees, so this is much faster than checking every block in the box.
+     */
+    public boolean anyShipBlockInBox(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        SurfaceVoxelSet surfaceVoxels = parent.getSurfaceVoxels();
+        if (surfaceVoxels == null) {
+            return false;
         }
-        return false;
+        return surfaceVoxels.anySurfaceInBox(minX, Math.max(minY, 0), minZ, maxX,
+            Math.min(maxY, 255), maxZ);
+    }
+
+    public TerrainSnapshot getTerrain() {
+        return terrain;
     }
 
     public BlockPos getCenterPotentialHit() {
-        return centerPotentialHit;
+        return solidBlockCache.getCenter();
     }
 
     public int getCachedPotentialHit(int offset) {
-        return cachedPotentialHits.get(offset);
+        return solidBlockCache.getSolidBlocks().get(offset);
     }
 
     public int getCachedPotentialHitSize() {
-        return cachedPotentialHits.size();
+        return solidBlockCache.getSolidBlocks().size();
+    }
+
+    /**
+     * Sets whether this physics tick uses coarse collision. Coarse collision only tests each world
+     * block against the single ship block nearest to it, rather than against all 27 around it. It
+     * is much cheaper and good enough to keep ships nobody is looking at out of the ground.
+     */
+    public void setCoarseCollision(boolean coarseCollision) {
+        this.coarseCollision = coarseCollision;
+    }
+
+    public boolean isCoarseCollision() {
+        return coarseCollision;
+    }
+
+    /**
+     * @return The number of collision tasks the potential hits are currently split into.
+     */
+    public int getCollisionTaskCount() {
+        return tasks.size();
+    }
+
+    /**
+     * @return The current estimate of how long checking a single potential hit takes.
+     */
+    public double getNanosPerPotentialHit() {
+        return taskSizer.getNanosPerHit();
+    }
+
+    /**
+     * @return The number of collisions between the ship and the world processed this physics tick.
+     */
+    public int getContactCount() {
+        return contactCount;
     }
 
     public PhysicsObject getParent() {
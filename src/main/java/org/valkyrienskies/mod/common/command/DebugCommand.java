@@ -1,5 +1,7 @@
 package org.valkyrienskies.mod.common.command;
 
+import java.util.Comparator;
+import java.util.List;
 import java.util.stream.Collectors;
 import javax.inject.Inject;
 import net.minecraft.client.Minecraft;
@@ -7,12 +9,24 @@ import net.minecraft.command.ICommandSender;
 import net.minecraft.util.text.TextComponentString;
 import net.minecraft.util.text.TextComponentTranslation;
 import net.minecraft.world.World;
+import org.valkyrienskies.mod.common.ValkyrienSkiesMod;
 import org.valkyrienskies.mod.common.command.DebugCommand.GetClientPhysicsObjects;
+import org.valkyrienskies.mod.common.command.DebugCommand.PhysicsProfile;
+import org.valkyrienskies.mod.common.command.autocompleters.WorldAutocompleter;
 import org.valkyrienskies.mod.common.ships.QueryableShipData;
+import org.valkyrienskies.mod.common.ships.ship_world.IHasShipManager;
+import org.valkyrienskies.mod.common.ships.ship_world.WorldServerShipManager;
 import org.valkyrienskies.mod.common.util.ValkyrienUtils;
+import org.valkyrienskies.mod.common.util.multithreaded.BoundedWorkerPool;
+import org.valkyrienskies.mod.common.util.multithreaded.WorldPhysicsTicker;
+import org.valkyrienskies.mod.common.util.profiling.LatencyHistogram;
+import org.valkyrienskies.mod.common.util.profiling.PhysicsTickProfiler;
+import org.valkyrienskies.mod.common.util.profiling.PhysicsTickProfiler.PhysicsPhase;
+import org.valkyrienskies.mod.common.util.profiling.PhysicsTickProfiler.ShipProfile;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.HelpCommand;
 import picocli.CommandLine.Model;
+import picocli.CommandLine.Option;
 import picocli.CommandLine.Spec;
 
 
@@ -20,7 +34,7 @@ import picocli.CommandLine.Spec;
     synopsisSubcommandLabel = "COMMAND", mixinStandardHelpOptions = true,
     usageHelpWidth = 55,
     subcommands = {
-        HelpCommand.class, GetClientPhysicsObjects.class
+        HelpCommand.class, GetClientPhysicsObjects.class, PhysicsProfile.class
     })
 public class DebugCommand implements Runnable {
 
@@ -77,4 +91,85 @@ public class DebugCommand implements Runnable {
         }
     }
 
+    @Command(name = "physics-profile")
+    static class PhysicsProfile implements Runnable {
+
+        @Inject
+        private ICommandSender sender;
+
+        @Option(names = {"--world", "-w"}, completionCandidates = WorldAutocompleter.class)
+        private World world;
+
+        @Option(names = {"--ships", "-s"}, description = "How many of the slowest ships to show")
+        private int shipsToShow = 5;
+
+        @Option(names = {"--reset", "-r"}, description = "Clear the recorded timings")
+        private boolean reset;
+
+        @Override
+        public void run() {
+            if (world == null) {
+                world = sender.getEntityWorld();
+            }
+
+            WorldPhysicsTicker worldPhysicsTicker = ((WorldServerShipManager) ((IHasShipManager) world)
+                .getManager()).getPhysicsTicker();
+            if (worldPhysicsTicker == null) {
+                return;
+            }
+            PhysicsTickProfiler profiler = worldPhysicsTicker.getProfiler();
+
+            BoundedWorkerPool collisionCachePool = ValkyrienSkiesMod.getPHYSICS_RUNTIME()
+                .getCollisionCachePool();
+            if (reset) {
+                profiler.reset();
+                collisionCachePool.resetStatistics();
+                sender.sendMessage(new TextComponentString("Physics tick profile reset"));
+                return;
+            }
+
+            sender.sendMessage(new TextComponentString(String.format(
+                "Physics ticks profiled: %d (p50 / p95 / p99 / max, ms)",
+                profiler.getWorldHistogram(PhysicsPhase.TOTAL).snapshot().getTotalCount())));
+            for (PhysicsPhase phase : PhysicsPhase.values()) {
+                sender.sendMessage(new TextComponentString(
+                    formatHistogram(phase.getDisplayName(), profiler.getWorldHistogram(phase))));
+            }
+
+            sender.sendMessage(new TextComponentString(String.format(
+                "%s: %d threads, %.0f%% busy, queue %d (max %d of %d), %d tasks (%d run by the caller)",
+                collisionCachePool.getName(), collisionCachePool.getThreadCount(),
+                collisionCachePool.getUtilisation() * 100, collisionCachePool.getQueueDepth(),
+                collisionCachePool.getMaxQueueDepth(), collisionCachePool.getQueueCapacity(),
+                collisionCachePool.getTasksRun(), collisionCachePool.getTasksRunByCaller())));
+
+            List<ShipProfile> slowestShips = profiler.getShipProfiles()
+                .stream()
+                .sorted(Comparator.comparingLong((ShipProfile profile) -> profile
+                    .getHistogram(PhysicsPhase.TOTAL).snapshot().getPercentile(99)).reversed())
+                .limit(shipsToShow)
+                .collect(Collectors.toList());
+
+            for (ShipProfile shipProfile : slowestShips) {
+                sender.sendMessage(new TextComponentString("Ship " + shipProfile.getShipName()));
+                for (PhysicsPhase phase : PhysicsPhase.values()) {
+                    sender.sendMessage(new TextComponentString(
+                        "  " + formatHistogram(phase.getDisplayName(), shipProfile.getHistogram(phase))));
+                }
+                sender.sendMessage(new TextComponentString(String.format(
+                    "  %s (%d last tick)", formatHistogram("each collision task",
+                        shipProfile.getCollisionTaskHistogram()), shipProfile.getCollisionTaskCount())));
+            }
+        }
+
+        private static String formatHistogram(String name, LatencyHistogram histogram) {
+            LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+            return String.format("%s: %.2f / %.2f / %.2f / %.2f", name,
+                snapshot.getPercentile(50) / 1e6,
+                snapshot.getPercentile(95) / 1e6,
+                snapshot.getPercentile(99) / 1e6,
+                snapshot.getMax() / 1e6);
+        }
+    }
+
 }
@@ -5,17 +5,16 @@ import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.util.text.TextComponentString;
 import net.minecraft.util.text.TextComponentTranslation;
 import net.minecraft.world.World;
+import org.valkyrienskies.mod.common.ValkyrienSkiesMod;
 import org.valkyrienskies.mod.common.command.MainCommand.*;
 import org.valkyrienskies.mod.common.command.autocompleters.ShipNameAutocompleter;
-import org.valkyrienskies.mod.common.command.autocompleters.WorldAutocompleter;
 import org.valkyrienskies.mod.common.ships.QueryableShipData;
 import org.valkyrienskies.mod.common.ships.ShipData;
 import org.valkyrienskies.mod.common.ships.ship_transform.ShipTransform;
-import org.valkyrienskies.mod.common.ships.ship_world.IHasShipManager;
 import org.valkyrienskies.mod.common.ships.ship_world.PhysicsObject;
 import org.valkyrienskies.mod.common.ships.ship_world.WorldServerShipManager;
 import org.valkyrienskies.mod.common.util.ValkyrienUtils;
-import org.valkyrienskies.mod.common.util.multithreaded.VSThread;
+import org.valkyrienskies.mod.common.util.multithreaded.VSPhysicsRuntime;
 import picocli.CommandLine.*;
 import picocli.CommandLine.Model.CommandSpec;
 
@@ -64,6 +63,7 @@ public class MainCommand implements Runnable {
             if (obj != null) {
                 obj.setAttemptToDeconstructShip(true);
                 obj.setShipAligningToGrid(true);
+                obj.getPhysicsCalculations().wakeUp();
 
                 sender.sendMessage(new TextComponentString("That ship is being deconstructed"));
             } else {
@@ -112,24 +112,20 @@ public class MainCommand implements Runnable {
         @Inject
         ICommandSender sender;
 
-        @Option(names = {"--world", "-w"}, completionCandidates = WorldAutocompleter.class)
-        World world;
-
         @Override
         public void run() {
-            if (world == null) {
-                world = sender.getEntityWorld();
-            }
-
-            VSThread worldPhysicsThread = ((WorldServerShipManager) ((IHasShipManager) world)
-                .getManager()).getPhysicsThread();
-
-            if (worldPhysicsThread != null) {
-                long averagePhysTickTimeNano = worldPhysicsThread.getAveragePhysicsTickTimeNano();
-                double ticksPerSecond = 1000000000D / ((double) averagePhysTickTimeNano);
-                double ticksPerSecondTwoDecimals = Math.floor(ticksPerSecond * 100) / 100;
-                sender.sendMessage(new TextComponentString(
-                    "Player world: " + ticksPerSecondTwoDecimals + " physics ticks per second"));
+            // All worlds share the same physics runtime, and so the same physics tick rate.
+            VSPhysicsRuntime physicsRuntime = ValkyrienSkiesMod.getPHYSICS_RUNTIME();
+
+            long averagePhysTickTimeNano = physicsRuntime.getAveragePhysicsTickTimeNano();
+            double ticksPerSecond = 1000000000D / ((double) averagePhysTickTimeNano);
+            double ticksPerSecondTwoDecimals = Math.floor(ticksPerSecond * 100) / 100;
+            sender.sendMessage(new TextComponentString(
+                "Physics: " + ticksPerSecondTwoDecimals + " physics ticks per second"));
+            if (physicsRuntime.getScheduler().isOverloaded()) {
+                sender.sendMessage(new TextComponentString(String.format(
+                    "Physics is overloaded, simulating at %.0f%% speed",
+                    physicsRuntime.getScheduler().getSimulationSpeed() * 100)));
             }
         }
     }
@@ -157,6 +153,11 @@ public class MainCommand implements Runnable {
 
             if (enabledWasSpecified) {
                 shipData.setPhysicsEnabled(enabled);
+                PhysicsObject physicsObject = ValkyrienUtils.getServerShipManager(sender.getEntityWorld())
+                    .getPhysObjectFromUUID(shipData.getUuid());
+                if (physicsObject != null) {
+                    physicsObject.getPhysicsCalculations().wakeUp();
+                }
 
                 if (isPhysicsEnabled == enabled) {
                     sender.sendMessage(new TextComponentString(
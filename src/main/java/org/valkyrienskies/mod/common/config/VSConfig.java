@@ -46,6 +46,15 @@ public class VSConfig extends VSConfigTemplate {
     })
     public static double timeSimulatedPerPhysicsTick = 0.01;
 
+    @Name("Max Physics Catch Up Ticks")
+    @Comment({
+        "If the physics thread falls behind, it will run up to this many physics ticks back-to-back to catch up.",
+        "Time lost beyond that is skipped, and if the server can't keep up at all physics slows down instead.",
+        "Default is 4."
+    })
+    @RangeInt(min = 1, max = 100)
+    public static int maxPhysicsCatchUpTicks = 4;
+
     @Name("Number of Physics Threads")
     @Comment({
         "The number of threads to use for physics",
@@ -56,6 +65,39 @@ public class VSConfig extends VSConfigTemplate {
     @RangeInt(min = 2)
     public static int threadCount = Math.max(2, Runtime.getRuntime().availableProcessors() - 2);
 
+    @Name("Number of Collision Cache Threads")
+    @Comment({
+        "The number of threads used to find the world blocks near big ships, separate from the physics threads.",
+        "Cannot be set at runtime."
+    })
+    @RequiresMcRestart
+    @RangeInt(min = 1)
+    public static int collisionCacheThreadCount = Math.max(1, Runtime.getRuntime().availableProcessors() / 4);
+
+    @Name("Parallel Ship Physics")
+    @Comment({
+        "If true, the physics of different ships in the same world are simulated in parallel on the physics threads.",
+        "If false, only collision detection is done in parallel.",
+        "Default is true."
+    })
+    public static boolean parallelShipPhysics = true;
+
+    @Name("Ship to Ship Collisions")
+    @Comment({
+        "Experimental. If true, the blocks of ships collide with the blocks of other ships.",
+        "Default is false."
+    })
+    public static boolean shipShipCollisions = false;
+
+    @Name("Contact Solver Iterations")
+    @Comment({
+        "How many times the impulses of all the contacts between a ship and the world get refined every physics tick.",
+        "Higher values make ships rest on the ground more stably, but take more time.",
+        "Default is 4."
+    })
+    @RangeInt(min = 1, max = 50)
+    public static int contactSolverIterations = 4;
+
     @Name("Max Detected Ship Size")
     @Comment({
             "The largest size ship a physics infuser will attempt to make.",
@@ -120,6 +162,25 @@ public class VSConfig extends VSConfigTemplate {
     @LangKey("valkyrienskies.general.ship_loading_settings")
     public static final VSConfig.ShipLoadingSettings SHIP_LOADING_SETTINGS = new VSConfig.ShipLoadingSettings();
 
+    @Name("Ship Sleep Settings")
+    @ShortName("shipSleepSettings")
+    @Comment({
+            "Ships that have been resting on something for a while are put to sleep, which skips their physics,",
+            "collision and network updates until something disturbs them."
+    })
+    @LangKey("valkyrienskies.general.ship_sleep_settings")
+    public static final VSConfig.ShipSleepSettings SHIP_SLEEP_SETTINGS = new VSConfig.ShipSleepSettings();
+
+    @Name("Physics Level Of Detail Settings")
+    @ShortName("physicsLodSettings")
+    @Comment({
+            "Ships far from every player are simulated less often, with a proportionally larger time step.",
+            "These settings must obey the following constraint:",
+            "Mid Range Distance <= Far Range Distance"
+    })
+    @LangKey("valkyrienskies.general.physics_lod_settings")
+    public static final VSConfig.PhysicsLodSettings PHYSICS_LOD_SETTINGS = new VSConfig.PhysicsLodSettings();
+
     @Name("Accurate Rain")
     @Comment("Prevents rain from going inside ships. Warning: laggy")
     public static boolean accurateRain = false;
@@ -152,6 +213,58 @@ public class VSConfig extends VSConfigTemplate {
 
     }
 
+    public static class ShipSleepSettings {
+
+        @Name("Enable Ship Sleeping")
+        @Comment("If false, ships are always simulated even when they're not moving.")
+        public boolean enabled = true;
+
+        @Name("Sleep Energy Threshold")
+        @Comment({
+                "Ships with less kinetic energy per kg of mass than this (in J/kg) are considered to be resting.",
+                "Default is 0.02, about the energy of moving at 0.2 m/s."
+        })
+        @RangeDouble(min = 0)
+        public double energyThreshold = .02;
+
+        @Name("Physics Ticks Before Sleeping")
+        @Comment({
+                "A ship must be resting and touching the world for this many consecutive physics ticks before it falls asleep.",
+                "Default is 100, one second."
+        })
+        @RangeInt(min = 1)
+        public int ticksBeforeSleeping = 100;
+
+    }
+
+    public static class PhysicsLodSettings {
+
+        @Name("Enable Physics Level Of Detail")
+        @Comment("If false, every loaded ship is simulated every physics tick.")
+        public boolean enabled = true;
+
+        @Name("Mid Range Distance")
+        @Comment("Ships whose closest player is at least this far away (XZ distance) are simulated every Mid Range Tick Interval physics ticks.")
+        public double midDistance = 64;
+
+        @Name("Mid Range Tick Interval")
+        @RangeInt(min = 1, max = 10)
+        public int midTickInterval = 2;
+
+        @Name("Far Range Distance")
+        @Comment("Ships whose closest player is at least this far away (XZ distance) are simulated every Far Range Tick Interval physics ticks.")
+        public double farDistance = 128;
+
+        @Name("Far Range Tick Interval")
+        @RangeInt(min = 1, max = 10)
+        public int farTickInterval = 4;
+
+        @Name("Far Range Coarse Collision")
+        @Comment("If true, ships in the far range use a cheaper and less accurate collision check.")
+        public boolean farCoarseCollision = true;
+
+    }
+
     @Name("Ship Spawn Detector Blacklist")
     @Comment("Blocks to not be included when assembling a ship.")
     public static String[] shipSpawnDetectorBlacklist = {
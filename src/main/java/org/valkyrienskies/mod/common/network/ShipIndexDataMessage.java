@@ -8,6 +8,7 @@ import net.minecraftforge.fml.common.network.simpleimpl.IMessage;
 import org.valkyrienskies.mod.common.ships.ShipData;
 import org.valkyrienskies.mod.common.util.jackson.VSJacksonUtil;
 
+import javax.annotation.Nullable;
 import java.io.IOException;
 import java.util.*;
 
@@ -17,19 +18,51 @@ import java.util.*;
 public class ShipIndexDataMessage implements IMessage {
 
     private static final ObjectMapper serializer = VSJacksonUtil.getPacketMapper();
+    // Only filled in on the receiving side
     final List<ShipData> indexedData;
+    // Only filled in on the sending side. ShipData is encoded when it's added rather than in toBytes(), because
+    // toBytes() isn't guaranteed to run on the game thread, which is the only one that can safely read ShipData.
+    private final List<byte[]> encodedData;
     final List<UUID> shipsToLoad, shipsToUnload;
     int dimensionID;
 
     public ShipIndexDataMessage() {
         this.indexedData = new ArrayList<>();
+        this.encodedData = new ArrayList<>();
         this.shipsToLoad = new ArrayList<>();
         this.shipsToUnload = new ArrayList<>();
         this.dimensionID = -1;
     }
 
     public void addData(Collection<ShipData> toSend) {
-        indexedData.addAll(toSend);
+        for (ShipData data : toSend) {
+            addEncodedData(encode(data));
+        }
+    }
+
+    /**
+     * Adds ShipData that was already encoded with {@link #encode(ShipData)}, so ShipData sent to many players only has
+     * to be encoded once.
+     */
+    public void addEncodedData(@Nullable byte[] encoded) {
+        if (encoded != null) {
+            encodedData.add(encoded);
+        }
+    }
+
+    /**
+     * Encodes data for {@link #addEncodedData(byte[])}. Must be called from the game thread.
+     *
+     * @return The encoded data, or null if it couldn't be encoded.
+     */
+    @Nullable
+    public static byte[] encode(ShipData data) {
+        try {
+            return serializer.writeValueAsBytes(data);
+        } catch (JsonProcessingException e) {
+            e.printStackTrace();
+            return null;
+        }
     }
 
     public void addLoadUUID(UUID toLoad) {
@@ -74,19 +107,13 @@ public class ShipIndexDataMessage implements IMessage {
     @Override
     public void toBytes(ByteBuf buf) {
         PacketBuffer packetBuffer = new PacketBuffer(buf);
-        packetBuffer.writeInt(indexedData.size());
+        packetBuffer.writeInt(encodedData.size());
         packetBuffer.writeInt(shipsToLoad.size());
         packetBuffer.writeInt(shipsToUnload.size());
-        for (ShipData data : indexedData) {
+        for (byte[] dataBytes : encodedData) {
             // Write index data to the byte buffer.
-            try {
-                byte[] dataBytes = serializer.writeValueAsBytes(data);
-                int bytesSize = dataBytes.length;
-                packetBuffer.writeInt(bytesSize);
-                packetBuffer.writeBytes(dataBytes);
-            } catch (JsonProcessingException e) {
-                e.printStackTrace();
-            }
+            packetBuffer.writeInt(dataBytes.length);
+            packetBuffer.writeBytes(dataBytes);
         }
         for (UUID toLoad : shipsToLoad) {
             packetBuffer.writeUniqueId(toLoad);
@@ -9,6 +9,8 @@ import org.joml.*;
 import org.valkyrienskies.mod.common.block.IBlockForceProvider;
 import org.valkyrienskies.mod.common.block.IBlockTorqueProvider;
 import org.valkyrienskies.mod.common.config.VSConfig;
+import org.valkyrienskies.mod.common.ships.ShipDataSnapshot;
+import org.valkyrienskies.mod.common.ships.ship_transform.PhysicsSnapshotExchange;
 import org.valkyrienskies.mod.common.ships.ship_transform.ShipTransform;
 import org.valkyrienskies.mod.common.collision.WorldPhysicsCollider;
 import org.valkyrienskies.mod.common.ships.ship_world.PhysicsObject;
@@ -16,11 +18,17 @@ import valkyrienwarfare.api.TransformType;
 
 import java.lang.Math;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class PhysicsCalculations {
 
     public static final double DRAG_CONSTANT = .99D;
     public static final double EPSILON = .00000001;
+    // The possible values of sleepState
+    private static final int AWAKE = 0;
+    private static final int SLEEPING = 1;
+    private static final int WAKE_REQUESTED = 2;
+    private static final int REST_RESET_REQUESTED = 3;
 
     private final PhysicsObject parent;
     private final WorldPhysicsCollider worldCollision;
@@ -42,6 +50,22 @@ public class PhysicsCalculations {
     private final Vector3d linearVelocity;
     @Getter
     private final Vector3d angularVelocity;
+    /**
+     * Either AWAKE, SLEEPING, WAKE_REQUESTED or REST_RESET_REQUESTED. Any thread may request a wake
+     * up, which becomes WAKE_REQUESTED if the ship was sleeping and REST_RESET_REQUESTED if it was
+     * awake, but only the physics thread moves between AWAKE and SLEEPING. This way a wake up
+     * requested during a physics tick is never lost by that tick deciding to fall asleep.
+     */
+    private final AtomicInteger sleepState;
+    // The number of consecutive physics ticks this ship has been resting for.
+    private int restingTicks;
+    // The number of physics ticks since this ship was last simulated.
+    private int ticksSinceSimulated;
+    /**
+     * The state of this ship at the end of every physics tick, for the game thread to read.
+     */
+    @Getter
+    private final PhysicsSnapshotExchange snapshotExchange;
 
     public PhysicsCalculations(PhysicsObject parent) {
         this.parent = parent;
@@ -55,6 +79,10 @@ public class PhysicsCalculations {
 
         this.physCenterOfMass = new Vector3d();
         this.torque = new Vector3d();
+        this.sleepState = new AtomicInteger(AWAKE);
+        this.restingTicks = 0;
+        this.ticksSinceSimulated = 0;
+        this.snapshotExchange = new PhysicsSnapshotExchange();
 
         generatePhysicsTransform();
     }
@@ -77,12 +105,14 @@ public class PhysicsCalculations {
 
     public void rawPhysTickPreCol(double physTickTimeDelta) {
         updatePhysSpeedAndIters(physTickTimeDelta);
-        updatePhysCenterOfMass();
-        calculateFramedMOITensor();
+        // Read once, so the whole step sees the ship as it was at the end of the same game tick
+        ShipDataSnapshot shipSnapshot = parent.getSnapshot();
+        updatePhysCenterOfMass(shipSnapshot);
+        calculateFramedMOITensor(shipSnapshot);
         if (!parent.isShipAligningToGrid()) {
             // We are not marked for deconstruction, act normal.
             if (!actAsArchimedes) {
-                calculateForces();
+                calculateForces(shipSnapshot);
             } else {
                 calculateForcesArchimedes();
             }
@@ -108,9 +138,97 @@ public class PhysicsCalculations {
 
         getParent().getShipTransformationManager().updatePreviousPhysicsTransform();
         getParent().getShipTransformationManager().setCurrentPhysicsTransform(finalPhysTransform);
-        // Save a copy of linear and angular velocity in parent's ShipData
-        getParent().getShipData().getPhysicsData().setAngularVelocity(new Vector3d(angularVelocity));
-        getParent().getShipData().getPhysicsData().setLinearVelocity(new Vector3d(linearVelocity));
+        updateSleepState();
+        // Hand the game thread the result of this tick, it copies the velocities into ShipData.
+        snapshotExchange.publish(physX, physY, physZ, physRotation, physCenterOfMass,
+            finalPhysTransform.getSubspaceToGlobal(), linearVelocity, angularVelocity,
+            getParent().getShipTransformationManager().getSubspaceBB());
+    }
+
+    /**
+     * Puts this ship to sleep if it has been resting on something for long enough.
+     */
+    private void updateSleepState() {
+        VSConfig.ShipSleepSettings settings = VSConfig.SHIP_SLEEP_SETTINGS;
+        // A ship that isn't touching anything is falling or being held up by forces that could
+        // change at any time, so don't let it sleep.
+        boolean isResting = settings.enabled
+            && !parent.isShipAligningToGrid()
+            && worldCollision.getContactCount() > 0
+            && getKineticEnergyPerMass() < settings.energyThreshold;
+
+        if (!isResting) {
+            restingTicks = 0;
+            return;
+        }
+        restingTicks++;
+        if (restingTicks >= settings.ticksBeforeSleeping && sleepState.compareAndSet(AWAKE, SLEEPING)) {
+            // Don't let the ship creep along while its asleep
+            getLinearVelocity().zero();
+            getAngularVelocity().zero();
+        }
+    }
+
+    /**
+     * @return The kinetic energy of this ship divided by its mass, in J/kg.
+     */
+    private double getKineticEnergyPerMass() {
+        Vector3d angularMomentum = getPhysMOITensor().transform(getAngularVelocity(), new Vector3d());
+        return .5 * (getLinearVelocity().lengthSquared() + getAngularVelocity().dot(angularMomentum) * getInvMass());
+    }
+
+    /**
+     * Wakes this ship up if its sleeping, and resets how long it has been resting. Safe to call from
+     * any thread, the ship will be simulated again starting from the next physics tick.
+     */
+    public void wakeUp() {
+        sleepState.updateAndGet(state -> {
+            if (state == SLEEPING) {
+                return WAKE_REQUESTED;
+            }
+            return state == AWAKE ? REST_RESET_REQUESTED : state;
+        });
+    }
+
+    /**
+     * @return True if this ship is sleeping, in which case its physics aren't being simulated.
+     */
+    public boolean isSleeping() {
+        return sleepState.get() == SLEEPING;
+    }
+
+    /**
+     * Handles any requested wake ups, and decides whether this ship gets simulated this tick. Must
+     * be called by the physics thread before every physics tick.
+     *
+     * @param tickInterval This ship should only be simulated once every tickInterval physics
+     *                     ticks.
+     * @return The number of physics ticks worth of time this ship should be simulated for this
+     * physics tick, or 0 if it shouldn't be simulated this physics tick.
+     */
+    public int prepareForPhysicsTick(int tickInterval) {
+        int requestedState = sleepState.getAndUpdate(state -> state == SLEEPING ? SLEEPING : AWAKE);
+        if (requestedState == WAKE_REQUESTED) {
+            // The time spent asleep wasn't simulated, and shouldn't be
+            restingTicks = 0;
+            ticksSinceSimulated = 0;
+        } else if (requestedState == REST_RESET_REQUESTED) {
+            // Still simulate all the time since this ship was last simulated, otherwise far away
+            // ships slow down whenever something changes near them
+            restingTicks = 0;
+        }
+        if (requestedState == SLEEPING) {
+            return 0;
+        }
+        ticksSinceSimulated++;
+        if (ticksSinceSimulated < tickInterval) {
+            return 0;
+        }
+        // Simulate all the time that has passed since we were last simulated, even if the tick
+        // interval went down since.
+        int ticksToSimulate = ticksSinceSimulated;
+        ticksSinceSimulated = 0;
+        return ticksToSimulate;
     }
 
     // If the ship is moving at these speeds, its likely something in the physics
@@ -129,8 +247,8 @@ public class PhysicsCalculations {
      * Updates the physics center of mass to the game center of mass; does not do any transformation
      * updates on its own.
      */
-    private void updatePhysCenterOfMass() {
-        Vector3dc gameTickCM = parent.getInertiaData().getGameTickCenterOfMass();
+    private void updatePhysCenterOfMass(ShipDataSnapshot shipSnapshot) {
+        Vector3dc gameTickCM = shipSnapshot.getGameTickCenterOfMass();
         if (!physCenterOfMass.equals(gameTickCM)) {
             Vector3d CMDif = gameTickCM.sub(physCenterOfMass, new Vector3d());
 
@@ -150,15 +268,15 @@ public class PhysicsCalculations {
      * rotation matrix.
      * Reference: https://en.wikipedia.org/wiki/Moment_of_inertia#Inertia_matrix_in_different_reference_frames
      */
-    private void calculateFramedMOITensor() {
+    private void calculateFramedMOITensor(ShipDataSnapshot shipSnapshot) {
         // physCenterOfMass = new Vector(parent.getCenterCoord());
-        physTickMass = parent.getInertiaData().getGameTickMass();
+        physTickMass = shipSnapshot.getGameTickMass();
 
         // Copy the rotation matrix, ignore the translation and scaling parts.
         Matrix3dc rotationMatrix = getParent().getShipTransformationManager()
                 .getCurrentPhysicsTransform().createRotationMatrix(TransformType.SUBSPACE_TO_GLOBAL);
 
-        Matrix3dc inertiaBodyFrame = parent.getInertiaData().getGameMoITensor();
+        Matrix3dc inertiaBodyFrame = shipSnapshot.getGameMoITensor();
 
 
         Matrix3d rotationMatrixTranspose = rotationMatrix.transpose(new Matrix3d());
@@ -173,7 +291,7 @@ public class PhysicsCalculations {
         physInvMOITensor = physMOITensor.invert(new Matrix3d());
     }
 
-    private void calculateForces() {
+    private void calculateForces(ShipDataSnapshot shipSnapshot) {
         applyAirDrag();
         applyGravity();
 
@@ -195,9 +313,7 @@ public class PhysicsCalculations {
             SortedMap<IBlockTorqueProvider, List<BlockPos>> torqueProviders = new TreeMap<>();
 
             BlockPos.MutableBlockPos mutablePos = new BlockPos.MutableBlockPos();
-            // Note that iterating over "activeForcePositions" is not thread safe, so this could lead to problems.
-            // However we're going to completely replace this code soon anyways, so its not a big deal.
-            parent.getShipData().activeForcePositions.forEachUnsafe((x, y, z) -> {
+            shipSnapshot.forEachForcePosition((x, y, z) -> {
                 mutablePos.setPos(x, y, z);
                 IBlockState state = getParent().getChunkAt(mutablePos.getX() >> 4, mutablePos.getZ() >> 4).getBlockState(mutablePos);
                 Block blockAt = state.getBlock();
@@ -363,9 +479,16 @@ public class PhysicsCalculations {
      * Only run ONCE per phys tick!
      */
     private void integrateLinearVelocity() {
-        physX += getLinearVelocity().x() * getPhysicsTimeDeltaPerPhysTick();
-        physY += getLinearVelocity().y() * getPhysicsTimeDeltaPerPhysTick();
-        physZ += getLinearVelocity().z() * getPhysicsTimeDeltaPerPhysTick();
+        Vector3d displacement = getLinearVelocity().mul(getPhysicsTimeDeltaPerPhysTick(), new Vector3d());
+        if (displacement.lengthSquared() > WorldPhysicsCollider.CCD_DISPLACEMENT_THRESHOLD
+                * WorldPhysicsCollider.CCD_DISPLACEMENT_THRESHOLD) {
+            // Fast enough to go through a thin wall in one step, so stop at the first block we
+            // would hit. The collision next tick takes care of the velocity.
+            displacement.mul(worldCollision.sweepForTimeOfImpact(displacement));
+        }
+        physX += displacement.x();
+        physY += displacement.y();
+        physZ += displacement.z();
         physY = Math.min(Math.max(physY, VSConfig.shipLowerLimit), VSConfig.shipUpperLimit);
     }
 
@@ -19,9 +19,11 @@ import org.valkyrienskies.mod.common.util.ValkyrienUtils;
 import org.valkyrienskies.mod.common.util.cqengine.ConcurrentUpdatableIndexedCollection;
 import org.valkyrienskies.mod.common.util.cqengine.UpdatableHashIndex;
 import org.valkyrienskies.mod.common.util.cqengine.UpdatableUniqueIndex;
+import org.valkyrienskies.mod.common.util.datastructures.CopyOnWriteLongObjectMap;
 
 import java.lang.reflect.Field;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
 import java.util.stream.Stream;
 
@@ -35,9 +37,16 @@ import static com.googlecode.cqengine.query.QueryFactory.equal;
 @SuppressWarnings("WeakerAccess")
 public class QueryableShipData implements Iterable<ShipData> {
 
+    // Changes whenever the chunk claims of any world change, so chunks can cache the ship claiming
+    // them between changes
+    private static final AtomicInteger chunkClaimsVersion = new AtomicInteger();
+
     // Where every ship data instance is stored, regardless if the corresponding PhysicsObject is
     // loaded in the World or not.
     private ConcurrentUpdatableIndexedCollection<ShipData> allShips;
+    // The ship that claims each chunk, by ChunkPos.asLong(). Block updates look up the chunk they're
+    // in every time, so this avoids running a query for every block update in the world.
+    private final transient CopyOnWriteLongObjectMap<ShipData> shipsByChunk;
 
     public QueryableShipData() {
         this(new ConcurrentUpdatableIndexedCollection<>());
@@ -72,6 +81,38 @@ public class QueryableShipData implements Iterable<ShipData> {
         this.allShips.addIndex(UpdatableUniqueIndex.onAttribute(ShipData.UUID));
         this.allShips.addIndex(UpdatableUniqueIndex.onAttribute(ShipData.CHUNKS));
 
+        this.shipsByChunk = new CopyOnWriteLongObjectMap<>();
+        this.allShips.registerUpdateListener(this::updateShipsByChunk);
+        updateShipsByChunk(Collections.emptyList(), this.allShips);
+    }
+
+    /**
+     * @return A number that changes whenever a ship claims or stops claiming chunks in any world,
+     * or a world's ship data is replaced. As long as it stays the same, the result of {@link
+     * #getShipFromChunk(long)} for any chunk stays the same too.
+     */
+    public static int getChunkClaimsVersion() {
+        return chunkClaimsVersion.get();
+    }
+
+    private void updateShipsByChunk(Iterable<ShipData> removed, Iterable<ShipData> added) {
+        shipsByChunk.update(map -> {
+            for (ShipData ship : removed) {
+                for (long chunkLong : ship.getChunkClaim().getClaimedChunks()) {
+                    // Don't remove the chunk if another ship got it in the meantime
+                    if (map.get(chunkLong) == ship) {
+                        map.remove(chunkLong);
+                    }
+                }
+            }
+            for (ShipData ship : added) {
+                for (long chunkLong : ship.getChunkClaim().getClaimedChunks()) {
+                    map.put(chunkLong, ship);
+                }
+            }
+        });
+        // Only after the changes are visible, so nobody caches an old owner under the new version
+        chunkClaimsVersion.incrementAndGet();
     }
 
     /**
@@ -105,19 +146,7 @@ public class QueryableShipData implements Iterable<ShipData> {
     }
 
     public Optional<ShipData> getShipFromChunk(long chunkLong) {
-        Query<ShipData> query = equal(ShipData.CHUNKS, chunkLong);
-        try (ResultSet<ShipData> resultSet = allShips.retrieve(query)) {
-            if (resultSet.size() > 1) {
-                throw new IllegalStateException(
-                    "How the heck did we get 2 or more ships both managing the chunk at "
-                        + chunkLong);
-            }
-            if (resultSet.isEmpty()) {
-                return Optional.empty();
-            } else {
-                return Optional.of(resultSet.uniqueResult());
-            }
-        }
+        return Optional.ofNullable(shipsByChunk.get(chunkLong));
     }
 
     public Optional<ShipData> getShip(UUID uuid) {
@@ -18,6 +18,7 @@ import org.valkyrienskies.mod.common.util.datastructures.IBlockPosSet;
 import org.valkyrienskies.mod.common.util.datastructures.IBlockPosSetAABB;
 import org.valkyrienskies.mod.common.util.datastructures.SmallBlockPosSet;
 import org.valkyrienskies.mod.common.util.datastructures.SmallBlockPosSetAABB;
+import org.valkyrienskies.mod.common.util.datastructures.SurfaceVoxelSet;
 import org.valkyrienskies.mod.common.util.jackson.annotations.PacketIgnore;
 
 import javax.annotation.Nonnull;
@@ -71,6 +72,21 @@ public class ShipData {
     @JsonDeserialize(as = SmallBlockPosSet.class)
     public IBlockPosSet activeForcePositions;
 
+    /**
+     * The solid blocks of the ship, and which of them are exposed to the world. Only exists on the
+     * server while the ship is loaded.
+     */
+    @Setter
+    @Nullable
+    private transient SurfaceVoxelSet surfaceVoxels;
+
+    /**
+     * The latest snapshot of this, for threads other than the game thread to read. Null until the first one is
+     * published.
+     */
+    @Nullable
+    private transient volatile ShipDataSnapshot snapshot;
+
     @Setter
     private ShipTransform shipTransform;
 
@@ -105,7 +121,8 @@ public class ShipData {
 
     private ShipData(@NonNull ConcurrentUpdatableIndexedCollection<ShipData> owner,
                     ShipPhysicsData physicsData, @Nonnull ShipInertiaData inertiaData, @NonNull ShipTransform shipTransform, @NonNull ShipTransform prevTickShipTransform, @NonNull AxisAlignedBB shipBB,
-                    boolean physicsEnabled, @NonNull VSChunkClaim chunkClaim, @NonNull UUID uuid, @NonNull String name) {
+                    boolean physicsEnabled, @NonNull VSChunkClaim chunkClaim, @NonNull UUID uuid, @NonNull String name,
+                    @Nullable IBlockPosSetAABB blockPositions, @Nullable IBlockPosSet activeForcePositions) {
         this.owner = owner;
         this.physicsData = physicsData;
         this.inertiaData = inertiaData;
@@ -116,10 +133,8 @@ public class ShipData {
         this.chunkClaim = chunkClaim;
         this.uuid = uuid;
         this.name = name;
-
-        this.blockPositions = new SmallBlockPosSetAABB(chunkClaim.getCenterPos().getXStart(), 0,
-                chunkClaim.getCenterPos().getZStart(), 1024, 1024, 1024);
-        this.activeForcePositions = new SmallBlockPosSet(chunkClaim.getCenterPos().getXStart(), chunkClaim.getCenterPos().getZStart());
+        this.blockPositions = blockPositions;
+        this.activeForcePositions = activeForcePositions;
     }
 
     public static ShipData createData(ConcurrentUpdatableIndexedCollection<ShipData> owner,
@@ -128,11 +143,43 @@ public class ShipData {
         AxisAlignedBB aabb) {
 
         return new ShipData(owner, new ShipPhysicsData(new Vector3d(), new Vector3d()), new ShipInertiaData(), shipTransform, shipTransform, aabb,
-            false, chunkClaim, shipID, name);
+            false, chunkClaim, shipID, name,
+            new SmallBlockPosSetAABB(chunkClaim.getCenterPos().getXStart(), 0,
+                chunkClaim.getCenterPos().getZStart(), 1024, 1024, 1024),
+            new SmallBlockPosSet(chunkClaim.getCenterPos().getXStart(), chunkClaim.getCenterPos().getZStart()));
+    }
+
+    /**
+     * @return A copy of this that stays the same while this changes, so it can be serialized on another thread. Only
+     * the mutable parts are copied, so this is much cheaper than serializing.
+     */
+    @Nonnull
+    public ShipData copy() {
+        // The vectors and matrices of the physics and inertia data are replaced rather than modified, so they're shared
+        ShipInertiaData inertiaDataCopy = new ShipInertiaData();
+        inertiaDataCopy.setGameTickMass(inertiaData.getGameTickMass());
+        inertiaDataCopy.setGameMoITensor(inertiaData.getGameMoITensor());
+        inertiaDataCopy.setGameTickCenterOfMass(inertiaData.getGameTickCenterOfMass());
+        return new ShipData(owner,
+            new ShipPhysicsData(physicsData.getLinearVelocity(), physicsData.getAngularVelocity()),
+            inertiaDataCopy, shipTransform, prevTickShipTransform, shipBB, physicsEnabled, chunkClaim.copy(), uuid,
+            name, blockPositions == null ? null : blockPositions.copy(),
+            activeForcePositions == null ? null : activeForcePositions.copy());
     }
 
     // region Setters
 
+    /**
+     * Takes a snapshot of the current state of this and makes it the one {@link #getSnapshot()} returns. Must be
+     * called from the game thread.
+     */
+    @Nonnull
+    public ShipDataSnapshot publishSnapshot() {
+        ShipDataSnapshot newSnapshot = ShipDataSnapshot.create(this, snapshot);
+        this.snapshot = newSnapshot;
+        return newSnapshot;
+    }
+
     public ShipData setName(String name) {
         this.name = name;
         owner.updateObjectIndices(this, NAME);
@@ -7,6 +7,7 @@ import net.minecraft.util.math.BlockPos;
 import org.valkyrienskies.mod.common.physics.BlockPhysicsDetails;
 import org.valkyrienskies.mod.common.ships.physics_data.BasicCenterOfMassProvider;
 import org.valkyrienskies.mod.common.ships.physics_data.IPhysicsObjectCenterOfMassProvider;
+import org.valkyrienskies.mod.common.util.datastructures.SurfaceVoxelSet;
 
 import javax.annotation.ParametersAreNonnullByDefault;
 
@@ -21,7 +22,7 @@ public class ShipDataMethods {
     private static final IPhysicsObjectCenterOfMassProvider centerOfMassProvider = new BasicCenterOfMassProvider();
 
     /**
-     * Updates the physics data/force positions of shipData.
+     * Updates the physics data/force positions/surface voxels of shipData.
      */
     public void onSetBlockState(ShipData shipData, BlockPos pos, IBlockState oldState, IBlockState newState) {
         // Make sure that pos is even part of this ship
@@ -43,5 +44,11 @@ public class ShipDataMethods {
         }
 
         centerOfMassProvider.onSetBlockState(shipData.getInertiaData(), pos, oldState, newState);
+
+        // Only the exposed blocks can collide with the world
+        SurfaceVoxelSet surfaceVoxels = shipData.getSurfaceVoxels();
+        if (surfaceVoxels != null) {
+            surfaceVoxels.setSolid(pos.getX(), pos.getY(), pos.getZ(), newState.getMaterial().isSolid());
+        }
     }
 }
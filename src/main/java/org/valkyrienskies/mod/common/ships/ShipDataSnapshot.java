@@ -0,0 +1,115 @@
+package org.valkyrienskies.mod.common.ships;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import net.minecraft.util.math.AxisAlignedBB;
+import org.joml.Matrix3d;
+import org.joml.Matrix3dc;
+import org.joml.Vector3d;
+import org.joml.Vector3dc;
+import org.valkyrienskies.mod.common.ships.physics_data.ShipInertiaData;
+import org.valkyrienskies.mod.common.ships.ship_transform.ShipTransform;
+import org.valkyrienskies.mod.common.util.VSIterationUtils;
+import org.valkyrienskies.mod.common.util.datastructures.IBlockPosSet;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.UUID;
+
+/**
+ * An immutable copy of the parts of a {@link ShipData} that other threads read, taken at the end of a game tick.
+ * ShipData itself is only safe to touch from the game thread; the physics thread reads the latest snapshot instead,
+ * without locking.
+ * <p>
+ * Snapshots share whatever didn't change since the previous snapshot of the same ship, so publishing one every tick
+ * only copies the force positions when force blocks were actually added or removed.
+ */
+@Getter
+public final class ShipDataSnapshot {
+
+    /**
+     * Goes up by one with every snapshot published for a ship.
+     */
+    private final long version;
+    private final UUID uuid;
+    private final ShipTransform shipTransform;
+    private final ShipTransform prevTickShipTransform;
+    private final AxisAlignedBB shipBB;
+    private final boolean physicsEnabled;
+    private final double gameTickMass;
+    private final Matrix3dc gameMoITensor;
+    private final Vector3dc gameTickCenterOfMass;
+    /**
+     * The number of non-air blocks on the ship.
+     */
+    private final int blockCount;
+    // The x, y and z of every force position, one after another. Never modified, so it can be shared by snapshots.
+    @Getter(AccessLevel.NONE)
+    private final int[] forcePositions;
+    @Getter(AccessLevel.NONE)
+    private final int forcePositionsModificationCount;
+
+    private ShipDataSnapshot(ShipData shipData, @Nullable ShipDataSnapshot previous) {
+        this.version = previous == null ? 0 : previous.version + 1;
+        this.uuid = shipData.getUuid();
+        // Transforms and AABBs are immutable, so these don't need to be copied
+        this.shipTransform = shipData.getShipTransform();
+        this.prevTickShipTransform = shipData.getPrevTickShipTransform();
+        this.shipBB = shipData.getShipBB();
+        this.physicsEnabled = shipData.isPhysicsEnabled();
+
+        ShipInertiaData inertiaData = shipData.getInertiaData();
+        this.gameTickMass = inertiaData.getGameTickMass();
+        this.gameMoITensor = new Matrix3d(inertiaData.getGameMoITensor());
+        this.gameTickCenterOfMass = new Vector3d(inertiaData.getGameTickCenterOfMass());
+
+        this.blockCount = shipData.getBlockPositions() == null ? 0 : shipData.getBlockPositions().size();
+
+        IBlockPosSet activeForcePositions = shipData.activeForcePositions;
+        if (activeForcePositions == null) {
+            this.forcePositions = new int[0];
+            this.forcePositionsModificationCount = -1;
+        } else if (previous != null
+            && previous.forcePositionsModificationCount == activeForcePositions.getModificationCount()) {
+            this.forcePositions = previous.forcePositions;
+            this.forcePositionsModificationCount = previous.forcePositionsModificationCount;
+        } else {
+            int[] forcePositions = new int[activeForcePositions.size() * 3];
+            int[] index = {0};
+            activeForcePositions.forEach((x, y, z) -> {
+                forcePositions[index[0]++] = x;
+                forcePositions[index[0]++] = y;
+                forcePositions[index[0]++] = z;
+            });
+            this.forcePositions = forcePositions;
+            this.forcePositionsModificationCount = activeForcePositions.getModificationCount();
+        }
+    }
+
+    /**
+     * Takes a snapshot of shipData. Must be called from the thread that modifies shipData.
+     *
+     * @param previous The last snapshot of the same ship, whose unchanged parts are reused. Null for the first one.
+     */
+    @Nonnull
+    static ShipDataSnapshot create(@Nonnull ShipData shipData, @Nullable ShipDataSnapshot previous) {
+        return new ShipDataSnapshot(shipData, previous);
+    }
+
+    public int getForcePositionCount() {
+        return forcePositions.length / 3;
+    }
+
+    public void forEachForcePosition(@Nonnull VSIterationUtils.IntTernaryConsumer action) {
+        for (int i = 0; i < forcePositions.length; i += 3) {
+            action.accept(forcePositions[i], forcePositions[i + 1], forcePositions[i + 2]);
+        }
+    }
+
+    /**
+     * @return True if this snapshot shares its force positions with other, without having copied them again.
+     */
+    boolean sharesForcePositionsWith(@Nonnull ShipDataSnapshot other) {
+        return forcePositions == other.forcePositions;
+    }
+}
@@ -3,14 +3,23 @@ package org.valkyrienskies.mod.common.ships.chunk_claims;
 import lombok.Getter;
 import net.minecraft.util.math.AxisAlignedBB;
 import net.minecraft.util.math.BlockPos;
-import net.minecraft.world.ChunkCache;
 import net.minecraft.world.gen.ChunkProviderServer;
 import org.valkyrienskies.mod.common.ships.ship_world.PhysicsObject;
 
+/**
+ * Keeps track of the world chunks around a ship. The {@link TerrainSnapshotController} of the world
+ * copies these chunks for the physics thread to collide with.
+ */
 public class SurroundingChunkCacheController {
 
+    // The corners of the area around the ship, null until all its chunks have been loaded.
     @Getter
-    private ChunkCache cachedChunks;
+    private BlockPos cachedMin, cachedMax;
+    /**
+     * True once all the chunks around the ship have been loaded, safe to read from any thread.
+     */
+    @Getter
+    private volatile boolean cached;
     private PhysicsObject physicsObject;
 
     public SurroundingChunkCacheController(PhysicsObject physicsObject) {
@@ -46,12 +55,18 @@ public class SurroundingChunkCacheController {
             }
 
             if (areSurroundingChunksLoaded) {
-                cachedChunks = new ChunkCache(physicsObject.getWorld(), min, max, 0);
+                setCachedArea(min, max);
             } else {
                 physicsObject.resetConsecutiveProperTicks();
             }
         } else {
-            cachedChunks = new ChunkCache(physicsObject.getWorld(), min, max, 0);
+            setCachedArea(min, max);
         }
     }
+
+    private void setCachedArea(BlockPos min, BlockPos max) {
+        this.cachedMin = min;
+        this.cachedMax = max;
+        this.cached = true;
+    }
 }
@@ -0,0 +1,72 @@
+package org.valkyrienskies.mod.common.ships.chunk_claims;
+
+import net.minecraft.block.Block;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.init.Blocks;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
+import org.valkyrienskies.mod.common.util.datastructures.IBitOctree;
+import org.valkyrienskies.mod.common.util.datastructures.IBitOctreeProvider;
+
+/**
+ * An immutable copy of the blocks of a 16x16x16 chunk section. Stores which blocks are solid as
+ * bits and the blocks themselves as {@link Block#getStateId(IBlockState)} ids, so it can be read
+ * from any thread.
+ */
+public final class TerrainSection {
+
+    private final long[] solidBits;
+    private final char[] blockStateIds;
+
+    private TerrainSection(long[] solidBits, char[] blockStateIds) {
+        this.solidBits = solidBits;
+        this.blockStateIds = blockStateIds;
+    }
+
+    /**
+     * Copies the blocks of storage. Must be called on the game thread.
+     *
+     * @return Null if the storage doesn't have any blocks.
+     */
+    static TerrainSection copyOf(ExtendedBlockStorage storage) {
+        if (storage == null || storage.isEmpty()) {
+            return null;
+        }
+        IBitOctree octree = ((IBitOctreeProvider) storage.getData()).getBitOctree();
+        long[] solidBits = new long[4096 / 64];
+        char[] blockStateIds = new char[4096];
+        for (int y = 0; y < 16; y++) {
+            for (int z = 0; z < 16; z++) {
+                for (int x = 0; x < 16; x++) {
+                    int index = getIndex(x, y, z);
+                    int stateId = Block.getStateId(storage.get(x, y, z));
+                    // Unregistered states become air
+                    blockStateIds[index] = (char) Math.max(stateId, 0);
+                    if (octree.get(x, y, z)) {
+                        solidBits[index >> 6] |= 1L << index;
+                    }
+                }
+            }
+        }
+        return new TerrainSection(solidBits, blockStateIds);
+    }
+
+    /**
+     * @return True if the block at the given coordinates relative to this section is solid.
+     */
+    public boolean isSolid(int x, int y, int z) {
+        int index = getIndex(x, y, z);
+        return (solidBits[index >> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * @return The block at the given coordinates relative to this section.
+     */
+    public IBlockState getBlockState(int x, int y, int z) {
+        IBlockState state = Block.getStateById(blockStateIds[getIndex(x, y, z)]);
+        return state != null ? state : Blocks.AIR.getDefaultState();
+    }
+
+    private static int getIndex(int x, int y, int z) {
+        return y << 8 | z << 4 | x;
+    }
+}
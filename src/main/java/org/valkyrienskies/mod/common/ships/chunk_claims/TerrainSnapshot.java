@@ -0,0 +1,73 @@
+package org.valkyrienskies.mod.common.ships.chunk_claims;
+
+import gnu.trove.map.TLongObjectMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import lombok.Getter;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.init.Blocks;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+
+import javax.annotation.Nullable;
+
+/**
+ * An immutable copy of the world chunks around the loaded ships, made by the {@link
+ * TerrainSnapshotController} at the end of every game tick. The physics thread reads the world
+ * from here instead of from the chunks the game thread is modifying.
+ */
+public final class TerrainSnapshot {
+
+    public static final TerrainSnapshot EMPTY = new TerrainSnapshot(0, new TLongObjectHashMap<>());
+
+    /**
+     * Increases by one every time the controller publishes a new snapshot.
+     */
+    @Getter
+    private final long version;
+    // Maps ChunkPos.asLong() to the 16 sections of that chunk; a null section is empty.
+    private final TLongObjectMap<TerrainSection[]> columns;
+
+    TerrainSnapshot(long version, TLongObjectMap<TerrainSection[]> columns) {
+        this.version = version;
+        this.columns = columns;
+    }
+
+    /**
+     * @return True if this snapshot has a copy of the given chunk.
+     */
+    public boolean hasChunk(int chunkX, int chunkZ) {
+        return columns.containsKey(ChunkPos.asLong(chunkX, chunkZ));
+    }
+
+    /**
+     * @return The given section, or null if it's empty or not in this snapshot.
+     */
+    @Nullable
+    public TerrainSection getSection(int chunkX, int sectionY, int chunkZ) {
+        if (sectionY < 0 || sectionY > 15) {
+            return null;
+        }
+        TerrainSection[] column = columns.get(ChunkPos.asLong(chunkX, chunkZ));
+        return column != null ? column[sectionY] : null;
+    }
+
+    public boolean isSolid(int x, int y, int z) {
+        TerrainSection section = getSection(x >> 4, y >> 4, z >> 4);
+        return section != null && section.isSolid(x & 15, y & 15, z & 15);
+    }
+
+    /**
+     * @return The block at pos, or air if it isn't in this snapshot.
+     */
+    public IBlockState getBlockState(BlockPos pos) {
+        TerrainSection section = getSection(pos.getX() >> 4, pos.getY() >> 4, pos.getZ() >> 4);
+        if (section == null) {
+            return Blocks.AIR.getDefaultState();
+        }
+        return section.getBlockState(pos.getX() & 15, pos.getY() & 15, pos.getZ() & 15);
+    }
+
+    TerrainSection[] getColumn(long chunkPos) {
+        return columns.get(chunkPos);
+    }
+}
@@ -0,0 +1,142 @@
+package org.valkyrienskies.mod.common.ships.chunk_claims;
+
+import gnu.trove.iterator.TLongIterator;
+import gnu.trove.map.TLongIntMap;
+import gnu.trove.map.TLongObjectMap;
+import gnu.trove.map.hash.TLongIntHashMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import gnu.trove.set.TLongSet;
+import gnu.trove.set.hash.TLongHashSet;
+import lombok.Getter;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.Chunk;
+import org.valkyrienskies.mod.common.ships.ship_world.PhysicsObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps a {@link TerrainSnapshot} of the world chunks around the loaded ships up to date. At the
+ * end of every game tick only the sections that changed get copied again, everything else is
+ * shared with the previous snapshot.
+ * <p>
+ * Everything except {@link #getSnapshot()} must be called on the game thread.
+ */
+public class TerrainSnapshotController {
+
+    private final World world;
+    /**
+     * The latest snapshot, safe to read from any thread.
+     */
+    @Getter
+    private volatile TerrainSnapshot snapshot;
+    // The chunks the columns of the current snapshot were copied from, so we notice if one reloads.
+    private final TLongObjectMap<Chunk> copiedChunks;
+    // Maps ChunkPos.asLong() to a bitmask of the sections of that chunk that changed this tick.
+    private final TLongIntMap dirtySections;
+    private final List<BlockPos> changedBlocks;
+
+    public TerrainSnapshotController(World world) {
+        this.world = world;
+        this.snapshot = TerrainSnapshot.EMPTY;
+        this.copiedChunks = new TLongObjectHashMap<>();
+        this.dirtySections = new TLongIntHashMap();
+        this.changedBlocks = new ArrayList<>();
+    }
+
+    /**
+     * Called whenever a block in the world changes.
+     */
+    public void onBlockChanged(BlockPos pos) {
+        if (pos.getY() < 0 || pos.getY() > 255) {
+            return;
+        }
+        long chunkPos = ChunkPos.asLong(pos.getX() >> 4, pos.getZ() >> 4);
+        // Chunks we haven't copied yet will be copied whole anyways
+        if (copiedChunks.containsKey(chunkPos)) {
+            dirtySections.put(chunkPos, dirtySections.get(chunkPos) | 1 << (pos.getY() >> 4));
+            changedBlocks.add(pos.toImmutable());
+        }
+    }
+
+    /**
+     * Publishes a new snapshot with the chunks around the given ships, and then tells the
+     * collision of those ships which blocks changed.
+     */
+    public void publish(Iterable<PhysicsObject> ships) {
+        TLongSet wantedChunks = new TLongHashSet();
+        for (PhysicsObject ship : ships) {
+            SurroundingChunkCacheController surroundingChunks = ship.getCachedSurroundingChunks();
+            if (!surroundingChunks.isCached()) {
+                continue;
+            }
+            BlockPos min = surroundingChunks.getCachedMin();
+            BlockPos max = surroundingChunks.getCachedMax();
+            for (int chunkX = min.getX() >> 4; chunkX <= max.getX() >> 4; chunkX++) {
+                for (int chunkZ = min.getZ() >> 4; chunkZ <= max.getZ() >> 4; chunkZ++) {
+                    wantedChunks.add(ChunkPos.asLong(chunkX, chunkZ));
+                }
+            }
+        }
+
+        TerrainSnapshot oldSnapshot = snapshot;
+        TLongObjectMap<TerrainSection[]> columns = new TLongObjectHashMap<>(wantedChunks.size());
+        boolean changed = false;
+        TLongIterator iterator = wantedChunks.iterator();
+        while (iterator.hasNext()) {
+            long chunkPos = iterator.next();
+            Chunk chunk = world.getChunkProvider().getLoadedChunk((int) chunkPos, (int) (chunkPos >> 32));
+            if (chunk == null) {
+                continue;
+            }
+            TerrainSection[] oldColumn = oldSnapshot.getColumn(chunkPos);
+            if (oldColumn == null || copiedChunks.get(chunkPos) != chunk) {
+                columns.put(chunkPos, copyColumn(chunk));
+                copiedChunks.put(chunkPos, chunk);
+                changed = true;
+                continue;
+            }
+            int dirtyMask = dirtySections.get(chunkPos);
+            if (dirtyMask == 0) {
+                columns.put(chunkPos, oldColumn);
+                continue;
+            }
+            TerrainSection[] column = oldColumn.clone();
+            for (int sectionY = 0; sectionY < 16; sectionY++) {
+                if ((dirtyMask & 1 << sectionY) != 0) {
+                    column[sectionY] = TerrainSection.copyOf(chunk.storageArrays[sectionY]);
+                }
+            }
+            columns.put(chunkPos, column);
+            changed = true;
+        }
+        // Forget the chunks that aren't around any ships, or got unloaded
+        int copiedChunksCount = copiedChunks.size();
+        copiedChunks.retainEntries((chunkPos, chunk) -> columns.containsKey(chunkPos));
+        changed |= copiedChunks.size() != copiedChunksCount;
+        dirtySections.clear();
+
+        if (changed) {
+            snapshot = new TerrainSnapshot(oldSnapshot.getVersion() + 1, columns);
+        }
+
+        // Only tell the collision about the changed blocks once they're in the snapshot, otherwise
+        // it might read the old block and never look again.
+        for (BlockPos pos : changedBlocks) {
+            for (PhysicsObject ship : ships) {
+                ship.getPhysicsCalculations().getWorldCollision().onWorldBlockChanged(pos);
+            }
+        }
+        changedBlocks.clear();
+    }
+
+    private static TerrainSection[] copyColumn(Chunk chunk) {
+        TerrainSection[] column = new TerrainSection[16];
+        for (int sectionY = 0; sectionY < 16; sectionY++) {
+            column[sectionY] = TerrainSection.copyOf(chunk.storageArrays[sectionY]);
+        }
+        return column;
+    }
+}
@@ -91,6 +91,13 @@ public final class VSChunkClaim implements Iterable<ChunkPos> {
         return claimedChunks.remove(chunkPos);
     }
 
+    /**
+     * @return A new claim of the same chunks, whose claims can change without affecting this.
+     */
+    public VSChunkClaim copy() {
+        return new VSChunkClaim(centerPos, new HashSet<>(claimedChunks));
+    }
+
     @Override
     public String toString() {
         return centerPos + ":" + "claim size " + claimedChunks.size();
@@ -0,0 +1,192 @@
+package org.valkyrienskies.mod.common.ships.persistence;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Value;
+import lombok.extern.log4j.Log4j2;
+import net.minecraft.util.math.AxisAlignedBB;
+import org.joml.Matrix3d;
+import org.joml.Vector3d;
+import org.joml.Vector3dc;
+import org.valkyrienskies.mod.common.ships.QueryableShipData;
+import org.valkyrienskies.mod.common.ships.ShipData;
+import org.valkyrienskies.mod.common.ships.physics_data.ShipInertiaData;
+import org.valkyrienskies.mod.common.ships.ship_transform.ShipTransform;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Saves the ships of a world to a {@link ShipRegionFile}, one record per ship. Remembers what every ship looked like
+ * when it was last saved, so a save only encodes and writes the ships that changed since.
+ * <p>
+ * Saving only copies the changed ships on the game thread. Encoding them and writing the file happens later on a
+ * background thread, one save at a time, so {@link #flush()} has to be called before the game stops.
+ * <p>
+ * Must only be used from the game thread.
+ */
+@Log4j2
+public class ShipDataStore {
+
+    // Writes the ships of every world
+    private static final Executor WRITER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "VS Ship Writer");
+        thread.setDaemon(true);
+        thread.setUncaughtExceptionHandler((t, throwable) ->
+            log.error("Uncaught exception in " + t.getName(), throwable));
+        return thread;
+    });
+
+    // Only touched by the writer once loaded
+    private final ShipRegionFile regionFile;
+    private final ObjectMapper mapper;
+    private final Map<UUID, SavedState> savedStates;
+    // Completes once every save so far is written
+    private CompletableFuture<Void> pendingWrites;
+    // Whether a write failed since the last save that wrote every ship
+    private final AtomicBoolean writeFailed;
+
+    public ShipDataStore(@Nonnull File file, @Nonnull ObjectMapper mapper) {
+        this.regionFile = new ShipRegionFile(file);
+        this.mapper = mapper;
+        this.savedStates = new HashMap<>();
+        this.pendingWrites = CompletableFuture.completedFuture(null);
+        this.writeFailed = new AtomicBoolean(false);
+    }
+
+    /**
+     * @return Every ship in the file, which are all considered saved afterwards.
+     */
+    @Nonnull
+    public List<ShipData> load() throws IOException {
+        flush();
+        savedStates.clear();
+        List<ShipData> ships = new ArrayList<>();
+        for (Map.Entry<UUID, byte[]> entry : regionFile.readAll().entrySet()) {
+            try {
+                ShipData ship = mapper.readValue(entry.getValue(), ShipData.class);
+                ships.add(ship);
+                savedStates.put(ship.getUuid(), new SavedState(ship));
+            } catch (IOException e) {
+                log.fatal("Failed to read ship " + entry.getKey() + ", it will be missing", e);
+            }
+        }
+        return ships;
+    }
+
+    /**
+     * Copies the ships that changed since they were last saved, and then writes them in the background. Ships that
+     * don't exist anymore are removed from the file.
+     */
+    public void save(@Nonnull QueryableShipData ships) {
+        long time = System.currentTimeMillis();
+        if (writeFailed.getAndSet(false)) {
+            // No telling which ships made it to the file, so write all of them
+            savedStates.clear();
+        }
+        Map<UUID, ShipData> toWrite = new HashMap<>();
+        Set<UUID> allShips = new HashSet<>();
+        for (ShipData ship : ships) {
+            allShips.add(ship.getUuid());
+            SavedState state = new SavedState(ship);
+            if (!state.equals(savedStates.put(ship.getUuid(), state))) {
+                toWrite.put(ship.getUuid(), ship.copy());
+            }
+        }
+        savedStates.keySet().retainAll(allShips);
+        log.debug("Copying {} of {} ships to save took {} ms", toWrite.size(), allShips.size(),
+            System.currentTimeMillis() - time);
+
+        pendingWrites = pendingWrites.thenRunAsync(() -> write(toWrite, allShips), WRITER);
+    }
+
+    /**
+     * Waits until every save so far is written.
+     */
+    public void flush() {
+        pendingWrites.join();
+    }
+
+    /**
+     * @return True if the file is missing changes because a write failed. The next save writes every ship again.
+     */
+    public boolean hasWriteFailed() {
+        return writeFailed.get();
+    }
+
+    // Runs on the writer
+    private void write(Map<UUID, ShipData> toWrite, Set<UUID> allShips) {
+        long time = System.currentTimeMillis();
+        try {
+            Map<UUID, byte[]> encoded = new HashMap<>();
+            for (Map.Entry<UUID, ShipData> entry : toWrite.entrySet()) {
+                encoded.put(entry.getKey(), mapper.writeValueAsBytes(entry.getValue()));
+            }
+            regionFile.write(encoded, allShips);
+            log.debug("Saved {} of {} ships to {} in {} ms", toWrite.size(), allShips.size(), regionFile.getFile(),
+                System.currentTimeMillis() - time);
+        } catch (IOException | RuntimeException e) {
+            writeFailed.set(true);
+            log.fatal("Failed to save the ships to " + regionFile.getFile() + ", trying again next save", e);
+        }
+    }
+
+    /**
+     * The parts of a ship that get saved, as they were when it was last saved. Transforms and AABBs are immutable, and
+     * the block sets are represented by their modification counts, so making one of these is cheap.
+     */
+    @Value
+    private static class SavedState {
+
+        ShipTransform shipTransform;
+        ShipTransform prevTickShipTransform;
+        AxisAlignedBB shipBB;
+        boolean physicsEnabled;
+        String name;
+        Vector3d linearVelocity;
+        Vector3d angularVelocity;
+        double gameTickMass;
+        Matrix3d gameMoITensor;
+        Vector3d gameTickCenterOfMass;
+        int claimedChunkCount;
+        int blockPositionsModificationCount;
+        int activeForcePositionsModificationCount;
+
+        SavedState(ShipData ship) {
+            this.shipTransform = ship.getShipTransform();
+            this.prevTickShipTransform = ship.getPrevTickShipTransform();
+            this.shipBB = ship.getShipBB();
+            this.physicsEnabled = ship.isPhysicsEnabled();
+            this.name = ship.getName();
+            // Vectors and matrices are mutable, so these have to be copies
+            this.linearVelocity = copy(ship.getPhysicsData().getLinearVelocity());
+            this.angularVelocity = copy(ship.getPhysicsData().getAngularVelocity());
+            ShipInertiaData inertiaData = ship.getInertiaData();
+            this.gameTickMass = inertiaData.getGameTickMass();
+            this.gameMoITensor = new Matrix3d(inertiaData.getGameMoITensor());
+            this.gameTickCenterOfMass = new Vector3d(inertiaData.getGameTickCenterOfMass());
+            this.claimedChunkCount = ship.getChunkClaim().getClaimedChunks().size();
+            this.blockPositionsModificationCount =
+                ship.blockPositions == null ? -1 : ship.blockPositions.getModificationCount();
+            this.activeForcePositionsModificationCount =
+                ship.activeForcePositions == null ? -1 : ship.activeForcePositions.getModificationCount();
+        }
+
+        @Nullable
+        private static Vector3d copy(@Nullable Vector3dc vector) {
+            return vector == null ? null : new Vector3d(vector);
+        }
+    }
+}
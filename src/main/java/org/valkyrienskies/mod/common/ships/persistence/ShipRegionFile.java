@@ -0,0 +1,290 @@
+package org.valkyrienskies.mod.common.ships.persistence;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/**
+ * A file that stores one record of bytes per ship, so a single ship can be rewritten without rewriting the others.
+ * Like the region files of Minecraft, the file is split into sectors, and each record takes up one or more sectors in
+ * a row.
+ * <p>
+ * The first sector of a record starts with a header saying which ship it belongs to and how long it is, so the file
+ * doesn't need a separate table of contents. A changed record is written to free sectors and forced to the disk before
+ * its old sectors are freed, and every record has a generation number, so a crash halfway through a write leaves
+ * either the old or the new record readable.
+ * <p>
+ * Not thread safe.
+ */
+@Log4j2
+public class ShipRegionFile {
+
+    private static final int SECTOR_SIZE = 4096;
+    private static final int MAGIC = 0x56535348; // "VSSH"
+    // magic, generation, uuid, payload length, payload crc
+    private static final int HEADER_SIZE = 4 + 8 + 16 + 4 + 4;
+
+    @Getter
+    private final File file;
+    // The index of the file, only valid once indexed is true
+    private final Map<UUID, Record> records;
+    private final BitSet usedSectors;
+    private int sectorCount;
+    private long nextGeneration;
+    private boolean indexed;
+
+    public ShipRegionFile(@Nonnull File file) {
+        this.file = file;
+        this.records = new HashMap<>();
+        this.usedSectors = new BitSet();
+        this.sectorCount = 0;
+        this.nextGeneration = 0;
+        this.indexed = false;
+    }
+
+    /**
+     * Reads every record in the file.
+     *
+     * @return The contents of the newest record of every ship, empty if the file doesn't exist.
+     */
+    @Nonnull
+    public Map<UUID, byte[]> readAll() throws IOException {
+        if (!file.exists()) {
+            resetIndex();
+            return Collections.emptyMap();
+        }
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            Map<UUID, byte[]> contents = new HashMap<>();
+            scan(randomAccessFile.getChannel(), contents);
+            return contents;
+        }
+    }
+
+    /**
+     * Replaces the records of the ships in toWrite, and removes the records of every ship not in toKeep.
+     */
+    public void write(@Nonnull Map<UUID, byte[]> toWrite, @Nonnull Set<UUID> toKeep) throws IOException {
+        if (indexed && toWrite.isEmpty() && toKeep.containsAll(records.keySet())) {
+            return;
+        }
+        File parent = file.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Couldn't create the folder " + parent);
+        }
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            FileChannel channel = randomAccessFile.getChannel();
+            if (!indexed) {
+                scan(channel, null);
+            }
+            List<Record> replaced = new ArrayList<>();
+            for (Map.Entry<UUID, byte[]> entry : toWrite.entrySet()) {
+                Record old = writeRecord(channel, entry.getKey(), entry.getValue());
+                if (old != null) {
+                    replaced.add(old);
+                }
+            }
+            if (!toWrite.isEmpty()) {
+                // The new records have to be on the disk before the old ones are freed, otherwise
+                // the OS could write the frees first, and a crash would lose both
+                channel.force(true);
+            }
+            for (Record old : replaced) {
+                free(channel, old);
+            }
+            Iterator<Map.Entry<UUID, Record>> iterator = records.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<UUID, Record> entry = iterator.next();
+                if (!toKeep.contains(entry.getKey())) {
+                    free(channel, entry.getValue());
+                    iterator.remove();
+                }
+            }
+            // Give back the free sectors at the end of the file
+            int usedSectorCount = usedSectors.length();
+            if (usedSectorCount < sectorCount) {
+                randomAccessFile.setLength((long) usedSectorCount * SECTOR_SIZE);
+                sectorCount = usedSectorCount;
+            }
+        }
+    }
+
+    /**
+     * @return The ships that have a record, as of the last read or write.
+     */
+    @Nonnull
+    public Set<UUID> getShips() {
+        return Collections.unmodifiableSet(records.keySet());
+    }
+
+    private void resetIndex() {
+        records.clear();
+        usedSectors.clear();
+        sectorCount = 0;
+        nextGeneration = 0;
+        indexed = true;
+    }
+
+    /**
+     * Rebuilds the index by reading the header of every record.
+     *
+     * @param contents If not null, the newest record of every ship is read into this.
+     */
+    private void scan(FileChannel channel, Map<UUID, byte[]> contents) throws IOException {
+        resetIndex();
+        indexed = false;
+        sectorCount = (int) ((channel.size() + SECTOR_SIZE - 1) / SECTOR_SIZE);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        int sector = 0;
+        while (sector < sectorCount) {
+            header.clear();
+            readFully(channel, header, (long) sector * SECTOR_SIZE);
+            header.flip();
+            if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC) {
+                // A free sector
+                sector++;
+                continue;
+            }
+            long generation = header.getLong();
+            UUID uuid = new UUID(header.getLong(), header.getLong());
+            int length = header.getInt();
+            int crc = header.getInt();
+            if (length < 0 || sector + getSectorsFor(length) > sectorCount) {
+                log.warn("Ignoring a broken ship record at sector {} of {}", sector, file);
+                sector++;
+                continue;
+            }
+
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            readFully(channel, payload, (long) sector * SECTOR_SIZE + HEADER_SIZE);
+            if (payload.hasRemaining() || getCRC(payload.array()) != crc) {
+                // Probably the game crashed while this was written, the previous record of the ship is still there
+                log.warn("Ignoring a corrupted record of ship {} at sector {} of {}", uuid, sector, file);
+                sector++;
+                continue;
+            }
+
+            int recordSectors = getSectorsFor(length);
+            Record record = new Record(sector, recordSectors, generation);
+            Record other = records.get(uuid);
+            if (other != null && other.generation > generation) {
+                // A newer record of this ship was written, but the game stopped before this one was freed
+                free(channel, record);
+            } else {
+                if (other != null) {
+                    free(channel, other);
+                }
+                records.put(uuid, record);
+                usedSectors.set(sector, sector + recordSectors);
+                if (contents != null) {
+                    contents.put(uuid, payload.array());
+                }
+            }
+            nextGeneration = Math.max(nextGeneration, generation + 1);
+            sector += recordSectors;
+        }
+        indexed = true;
+    }
+
+    /**
+     * Writes a new record for the ship, without freeing its old one.
+     *
+     * @return The old record of the ship, which the caller must free, or null if it had none.
+     */
+    @Nullable
+    private Record writeRecord(FileChannel channel, UUID uuid, byte[] payload) throws IOException {
+        int recordSectors = getSectorsFor(payload.length);
+        int sector = allocate(recordSectors);
+        long generation = nextGeneration++;
+
+        ByteBuffer buffer = ByteBuffer.allocate(recordSectors * SECTOR_SIZE);
+        buffer.putInt(MAGIC)
+            .putLong(generation)
+            .putLong(uuid.getMostSignificantBits())
+            .putLong(uuid.getLeastSignificantBits())
+            .putInt(payload.length)
+            .putInt(getCRC(payload))
+            .put(payload);
+        buffer.clear();
+        writeFully(channel, buffer, (long) sector * SECTOR_SIZE);
+
+        return records.put(uuid, new Record(sector, recordSectors, generation));
+    }
+
+    /**
+     * Marks the sectors of record as free, and erases its header so it isn't read again.
+     */
+    private void free(FileChannel channel, Record record) throws IOException {
+        writeFully(channel, ByteBuffer.allocate(4), (long) record.sector * SECTOR_SIZE);
+        usedSectors.clear(record.sector, record.sector + record.sectorCount);
+    }
+
+    /**
+     * @return The first sector of the first run of free sectors long enough, which might be past the end of the file.
+     */
+    private int allocate(int count) {
+        int start = usedSectors.nextClearBit(0);
+        while (start < sectorCount) {
+            int end = usedSectors.nextSetBit(start);
+            if (end == -1 || end - start >= count) {
+                // Either long enough, or free until the end of the file, which can grow
+                break;
+            }
+            start = usedSectors.nextClearBit(end);
+        }
+        usedSectors.set(start, start + count);
+        sectorCount = Math.max(sectorCount, start + count);
+        return start;
+    }
+
+    private static int getSectorsFor(int payloadLength) {
+        return (int) (((long) HEADER_SIZE + payloadLength + SECTOR_SIZE - 1) / SECTOR_SIZE);
+    }
+
+    private static int getCRC(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length);
+        return (int) crc.getValue();
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                return;
+            }
+            position += read;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    @AllArgsConstructor
+    private static class Record {
+
+        final int sector;
+        final int sectorCount;
+        final long generation;
+    }
+}
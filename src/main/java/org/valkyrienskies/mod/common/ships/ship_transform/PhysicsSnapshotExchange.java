@@ -0,0 +1,239 @@
+package org.valkyrienskies.mod.common.ships.ship_transform;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import javax.annotation.Nullable;
+import lombok.Getter;
+import net.minecraft.util.math.AxisAlignedBB;
+import org.joml.Matrix4dc;
+import org.joml.Quaterniond;
+import org.joml.Quaterniondc;
+import org.joml.Vector3d;
+import org.joml.Vector3dc;
+
+/**
+ * Hands the state of a ship at the end of each physics step from the physics thread (the only
+ * writer) to the game thread (the only reader), without locks and without allocating.
+ * <p>
+ * Steps are written alternately into one of two slots, each guarded by its own sequence number
+ * that is odd while the slot is being written. The reader copies the slot of the latest step and
+ * retries if that slot's sequence changed while it was copying. Because the writer always writes
+ * the other slot next, the reader only has to retry if the physics thread manages two full steps
+ * during a single copy. This way the transform, velocities and AABB the game thread sees always
+ * come from the same physics step.
+ * <p>
+ * Every value is stored with volatile semantics in an {@link AtomicLongArray}, which is what keeps
+ * the reads of a slot from being reordered around the reads of its sequence number.
+ */
+public class PhysicsSnapshotExchange {
+
+    private static final int STEP = 0;
+    private static final int POS_X = 1, POS_Y = 2, POS_Z = 3;
+    private static final int ROT_X = 4, ROT_Y = 5, ROT_Z = 6, ROT_W = 7;
+    private static final int CENTER_X = 8, CENTER_Y = 9, CENTER_Z = 10;
+    private static final int LINEAR_X = 11, LINEAR_Y = 12, LINEAR_Z = 13;
+    private static final int ANGULAR_X = 14, ANGULAR_Y = 15, ANGULAR_Z = 16;
+    private static final int MIN_X = 17, MIN_Y = 18, MIN_Z = 19, MAX_X = 20, MAX_Y = 21, MAX_Z = 22;
+    private static final int SLOT_SIZE = 23;
+
+    private final AtomicLongArray[] slots;
+    private final AtomicLongArray slotSequences;
+    // The number of steps published so far, the latest one lives in slot (publishedSteps & 1).
+    private final AtomicLong publishedSteps;
+
+    public PhysicsSnapshotExchange() {
+        this.slots = new AtomicLongArray[]{new AtomicLongArray(SLOT_SIZE), new AtomicLongArray(SLOT_SIZE)};
+        this.slotSequences = new AtomicLongArray(2);
+        this.publishedSteps = new AtomicLong(0);
+    }
+
+    /**
+     * Publishes the state of the ship at the end of a physics step. Must only ever be called by one
+     * thread at a time.
+     *
+     * @param subspaceToGlobal The transform made of position, rotation and centerCoord. Used to
+     *                         move subspaceBB into the world.
+     * @param subspaceBB       The AABB of the ship blocks in subspace, or null if it isn't known
+     *                         yet, in which case the snapshot won't have an AABB.
+     */
+    public void publish(double posX, double posY, double posZ, Quaterniondc rotation,
+        Vector3dc centerCoord, Matrix4dc subspaceToGlobal, Vector3dc linearVelocity,
+        Vector3dc angularVelocity, @Nullable AxisAlignedBB subspaceBB) {
+        long step = publishedSteps.get() + 1;
+        int slotIndex = (int) (step & 1);
+        AtomicLongArray slot = slots[slotIndex];
+
+        slotSequences.incrementAndGet(slotIndex);
+        slot.set(STEP, step);
+        put(slot, POS_X, posX);
+        put(slot, POS_Y, posY);
+        put(slot, POS_Z, posZ);
+        put(slot, ROT_X, rotation.x());
+        put(slot, ROT_Y, rotation.y());
+        put(slot, ROT_Z, rotation.z());
+        put(slot, ROT_W, rotation.w());
+        put(slot, CENTER_X, centerCoord.x());
+        put(slot, CENTER_Y, centerCoord.y());
+        put(slot, CENTER_Z, centerCoord.z());
+        put(slot, LINEAR_X, linearVelocity.x());
+        put(slot, LINEAR_Y, linearVelocity.y());
+        put(slot, LINEAR_Z, linearVelocity.z());
+        put(slot, ANGULAR_X, angularVelocity.x());
+        put(slot, ANGULAR_Y, angularVelocity.y());
+        put(slot, ANGULAR_Z, angularVelocity.z());
+        putWorldBB(slot, subspaceToGlobal, subspaceBB);
+        slotSequences.incrementAndGet(slotIndex);
+
+        publishedSteps.set(step);
+    }
+
+    /**
+     * Copies the latest published step into snapshot. Must only ever be called by one thread at a
+     * time.
+     *
+     * @return The number of the step copied, or 0 if nothing has been published yet (in which case
+     * snapshot is left untouched).
+     */
+    public long read(Snapshot snapshot) {
+        while (true) {
+            long step = publishedSteps.get();
+            if (step == 0) {
+                return 0;
+            }
+            int slotIndex = (int) (step & 1);
+            AtomicLongArray slot = slots[slotIndex];
+
+            long sequence = slotSequences.get(slotIndex);
+            if ((sequence & 1) != 0 || slot.get(STEP) != step) {
+                // The physics thread lapped us and is writing this slot right now, or already
+                // wrote a step into it that hasn't been published. Return steps in order.
+                continue;
+            }
+            snapshot.step = step;
+            snapshot.posX = get(slot, POS_X);
+            snapshot.posY = get(slot, POS_Y);
+            snapshot.posZ = get(slot, POS_Z);
+            snapshot.rotX = get(slot, ROT_X);
+            snapshot.rotY = get(slot, ROT_Y);
+            snapshot.rotZ = get(slot, ROT_Z);
+            snapshot.rotW = get(slot, ROT_W);
+            snapshot.centerX = get(slot, CENTER_X);
+            snapshot.centerY = get(slot, CENTER_Y);
+            snapshot.centerZ = get(slot, CENTER_Z);
+            snapshot.linearX = get(slot, LINEAR_X);
+            snapshot.linearY = get(slot, LINEAR_Y);
+            snapshot.linearZ = get(slot, LINEAR_Z);
+            snapshot.angularX = get(slot, ANGULAR_X);
+            snapshot.angularY = get(slot, ANGULAR_Y);
+            snapshot.angularZ = get(slot, ANGULAR_Z);
+            snapshot.minX = get(slot, MIN_X);
+            snapshot.minY = get(slot, MIN_Y);
+            snapshot.minZ = get(slot, MIN_Z);
+            snapshot.maxX = get(slot, MAX_X);
+            snapshot.maxY = get(slot, MAX_Y);
+            snapshot.maxZ = get(slot, MAX_Z);
+            if (slotSequences.get(slotIndex) == sequence) {
+                return step;
+            }
+        }
+    }
+
+    /**
+     * @return The number of physics steps published so far.
+     */
+    public long getPublishedSteps() {
+        return publishedSteps.get();
+    }
+
+    /**
+     * Transforms the corners of subspaceBB into the world and writes their bounds into slot.
+     */
+    private static void putWorldBB(AtomicLongArray slot, Matrix4dc subspaceToGlobal,
+        @Nullable AxisAlignedBB subspaceBB) {
+        if (subspaceBB == null) {
+            for (int i = MIN_X; i <= MAX_Z; i++) {
+                put(slot, i, Double.NaN);
+            }
+            return;
+        }
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY, minZ = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+        for (int corner = 0; corner < 8; corner++) {
+            double x = (corner & 1) == 0 ? subspaceBB.minX : subspaceBB.maxX;
+            double y = (corner & 2) == 0 ? subspaceBB.minY : subspaceBB.maxY;
+            double z = (corner & 4) == 0 ? subspaceBB.minZ : subspaceBB.maxZ;
+            double globalX = subspaceToGlobal.m00() * x + subspaceToGlobal.m10() * y + subspaceToGlobal.m20() * z + subspaceToGlobal.m30();
+            double globalY = subspaceToGlobal.m01() * x + subspaceToGlobal.m11() * y + subspaceToGlobal.m21() * z + subspaceToGlobal.m31();
+            double globalZ = subspaceToGlobal.m02() * x + subspaceToGlobal.m12() * y + subspaceToGlobal.m22() * z + subspaceToGlobal.m32();
+            minX = Math.min(minX, globalX);
+            minY = Math.min(minY, globalY);
+            minZ = Math.min(minZ, globalZ);
+            maxX = Math.max(maxX, globalX);
+            maxY = Math.max(maxY, globalY);
+            maxZ = Math.max(maxZ, globalZ);
+        }
+        put(slot, MIN_X, minX);
+        put(slot, MIN_Y, minY);
+        put(slot, MIN_Z, minZ);
+        put(slot, MAX_X, maxX);
+        put(slot, MAX_Y, maxY);
+        put(slot, MAX_Z, maxZ);
+    }
+
+    private static void put(AtomicLongArray slot, int index, double value) {
+        slot.set(index, Double.doubleToRawLongBits(value));
+    }
+
+    private static double get(AtomicLongArray slot, int index) {
+        return Double.longBitsToDouble(slot.get(index));
+    }
+
+    /**
+     * A copy of the state of a ship at the end of one physics step. Meant to be reused by the
+     * reading thread, so it doesn't allocate anything until one of the create methods is called.
+     */
+    public static class Snapshot {
+
+        @Getter
+        private long step;
+        @Getter
+        private double posX, posY, posZ;
+        private double rotX, rotY, rotZ, rotW;
+        private double centerX, centerY, centerZ;
+        private double linearX, linearY, linearZ;
+        private double angularX, angularY, angularZ;
+        private double minX, minY, minZ, maxX, maxY, maxZ;
+
+        public ShipTransform createTransform() {
+            return new ShipTransform(posX, posY, posZ, new Quaterniond(rotX, rotY, rotZ, rotW),
+                new Vector3d(centerX, centerY, centerZ));
+        }
+
+        /**
+         * @return False if the AABB of the ship wasn't known when this step was published.
+         */
+        public boolean hasShipBB() {
+            return !Double.isNaN(minX);
+        }
+
+        public AxisAlignedBB createShipBB() {
+            return new AxisAlignedBB(minX, minY, minZ, maxX, maxY, maxZ);
+        }
+
+        public Vector3d getLinearVelocity(Vector3d dest) {
+            return dest.set(linearX, linearY, linearZ);
+        }
+
+        public Vector3d getAngularVelocity(Vector3d dest) {
+            return dest.set(angularX, angularY, angularZ);
+        }
+
+        public boolean isLinearVelocityEqual(Vector3dc velocity) {
+            return velocity.x() == linearX && velocity.y() == linearY && velocity.z() == linearZ;
+        }
+
+        public boolean isAngularVelocityEqual(Vector3dc velocity) {
+            return velocity.x() == angularX && velocity.y() == angularY && velocity.z() == angularZ;
+        }
+    }
+}
@@ -9,6 +9,8 @@ import org.valkyrienskies.mod.common.collision.Polygon;
 import org.valkyrienskies.mod.common.ships.ship_world.PhysicsObject;
 import valkyrienwarfare.api.TransformType;
 
+import javax.annotation.Nullable;
+
 /**
  * Stores various coordinates and transforms for the ship.
  */
@@ -20,9 +22,12 @@ public class ShipTransformationManager {
     private ShipTransform renderTransform;
     private ShipTransform prevTickTransform;
     // Used exclusively by the physics engine; should never even be used by the
-    // client.
+    // client. The game thread gets the physics transform from PhysicsSnapshotExchange instead.
     private ShipTransform currentPhysicsTransform;
     private ShipTransform prevPhysicsTransform;
+    // The AABB of the ship blocks in subspace, expanded to fit the block grid. Written by the game
+    // thread and read by the physics thread.
+    private volatile AxisAlignedBB subspaceBB;
 
     public ShipTransformationManager(PhysicsObject parent, ShipTransform initialTransform) {
         this.parent = parent;
@@ -35,7 +40,7 @@ public class ShipTransformationManager {
         this.normals = createCollisionNormals(initialTransform);
     }
 
-    private static Vector3dc[] createCollisionNormals(ShipTransform transform) {
+    public static Vector3dc[] createCollisionNormals(ShipTransform transform) {
         // We edit a local array instead of normals to avoid data races.
         final Vector3dc[] newNormals = new Vector3dc[15];
         // Used to generate Normals for the Axis Aligned World
@@ -133,13 +138,11 @@ public class ShipTransformationManager {
 
     // TODO: Use Octrees to optimize this, or more preferably QuickHull3D.
     private void updateParentAABB() {
-        AxisAlignedBB subspaceBB = parent.getBlockPositions().makeAABB();
+        AxisAlignedBB subspaceBB = updateSubspaceBB();
         if (subspaceBB == null) {
             // The aabbMaker didn't know what the aabb was, just don't update the aabb for now.
             return;
         }
-        // Expand subspaceBB by 1 to fit the block grid.
-        subspaceBB = subspaceBB.expand(1, 1, 1);
         // Now transform the subspaceBB to world coordinates
         Polygon largerPoly = new Polygon(subspaceBB, getCurrentTickTransform(),
             TransformType.SUBSPACE_TO_GLOBAL);
@@ -148,6 +151,32 @@ public class ShipTransformationManager {
         parent.setShipBoundingBox(worldBB);
     }
 
+    /**
+     * Recalculates the subspace AABB of the ship blocks, so the physics thread can tell where the
+     * ship's AABB ends up after each physics step.
+     *
+     * @return The new subspace AABB, or null if it isn't known.
+     */
+    @Nullable
+    public AxisAlignedBB updateSubspaceBB() {
+        AxisAlignedBB newSubspaceBB = parent.getBlockPositions().makeAABB();
+        if (newSubspaceBB != null) {
+            // Expand subspaceBB by 1 to fit the block grid.
+            newSubspaceBB = newSubspaceBB.expand(1, 1, 1);
+        }
+        this.subspaceBB = newSubspaceBB;
+        return newSubspaceBB;
+    }
+
+    /**
+     * @return The subspace AABB of the ship blocks as of the last game tick, or null if it isn't
+     * known.
+     */
+    @Nullable
+    public AxisAlignedBB getSubspaceBB() {
+        return subspaceBB;
+    }
+
     /**
      * @return the current transformation being used this tick.
      */
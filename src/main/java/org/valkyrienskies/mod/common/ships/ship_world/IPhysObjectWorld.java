@@ -39,6 +39,12 @@ public interface IPhysObjectWorld {
     @Nonnull
     List<PhysicsObject> getPhysObjectsInAABB(@Nonnull AxisAlignedBB toCheck) throws CalledFromWrongThreadException;
 
+    /**
+     * Called by a loaded ship on the game thread whenever its AABB changes, to keep {@link
+     * #getPhysObjectsInAABB(AxisAlignedBB)} up to date.
+     */
+    void onShipBBChanged(@Nonnull PhysicsObject ship);
+
     @Nonnull
     Iterable<PhysicsObject> getAllLoadedPhysObj() throws CalledFromWrongThreadException;
 
@@ -12,7 +12,6 @@ import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.BlockPos.MutableBlockPos;
 import net.minecraft.util.math.ChunkPos;
 import net.minecraft.util.math.Vec3d;
-import net.minecraft.world.ChunkCache;
 import net.minecraft.world.World;
 import net.minecraft.world.chunk.Chunk;
 import net.minecraft.world.gen.ChunkProviderServer;
@@ -30,8 +29,11 @@ import org.valkyrienskies.mod.common.ships.chunk_claims.ClaimedChunkCacheControl
 import org.valkyrienskies.mod.common.ships.chunk_claims.SurroundingChunkCacheController;
 import org.valkyrienskies.mod.common.ships.interpolation.ITransformInterpolator;
 import org.valkyrienskies.mod.common.ships.interpolation.SimpleEMATransformInterpolator;
+import org.valkyrienskies.mod.common.ships.physics_data.ShipPhysicsData;
+import org.valkyrienskies.mod.common.ships.ship_transform.PhysicsSnapshotExchange;
 import org.valkyrienskies.mod.common.ships.ship_transform.ShipTransform;
 import org.valkyrienskies.mod.common.ships.ship_transform.ShipTransformationManager;
+import org.valkyrienskies.mod.common.util.datastructures.SurfaceVoxelSet;
 import valkyrienwarfare.api.IPhysicsEntity;
 import valkyrienwarfare.api.TransformType;
 
@@ -78,11 +80,12 @@ public class PhysicsObject implements IPhysicsEntity {
     @Getter
     private final ClaimedChunkCacheController claimedChunkCache;
     /**
-     * If this PhysicsObject needs to update the collision cache immediately
+     * If this PhysicsObject needs to update the collision cache immediately. Cleared by the physics
+     * thread once it has.
      */
     @Setter
     @Getter
-    private boolean needsCollisionCacheUpdate;
+    private volatile boolean needsCollisionCacheUpdate;
 
     @Getter
     private final World world;
@@ -116,6 +119,31 @@ public class PhysicsObject implements IPhysicsEntity {
     @Getter
     private boolean attemptToDeconstructShip;
 
+    /**
+     * If false then this ship has been asleep since before the last game tick, so players already
+     * know where it is and don't need to be sent any updates about it.
+     */
+    @Getter
+    private boolean needsUpdatePackets;
+
+    /**
+     * The XZ distance from this ship to the closest player in its world, updated every tick by
+     * the game thread. Used to pick how often the ship's physics are simulated.
+     */
+    @Setter
+    @Getter
+    private volatile double nearestPlayerDistance;
+    // Only used by the game thread
+    private boolean wasSleepingLastTick;
+    // Only used by the game thread, reused every tick to read the latest physics step into.
+    private final PhysicsSnapshotExchange.Snapshot physicsSnapshot;
+    private long lastReadPhysicsStep;
+    /**
+     * The number of physics steps that ran between the last two game ticks.
+     */
+    @Getter
+    private int physicsStepsSinceLastTick;
+
     // endregion
 
     // region Methods
@@ -138,10 +166,17 @@ public class PhysicsObject implements IPhysicsEntity {
         this.cachedSurroundingChunks = new SurroundingChunkCacheController(this);
         this.shipTransformationManager = new ShipTransformationManager(this,
             getShipData().getShipTransform());
+        // The physics thread may run before the next tick publishes one
+        getShipData().publishSnapshot();
         this.physicsCalculations = new PhysicsCalculations(this);
         this.shipAligningToGrid = false;
         this.attemptToDeconstructShip = false;
         this.needsCollisionCacheUpdate = true;
+        this.needsUpdatePackets = true;
+        this.wasSleepingLastTick = false;
+        this.physicsSnapshot = new PhysicsSnapshotExchange.Snapshot();
+        this.lastReadPhysicsStep = 0;
+        this.physicsStepsSinceLastTick = 0;
         // Note how this is last.
         if (world.isRemote) {
             this.shipRenderer = new PhysObjectRenderManager(this, referenceBlockPos);
@@ -151,17 +186,56 @@ public class PhysicsObject implements IPhysicsEntity {
             this.getShipTransformationManager()
                 .updateAllTransforms(this.getShipData().getShipTransform(), true, true);
             this.transformInterpolator = null;
+            setSurfaceVoxels(createSurfaceVoxels());
         }
     }
 
+    /**
+     * Finds the solid blocks of the ship. From here on ShipDataMethods keeps them up to date.
+     */
+    private SurfaceVoxelSet createSurfaceVoxels() {
+        SurfaceVoxelSet surfaceVoxels = new SurfaceVoxelSet();
+        getBlockPositions().forEach((x, y, z) -> {
+            if (getChunkAt(x >> 4, z >> 4).getBlockState(x, y, z).getMaterial().isSolid()) {
+                surfaceVoxels.setSolid(x, y, z, true);
+            }
+        });
+        return surfaceVoxels;
+    }
+
     void onTick() {
         if (!world.isRemote) {
-            cachedSurroundingChunks.updateChunkCache();
-            this.setNeedsCollisionCacheUpdate(true);
-
-            ShipTransform physicsTransform = getShipTransformationManager()
-                .getCurrentPhysicsTransform();
-            getShipTransformationManager().updateAllTransforms(physicsTransform, false, true);
+            boolean isSleeping = physicsCalculations.isSleeping();
+            // Sleeping ships don't collide with anything, the cache gets updated the tick after they wake up.
+            if (!isSleeping) {
+                cachedSurroundingChunks.updateChunkCache();
+                if (wasSleepingLastTick) {
+                    this.setNeedsCollisionCacheUpdate(true);
+                }
+            }
+            // Send one last update after the ship falls asleep, then stop until it wakes up.
+            this.needsUpdatePackets = !(isSleeping && wasSleepingLastTick);
+            this.wasSleepingLastTick = isSleeping;
+
+            long latestPhysicsStep = physicsCalculations.getSnapshotExchange().read(physicsSnapshot);
+            this.physicsStepsSinceLastTick = (int) (latestPhysicsStep - lastReadPhysicsStep);
+            this.lastReadPhysicsStep = latestPhysicsStep;
+            if (physicsStepsSinceLastTick > 0) {
+                // Take the transform, velocities and AABB all from the same physics step
+                ShipTransform physicsTransform = physicsSnapshot.createTransform();
+                boolean hasPhysicsBB = physicsSnapshot.hasShipBB();
+                getShipTransformationManager().updateAllTransforms(physicsTransform, false, !hasPhysicsBB);
+                if (hasPhysicsBB) {
+                    // Still keep the subspace AABB up to date with the blocks for the physics thread
+                    getShipTransformationManager().updateSubspaceBB();
+                    setShipBoundingBox(physicsSnapshot.createShipBB());
+                }
+                copyPhysicsSnapshotVelocities();
+            } else {
+                // Physics hasn't moved the ship since last tick, but its blocks may have changed.
+                getShipTransformationManager().updateAllTransforms(
+                    getShipTransformationManager().getCurrentTickTransform(), false, true);
+            }
             // Copy the current and prev transforms into ShipData
             getShipData().setShipTransform(getShipTransformationManager().getCurrentTickTransform());
             getShipData().setPrevTickShipTransform(getShipTransformationManager().getPrevTickTransform());
@@ -172,12 +246,27 @@ public class PhysicsObject implements IPhysicsEntity {
 
             shipData.setPrevTickShipTransform(shipData.getShipTransform());
             shipData.setShipTransform(newTransform);
-            shipData.setShipBB(newAABB);
+            setShipBoundingBox(newAABB);
 
             shipTransformationManager.updateAllTransforms(newTransform, false, false);
         }
     }
 
+    /**
+     * Copies the velocities of the latest physics step into ShipData. The old vectors might still
+     * be getting serialized for a packet, so they're replaced rather than modified, and only when
+     * they've actually changed.
+     */
+    private void copyPhysicsSnapshotVelocities() {
+        ShipPhysicsData physicsData = getShipData().getPhysicsData();
+        if (!physicsSnapshot.isLinearVelocityEqual(physicsData.getLinearVelocity())) {
+            physicsData.setLinearVelocity(physicsSnapshot.getLinearVelocity(new Vector3d()));
+        }
+        if (!physicsSnapshot.isAngularVelocityEqual(physicsData.getAngularVelocity())) {
+            physicsData.setAngularVelocity(physicsSnapshot.getAngularVelocity(new Vector3d()));
+        }
+    }
+
     // endregion
 
     // region More Methods
@@ -195,8 +284,8 @@ public class PhysicsObject implements IPhysicsEntity {
     /**
      * @return the cachedSurroundingChunks
      */
-    public ChunkCache getCachedSurroundingChunks() {
-        return cachedSurroundingChunks.getCachedChunks();
+    public SurroundingChunkCacheController getCachedSurroundingChunks() {
+        return cachedSurroundingChunks;
     }
 
     // ===== Keep track of all Node Processors in a concurrent Set =====
@@ -309,10 +398,12 @@ public class PhysicsObject implements IPhysicsEntity {
 
     public void setShipBoundingBox(AxisAlignedBB shipBoundingBox) {
         getShipData().setShipBB(shipBoundingBox);
+        ((IHasShipManager) world).getManager().onShipBBChanged(this);
     }
 
     void unload() {
         watchingPlayers.clear();
+        setSurfaceVoxels(null);
         if (!getWorld().isRemote) {
             ChunkProviderServer provider = (ChunkProviderServer) getWorld().getChunkProvider();
             for (ChunkPos chunkPos : getChunkClaim()) {
@@ -35,7 +35,13 @@ public class VSWorldEventListener implements IWorldEventListener {
 
     @Override
     public void notifyBlockUpdate(World worldIn, BlockPos pos, IBlockState oldState, IBlockState newState, int flags) {
-
+        if (!worldIn.isRemote) {
+            WorldServerShipManager shipManager = ValkyrienUtils.getServerShipManager(worldIn);
+            // Wake up any ships that could be resting on this block
+            shipManager.wakeShipsNear(pos);
+            // Copy the block into the next terrain snapshot for the physics thread
+            shipManager.getTerrainSnapshots().onBlockChanged(pos);
+        }
     }
 
     @Override
@@ -7,6 +7,7 @@ import net.minecraft.world.World;
 import org.valkyrienskies.mod.common.config.VSConfig;
 import org.valkyrienskies.mod.common.ships.QueryableShipData;
 import org.valkyrienskies.mod.common.ships.ShipData;
+import org.valkyrienskies.mod.common.util.datastructures.AABBGridIndex;
 import org.valkyrienskies.mod.common.util.multithreaded.CalledFromWrongThreadException;
 
 import javax.annotation.Nonnull;
@@ -17,6 +18,8 @@ public class WorldClientShipManager implements IPhysObjectWorld {
 
     private final World world;
     private final Map<UUID, PhysicsObject> loadedShips;
+    // The loaded ships by their AABB, so getPhysObjectsInAABB() doesn't have to test every ship
+    private final AABBGridIndex<PhysicsObject> shipsByAABB;
     // Use LinkedHashSet as a queue because it preserves order and doesn't allow duplicates
     private final LinkedHashSet<UUID> loadQueue, unloadQueue;
     private ImmutableList<PhysicsObject> threadSafeLoadedShips;
@@ -24,6 +27,7 @@ public class WorldClientShipManager implements IPhysObjectWorld {
     public WorldClientShipManager(World world) {
         this.world = world;
         this.loadedShips = new HashMap<>();
+        this.shipsByAABB = new AABBGridIndex<>();
         this.loadQueue = new LinkedHashSet<>();
         this.unloadQueue = new LinkedHashSet<>();
         this.threadSafeLoadedShips = ImmutableList.of();
@@ -61,6 +65,7 @@ public class WorldClientShipManager implements IPhysObjectWorld {
             ShipData shipData = toLoadOptional.get();
             PhysicsObject physicsObject = new PhysicsObject(world, shipData);
             loadedShips.put(toLoadID, physicsObject);
+            shipsByAABB.put(physicsObject, physicsObject.getShipBB());
             if (VSConfig.showAnnoyingDebugOutput) {
                 System.out.println("Successfully loaded " + shipData);
             }
@@ -75,6 +80,7 @@ public class WorldClientShipManager implements IPhysObjectWorld {
             PhysicsObject removedShip = loadedShips.get(toUnloadID);
             removedShip.unload();
             loadedShips.remove(toUnloadID);
+            shipsByAABB.remove(removedShip);
             if (VSConfig.showAnnoyingDebugOutput) {
                 System.out.println("Successfully unloaded " + removedShip.getShipData());
             }
@@ -85,6 +91,7 @@ public class WorldClientShipManager implements IPhysObjectWorld {
     @Override
     public void onWorldUnload() {
         loadedShips.clear();
+        shipsByAABB.clear();
     }
 
     @Nullable
@@ -98,13 +105,13 @@ public class WorldClientShipManager implements IPhysObjectWorld {
     @Override
     public List<PhysicsObject> getPhysObjectsInAABB(@Nonnull AxisAlignedBB toCheck) throws CalledFromWrongThreadException {
         enforceGameThread();
-        List<PhysicsObject> nearby = new ArrayList<>();
-        for (PhysicsObject physicsObject : getAllLoadedPhysObj()) {
-            if (toCheck.intersects(physicsObject.getShipBB())) {
-                nearby.add(physicsObject);
-            }
-        }
-        return nearby;
+        return shipsByAABB.getIntersecting(toCheck);
+    }
+
+    @Override
+    public void onShipBBChanged(@Nonnull PhysicsObject ship) {
+        enforceGameThread();
+        shipsByAABB.update(ship, ship.getShipBB());
     }
 
     @Nonnull
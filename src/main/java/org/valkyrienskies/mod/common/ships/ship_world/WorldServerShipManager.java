@@ -17,6 +17,7 @@ import net.minecraft.world.chunk.Chunk;
 import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
 import net.minecraft.world.gen.ChunkProviderServer;
 import org.apache.commons.lang3.tuple.ImmutableTriple;
+import org.valkyrienskies.mod.common.ValkyrienSkiesMod;
 import org.valkyrienskies.mod.common.config.VSConfig;
 import org.valkyrienskies.mod.common.physics.BlockPhysicsDetails;
 import org.valkyrienskies.mod.common.ships.QueryableShipData;
@@ -24,10 +25,12 @@ import org.valkyrienskies.mod.common.ships.ShipData;
 import org.valkyrienskies.mod.common.ships.block_relocation.BlockFinder;
 import org.valkyrienskies.mod.common.ships.block_relocation.IRelocationAwareTile;
 import org.valkyrienskies.mod.common.ships.block_relocation.SpatialDetector;
+import org.valkyrienskies.mod.common.ships.chunk_claims.TerrainSnapshotController;
 import org.valkyrienskies.mod.common.ships.physics_data.BasicCenterOfMassProvider;
 import org.valkyrienskies.mod.common.ships.physics_data.IPhysicsObjectCenterOfMassProvider;
+import org.valkyrienskies.mod.common.util.datastructures.AABBGridIndex;
 import org.valkyrienskies.mod.common.util.multithreaded.CalledFromWrongThreadException;
-import org.valkyrienskies.mod.common.util.multithreaded.VSThread;
+import org.valkyrienskies.mod.common.util.multithreaded.WorldPhysicsTicker;
 
 import javax.annotation.Nonnull;
 import java.util.*;
@@ -37,9 +40,13 @@ public class WorldServerShipManager implements IPhysObjectWorld {
     @Getter
     private final WorldServer world;
     @Getter
-    private final VSThread physicsThread;
+    private final WorldPhysicsTicker physicsTicker;
+    @Getter
+    private final TerrainSnapshotController terrainSnapshots;
     private final WorldShipLoadingController loadingController;
     private final Map<UUID, PhysicsObject> loadedShips;
+    // The loaded ships by their AABB, so getPhysObjectsInAABB() doesn't have to test every ship
+    private final AABBGridIndex<PhysicsObject> shipsByAABB;
     // Use LinkedHashSet as a queue because it preserves order and doesn't allow duplicates
     private final LinkedHashSet<ImmutableTriple<BlockPos, ShipData, BlockFinder.BlockFinderType>> spawnQueue;
     private final LinkedHashSet<UUID> loadQueue, unloadQueue, backgroundLoadQueue;
@@ -48,16 +55,18 @@ public class WorldServerShipManager implements IPhysObjectWorld {
 
     public WorldServerShipManager(World world) {
         this.world = (WorldServer) world;
-        this.physicsThread = new VSThread(world);
+        this.physicsTicker = new WorldPhysicsTicker(world);
+        this.terrainSnapshots = new TerrainSnapshotController(world);
         this.loadingController = new WorldShipLoadingController(this);
         this.loadedShips = new HashMap<>();
+        this.shipsByAABB = new AABBGridIndex<>();
         this.spawnQueue = new LinkedHashSet<>();
         this.loadQueue = new LinkedHashSet<>();
         this.unloadQueue = new LinkedHashSet<>();
         this.backgroundLoadQueue = new LinkedHashSet<>();
         this.loadingInBackground = new HashSet<>();
         this.threadSafeLoadedShips = ImmutableList.of();
-        this.physicsThread.start();
+        ValkyrienSkiesMod.getPHYSICS_RUNTIME().registerWorld(physicsTicker);
     }
 
     private void enforceGameThread() {
@@ -68,7 +77,7 @@ public class WorldServerShipManager implements IPhysObjectWorld {
 
     @Override
     public void onWorldUnload() {
-        this.physicsThread.kill();
+        ValkyrienSkiesMod.getPHYSICS_RUNTIME().unregisterWorld(physicsTicker);
     }
 
     @Override
@@ -81,13 +90,24 @@ public class WorldServerShipManager implements IPhysObjectWorld {
     @Override
     public List<PhysicsObject> getPhysObjectsInAABB(@Nonnull AxisAlignedBB toCheck) throws CalledFromWrongThreadException {
         enforceGameThread();
-        List<PhysicsObject> nearby = new ArrayList<>();
-        for (PhysicsObject ship : getAllLoadedPhysObj()) {
-            if (toCheck.intersects(ship.getShipBB())) {
-                nearby.add(ship);
-            }
-        }
-        return nearby;
+        return shipsByAABB.getIntersecting(toCheck);
+    }
+
+    /**
+     * Wakes up every loaded ship whose AABB is within a block of pos, since it could be resting on
+     * the block there. Called for every block update, so it doesn't allocate anything.
+     */
+    public void wakeShipsNear(@Nonnull BlockPos pos) {
+        enforceGameThread();
+        shipsByAABB.forEachIntersecting(pos.getX() - 1, pos.getY() - 1, pos.getZ() - 1,
+            pos.getX() + 2, pos.getY() + 2, pos.getZ() + 2,
+            ship -> ship.getPhysicsCalculations().wakeUp());
+    }
+
+    @Override
+    public void onShipBBChanged(@Nonnull PhysicsObject ship) {
+        enforceGameThread();
+        shipsByAABB.update(ship, ship.getShipBB());
     }
 
     public void tick() {
@@ -101,6 +121,7 @@ public class WorldServerShipManager implements IPhysObjectWorld {
                 // Then remove the ship from the world, and the ship map.
                 QueryableShipData.get(world).removeShip(physicsObject.getShipData());
                 iterator.remove();
+                shipsByAABB.remove(physicsObject);
             }
         }
 
@@ -118,6 +139,12 @@ public class WorldServerShipManager implements IPhysObjectWorld {
             ship.onTick();
         }
 
+        // Then give the physics thread a copy of the ships and the world around them
+        for (PhysicsObject ship : getAllLoadedPhysObj()) {
+            ship.publishSnapshot();
+        }
+        terrainSnapshots.publish(getAllLoadedPhysObj());
+
         // Finally, send the players updates about the ships.
         loadingController.sendUpdatesToPlayers();
 
@@ -313,6 +340,7 @@ public class WorldServerShipManager implements IPhysObjectWorld {
             // Finally, instantiate the PhysicsObject representation of this ShipData
             PhysicsObject physicsObject = new PhysicsObject(world, toSpawn);
             loadedShips.put(toSpawn.getUuid(), physicsObject);
+            shipsByAABB.put(physicsObject, physicsObject.getShipBB());
         }
         spawnQueue.clear();
     }
@@ -351,6 +379,7 @@ public class WorldServerShipManager implements IPhysObjectWorld {
             if (old != null) {
                 throw new IllegalStateException("How did we already have a ship loaded for " + toLoad);
             }
+            shipsByAABB.put(physicsObject, physicsObject.getShipBB());
         }
         loadQueue.clear();
 
@@ -410,6 +439,7 @@ public class WorldServerShipManager implements IPhysObjectWorld {
             if (!success) {
                 throw new IllegalStateException("How did we fail to unload " + physicsObject.getShipData());
             }
+            shipsByAABB.remove(physicsObject);
         }
         unloadQueue.clear();
     }
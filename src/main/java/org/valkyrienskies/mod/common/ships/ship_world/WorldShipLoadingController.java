@@ -47,8 +47,10 @@ class WorldShipLoadingController {
                     }
                 }
             } else {
+                double nearestPlayerDistance = getNearestPlayerDistanceXZ(shipManager.getWorld(), shipPos);
+                shipManager.getPhysObjectFromUUID(data.getUuid()).setNearestPlayerDistance(nearestPlayerDistance);
                 if (!VSConfig.SHIP_LOADING_SETTINGS.permanentlyLoaded &&
-                    !existsPlayerWithinDistanceXZ(shipManager.getWorld(), shipPos, VSConfig.SHIP_LOADING_SETTINGS.unloadDistance)) {
+                    nearestPlayerDistance >= VSConfig.SHIP_LOADING_SETTINGS.unloadDistance) {
                     shipManager.queueShipUnload(data.getUuid());
                 }
             }
@@ -124,17 +126,24 @@ class WorldShipLoadingController {
         for (PhysicsObject ship : shipManager.getAllLoadedPhysObj()) {
             ShipData shipData = ship.getShipData();
             Set<EntityPlayerMP> currentWatchers = newWatching.get(shipData);
-            currentWatchers.forEach((player) -> updatesMap.get(player).add(shipData));
+            Set<EntityPlayerMP> previousWatchers = oldWatching.get(shipData);
+            currentWatchers.forEach((player) -> {
+                // Sleeping ships haven't moved, so only players that just started watching them need an update
+                if (ship.isNeedsUpdatePackets() || previousWatchers == null || !previousWatchers.contains(player)) {
+                    updatesMap.get(player).add(shipData);
+                }
+            });
         }
 
         Map<EntityPlayerMP, ShipIndexDataMessage> playerPacketMap = new HashMap<>();
 
-        // Then send those updates
+        // Then send those updates, encoding each ShipData only once no matter how many players watch it
+        Map<ShipData, byte[]> encodedUpdates = new HashMap<>();
         updatesMap.forEach((player, updates) -> {
             ShipIndexDataMessage indexDataMessage = new ShipIndexDataMessage();
             indexDataMessage.setDimensionID(shipManager.getWorld().provider.getDimension());
-            if (!updates.isEmpty()) {
-                indexDataMessage.addData(updates);
+            for (ShipData update : updates) {
+                indexDataMessage.addEncodedData(encodedUpdates.computeIfAbsent(update, ShipIndexDataMessage::encode));
             }
             playerPacketMap.put(player, indexDataMessage);
         });
@@ -194,6 +203,19 @@ class WorldShipLoadingController {
         return (xDif * xDif + zDif * zDif) < distance * distance;
     }
 
+    /**
+     * Returns the XZ distance from pos to the closest player in world, or infinity if there are no players.
+     */
+    private static double getNearestPlayerDistanceXZ(World world, Vec3d pos) {
+        double nearestDistanceSq = Double.POSITIVE_INFINITY;
+        for (EntityPlayer player : world.playerEntities) {
+            double xDif = player.posX - pos.x;
+            double zDif = player.posZ - pos.z;
+            nearestDistanceSq = Math.min(nearestDistanceSq, xDif * xDif + zDif * zDif);
+        }
+        return Math.sqrt(nearestDistanceSq);
+    }
+
     /**
      * Returns true if there exists a player within world that is within distance of pos, only using XZ coordinates.
      */
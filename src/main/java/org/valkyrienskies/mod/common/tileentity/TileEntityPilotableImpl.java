@@ -40,6 +40,11 @@ public abstract class TileEntityPilotableImpl extends TileEntity implements
     public final void onPilotControlsMessage(PilotControlsMessage message, EntityPlayerMP sender) {
         if (sender.getUniqueID().equals(pilotPlayerEntity)) {
             processControlMessage(message, sender);
+            PhysicsObject physicsObject = getParentPhysicsEntity();
+            if (physicsObject != null) {
+                // The pilot is probably trying to move the ship
+                physicsObject.getPhysicsCalculations().wakeUp();
+            }
         }
     }
 
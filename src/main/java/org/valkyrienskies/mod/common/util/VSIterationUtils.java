@@ -255,5 +255,12 @@ public class VSIterationUtils {
 
     }
 
+    @FunctionalInterface
+    public interface IntTernaryPredicate {
+
+        boolean test(int x, int y, int z);
+
+    }
+
     // endregion
 }
@@ -170,7 +170,11 @@ public class ConcurrentUpdatableIndexedCollection<O> implements IndexedCollectio
         queryOptions = openRequestScopeResourcesIfNecessary(queryOptions);
         try {
             boolean modified = doRemoveAll(objectsToRemove, queryOptions);
-            return doAddAll(objectsToAdd, queryOptions) || modified;
+            modified = doAddAll(objectsToAdd, queryOptions) || modified;
+            if (modified) {
+                updateListeners.forEach(consumer -> consumer.accept(objectsToRemove, objectsToAdd));
+            }
+            return modified;
         } finally {
             closeRequestScopeResourcesIfNecessary(queryOptions);
         }
@@ -0,0 +1,230 @@
+package org.valkyrienskies.mod.common.util.datastructures;
+
+import gnu.trove.map.TLongObjectMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import net.minecraft.util.math.AxisAlignedBB;
+
+/**
+ * Finds the values whose AABB intersects a given AABB, without testing every value. The x/z plane
+ * is split into square columns, and each value is listed in every column its AABB touches, so a
+ * query only has to test the values in the columns it touches. Values whose AABB touches too many
+ * columns are tested by every query instead.
+ * <p>
+ * Not thread safe.
+ *
+ * @param <T> The type of the values, which are compared with equals().
+ */
+public class AABBGridIndex<T> {
+
+    // Columns are 64 blocks wide, a bit larger than most ships
+    private static final int COLUMN_SIZE_BITS = 6;
+    // Values that touch more columns than this are kept out of the grid
+    private static final int MAX_COLUMNS_PER_VALUE = 64;
+
+    private final Map<T, Entry<T>> entries;
+    private final TLongObjectMap<List<Entry<T>>> columns;
+    private final List<Entry<T>> oversized;
+    // Used to only test each entry once per query
+    private int queryID;
+
+    public AABBGridIndex() {
+        this.entries = new HashMap<>();
+        this.columns = new TLongObjectHashMap<>();
+        this.oversized = new ArrayList<>();
+        this.queryID = 0;
+    }
+
+    /**
+     * Adds value with the given AABB, or moves it to the given AABB if it was already added. A
+     * null AABB means value doesn't intersect anything for now.
+     */
+    public void put(@Nonnull T value, @Nullable AxisAlignedBB aabb) {
+        Entry<T> entry = entries.get(value);
+        if (entry == null) {
+            entry = new Entry<>(value);
+            entries.put(value, entry);
+        } else if (aabb != null && entry.aabb != null && entry.coversSameColumns(aabb)) {
+            // Most moves stay inside the same columns
+            entry.aabb = aabb;
+            return;
+        } else {
+            unlink(entry);
+        }
+        entry.aabb = aabb;
+        link(entry);
+    }
+
+    /**
+     * Moves value to the given AABB, if it was added before. Otherwise does nothing.
+     */
+    public void update(@Nonnull T value, @Nullable AxisAlignedBB aabb) {
+        if (entries.containsKey(value)) {
+            put(value, aabb);
+        }
+    }
+
+    public void remove(@Nonnull T value) {
+        Entry<T> entry = entries.remove(value);
+        if (entry != null) {
+            unlink(entry);
+        }
+    }
+
+    public void clear() {
+        entries.clear();
+        columns.clear();
+        oversized.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return A new list of all the values whose AABB intersects toCheck, in no particular order.
+     */
+    @Nonnull
+    public List<T> getIntersecting(@Nonnull AxisAlignedBB toCheck) {
+        List<T> intersecting = new ArrayList<>();
+        forEachIntersecting(toCheck.minX, toCheck.minY, toCheck.minZ, toCheck.maxX, toCheck.maxY,
+            toCheck.maxZ, intersecting::add);
+        return intersecting;
+    }
+
+    /**
+     * Gives action every value whose AABB intersects the AABB from (minX, minY, minZ) to (maxX,
+     * maxY, maxZ), in no particular order. Unlike {@link #getIntersecting(AxisAlignedBB)} this
+     * doesn't allocate anything. action must not modify this index.
+     */
+    public void forEachIntersecting(double minX, double minY, double minZ, double maxX, double maxY,
+        double maxZ, @Nonnull Consumer<? super T> action) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        int query = ++queryID;
+        int minColumnX = toColumn(minX), maxColumnX = toColumn(maxX);
+        int minColumnZ = toColumn(minZ), maxColumnZ = toColumn(maxZ);
+        if ((long) (maxColumnX - minColumnX + 1) * (maxColumnZ - minColumnZ + 1) > entries.size()) {
+            // Testing everything is cheaper than looking in that many columns
+            for (Entry<T> entry : entries.values()) {
+                testEntry(entry, minX, minY, minZ, maxX, maxY, maxZ, query, action);
+            }
+            return;
+        }
+        for (int columnX = minColumnX; columnX <= maxColumnX; columnX++) {
+            for (int columnZ = minColumnZ; columnZ <= maxColumnZ; columnZ++) {
+                List<Entry<T>> column = columns.get(getColumnKey(columnX, columnZ));
+                if (column != null) {
+                    for (Entry<T> entry : column) {
+                        testEntry(entry, minX, minY, minZ, maxX, maxY, maxZ, query, action);
+                    }
+                }
+            }
+        }
+        for (Entry<T> entry : oversized) {
+            testEntry(entry, minX, minY, minZ, maxX, maxY, maxZ, query, action);
+        }
+    }
+
+    private static <T> void testEntry(Entry<T> entry, double minX, double minY, double minZ,
+        double maxX, double maxY, double maxZ, int query, Consumer<? super T> action) {
+        if (entry.lastQueryID == query) {
+            return;
+        }
+        entry.lastQueryID = query;
+        if (entry.aabb != null && entry.aabb.intersects(minX, minY, minZ, maxX, maxY, maxZ)) {
+            action.accept(entry.value);
+        }
+    }
+
+    private void link(Entry<T> entry) {
+        if (entry.aabb == null) {
+            return;
+        }
+        entry.setColumns(entry.aabb);
+        if (entry.getColumnCount() > MAX_COLUMNS_PER_VALUE) {
+            entry.isOversized = true;
+            oversized.add(entry);
+            return;
+        }
+        for (int columnX = entry.minColumnX; columnX <= entry.maxColumnX; columnX++) {
+            for (int columnZ = entry.minColumnZ; columnZ <= entry.maxColumnZ; columnZ++) {
+                long key = getColumnKey(columnX, columnZ);
+                List<Entry<T>> column = columns.get(key);
+                if (column == null) {
+                    column = new ArrayList<>(2);
+                    columns.put(key, column);
+                }
+                column.add(entry);
+            }
+        }
+    }
+
+    private void unlink(Entry<T> entry) {
+        if (entry.aabb == null) {
+            return;
+        }
+        if (entry.isOversized) {
+            entry.isOversized = false;
+            oversized.remove(entry);
+            return;
+        }
+        for (int columnX = entry.minColumnX; columnX <= entry.maxColumnX; columnX++) {
+            for (int columnZ = entry.minColumnZ; columnZ <= entry.maxColumnZ; columnZ++) {
+                long key = getColumnKey(columnX, columnZ);
+                List<Entry<T>> column = columns.get(key);
+                if (column != null) {
+                    column.remove(entry);
+                    if (column.isEmpty()) {
+                        columns.remove(key);
+                    }
+                }
+            }
+        }
+    }
+
+    private static int toColumn(double coordinate) {
+        return (int) Math.floor(coordinate) >> COLUMN_SIZE_BITS;
+    }
+
+    private static long getColumnKey(int columnX, int columnZ) {
+        return (long) columnX << 32 | (columnZ & 0xFFFFFFFFL);
+    }
+
+    private static class Entry<T> {
+
+        final T value;
+        @Nullable
+        AxisAlignedBB aabb;
+        int minColumnX, minColumnZ, maxColumnX, maxColumnZ;
+        boolean isOversized;
+        int lastQueryID;
+
+        Entry(T value) {
+            this.value = value;
+        }
+
+        void setColumns(AxisAlignedBB aabb) {
+            minColumnX = toColumn(aabb.minX);
+            minColumnZ = toColumn(aabb.minZ);
+            maxColumnX = toColumn(aabb.maxX);
+            maxColumnZ = toColumn(aabb.maxZ);
+        }
+
+        long getColumnCount() {
+            return (long) (maxColumnX - minColumnX + 1) * (maxColumnZ - minColumnZ + 1);
+        }
+
+        boolean coversSameColumns(AxisAlignedBB aabb) {
+            return toColumn(aabb.minX) == minColumnX && toColumn(aabb.minZ) == minColumnZ
+                && toColumn(aabb.maxX) == maxColumnX && toColumn(aabb.maxZ) == maxColumnZ;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package org.valkyrienskies.mod.common.util.datastructures;
+
+import gnu.trove.map.TLongObjectMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import java.util.function.Consumer;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * A map from longs to objects for lookups that happen far more often than changes, from any
+ * thread. Reads never lock and never allocate; they probe an open addressing table that is never
+ * modified once published. Every change builds a new table and publishes it, so changes are slow
+ * and should be batched with {@link #update(Consumer)}.
+ *
+ * @param <V> The type of the values, which can't be null.
+ */
+public class CopyOnWriteLongObjectMap<V> {
+
+    private static final int MIN_CAPACITY = 16;
+
+    // Only touched while holding the lock of this
+    private final TLongObjectMap<V> contents;
+    private volatile Table table;
+
+    public CopyOnWriteLongObjectMap() {
+        this.contents = new TLongObjectHashMap<>();
+        this.table = new Table(contents);
+    }
+
+    /**
+     * @return The value for key, or null if there is none.
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        Table table = this.table;
+        if (key < table.minKey || key > table.maxKey) {
+            // Chunk longs of the world are nowhere near those of the shipyard, so most misses end here
+            return null;
+        }
+        int mask = table.keys.length - 1;
+        for (int index = mix(key) & mask; ; index = (index + 1) & mask) {
+            Object value = table.values[index];
+            if (value == null) {
+                return null;
+            }
+            if (table.keys[index] == key) {
+                return (V) value;
+            }
+        }
+    }
+
+    public int size() {
+        return table.size;
+    }
+
+    /**
+     * Applies changes to the contents of this map, and then publishes them all at once. Readers
+     * see either none or all of the changes. The changes must not put null values.
+     */
+    public synchronized void update(@Nonnull Consumer<TLongObjectMap<V>> changes) {
+        changes.accept(contents);
+        this.table = new Table(contents);
+    }
+
+    public void put(long key, @Nonnull V value) {
+        update(map -> map.put(key, value));
+    }
+
+    public void remove(long key) {
+        update(map -> map.remove(key));
+    }
+
+    public void clear() {
+        update(TLongObjectMap::clear);
+    }
+
+    // The low bits of chunk longs are just the x coordinate, so spread the rest of the key into them
+    private static int mix(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    private static class Table {
+
+        final long[] keys;
+        final Object[] values;
+        final int size;
+        final long minKey, maxKey;
+
+        Table(TLongObjectMap<?> contents) {
+            // At most half full, so probes stay short
+            int capacity = MIN_CAPACITY;
+            while (capacity < contents.size() * 2) {
+                capacity <<= 1;
+            }
+            this.keys = new long[capacity];
+            this.values = new Object[capacity];
+            this.size = contents.size();
+            int mask = capacity - 1;
+            long[] keyRange = {Long.MAX_VALUE, Long.MIN_VALUE};
+            contents.forEachEntry((key, value) -> {
+                if (value == null) {
+                    throw new IllegalArgumentException("Null value for key " + key);
+                }
+                int index = mix(key) & mask;
+                while (values[index] != null) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = key;
+                values[index] = value;
+                keyRange[0] = Math.min(keyRange[0], key);
+                keyRange[1] = Math.max(keyRange[1], key);
+                return true;
+            });
+            this.minKey = keyRange[0];
+            this.maxKey = keyRange[1];
+        }
+    }
+}
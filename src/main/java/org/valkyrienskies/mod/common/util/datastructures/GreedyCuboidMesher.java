@@ -0,0 +1,114 @@
+package org.valkyrienskies.mod.common.util.datastructures;
+
+import gnu.trove.list.TIntList;
+import gnu.trove.list.array.TIntArrayList;
+
+/**
+ * Merges the solid voxels of a 16x16x16 section into as few axis aligned cuboids as it greedily
+ * can. Starting from the first voxel not covered yet, each cuboid is grown as far as it can go
+ * along x, then z, then y.
+ * <p>
+ * The voxels are given as 64 longs of bits, indexed by y << 8 | z << 4 | x. Cuboids are packed
+ * into ints, with 4 bits for each of their inclusive min and max coordinates; use the getters of
+ * this class to read them.
+ */
+public final class GreedyCuboidMesher {
+
+    private GreedyCuboidMesher() {
+    }
+
+    /**
+     * @return The packed cuboids that exactly cover the solid voxels, without overlapping.
+     */
+    public static int[] mesh(long[] solid) {
+        long[] remaining = solid.clone();
+        TIntList cuboids = new TIntArrayList();
+        for (int word = 0; word < remaining.length; word++) {
+            while (remaining[word] != 0) {
+                int index = word << 6 | Long.numberOfTrailingZeros(remaining[word]);
+                int minX = index & 15;
+                int minZ = (index >> 4) & 15;
+                int minY = index >> 8;
+
+                int maxX = minX;
+                while (maxX < 15 && isSet(remaining, maxX + 1, minY, minZ)) {
+                    maxX++;
+                }
+                int maxZ = minZ;
+                while (maxZ < 15 && isRowSet(remaining, minX, maxX, minY, maxZ + 1)) {
+                    maxZ++;
+                }
+                int maxY = minY;
+                while (maxY < 15 && isRectSet(remaining, minX, maxX, maxY + 1, minZ, maxZ)) {
+                    maxY++;
+                }
+
+                for (int y = minY; y <= maxY; y++) {
+                    for (int z = minZ; z <= maxZ; z++) {
+                        for (int x = minX; x <= maxX; x++) {
+                            int toClear = getIndex(x, y, z);
+                            remaining[toClear >> 6] &= ~(1L << toClear);
+                        }
+                    }
+                }
+                cuboids.add(pack(minX, minY, minZ, maxX, maxY, maxZ));
+            }
+        }
+        return cuboids.toArray();
+    }
+
+    public static int pack(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        return minX | minY << 4 | minZ << 8 | maxX << 12 | maxY << 16 | maxZ << 20;
+    }
+
+    public static int getMinX(int cuboid) {
+        return cuboid & 15;
+    }
+
+    public static int getMinY(int cuboid) {
+        return (cuboid >> 4) & 15;
+    }
+
+    public static int getMinZ(int cuboid) {
+        return (cuboid >> 8) & 15;
+    }
+
+    public static int getMaxX(int cuboid) {
+        return (cuboid >> 12) & 15;
+    }
+
+    public static int getMaxY(int cuboid) {
+        return (cuboid >> 16) & 15;
+    }
+
+    public static int getMaxZ(int cuboid) {
+        return (cuboid >> 20) & 15;
+    }
+
+    private static boolean isRectSet(long[] bits, int minX, int maxX, int y, int minZ, int maxZ) {
+        for (int z = minZ; z <= maxZ; z++) {
+            if (!isRowSet(bits, minX, maxX, y, z)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isRowSet(long[] bits, int minX, int maxX, int y, int z) {
+        for (int x = minX; x <= maxX; x++) {
+            if (!isSet(bits, x, y, z)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isSet(long[] bits, int x, int y, int z) {
+        int index = getIndex(x, y, z);
+        return (bits[index >> 6] & (1L << index)) != 0;
+    }
+
+    private static int getIndex(int x, int y, int z) {
+        return y << 8 | z << 4 | x;
+    }
+}
@@ -14,6 +14,15 @@ public interface IBitOctree {
 
     boolean getAtIndex(int index);
 
+    /**
+     * Returns true if any bit inside the given box is set. The bounds are inclusive and are clamped
+     * to the 16x16x16 area of the octree, so a box that doesn't touch the octree returns false.
+     * <p>
+     * Empty parts of the box are rejected by looking at the upper levels of the octree, so this is
+     * much faster than checking every bit of the box with {@link #get(int, int, int)}.
+     */
+    boolean anySolidInBox(int minX, int minY, int minZ, int maxX, int maxY, int maxZ);
+
     int getOctreeLevelOneIndex(int levelTwoIndex, int offset);
 
     int getOctreeLevelTwoIndex(int levelThreeIndex, int offset);
@@ -1,7 +1,6 @@
 package org.valkyrienskies.mod.common.util.datastructures;
 
 import net.minecraft.util.math.BlockPos;
-import org.apache.commons.lang3.NotImplementedException;
 import org.valkyrienskies.mod.common.util.VSIterationUtils;
 
 import javax.annotation.Nonnull;
@@ -37,13 +36,16 @@ public interface IBlockPosSet extends Set<BlockPos> {
     }
 
     /**
-     * Allows other threads (for example physics threads) to iterate over the elements in this list unsafely.
-     * Though the iteration is almost always correct, it is possible to iterate over an element more than once, or not
-     * all. But the chances of these events occurring is very small.
+     * @return A number that changes every time the contents of this set change, so readers can tell whether a copy
+     * they made is still up to date.
      */
-    default void forEachUnsafe(@Nonnull VSIterationUtils.IntTernaryConsumer action) {
-        throw new NotImplementedException("Not implemented");
-    }
+    int getModificationCount();
+
+    /**
+     * @return A new set with the same positions as this, that can be modified without affecting this.
+     */
+    @Nonnull
+    IBlockPosSet copy();
 
     default boolean add(@Nonnull BlockPos pos) throws IllegalArgumentException {
         return add(pos.getX(), pos.getY(), pos.getZ());
@@ -2,6 +2,7 @@ package org.valkyrienskies.mod.common.util.datastructures;
 
 import net.minecraft.util.math.AxisAlignedBB;
 
+import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 /**
@@ -16,4 +17,8 @@ public interface IBlockPosSetAABB extends IBlockPosSet {
      */
     @Nullable
     AxisAlignedBB makeAABB();
+
+    @Nonnull
+    @Override
+    IBlockPosSetAABB copy();
 }
@@ -0,0 +1,79 @@
+package org.valkyrienskies.mod.common.util.datastructures;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.hash.TIntIntHashMap;
+
+/**
+ * A set of ints that can also be read by index, like a list. Adding, removing and checking an
+ * int are all constant time, and so is reading one by index, so the set can be split into ranges
+ * of indices without copying it into an array first.
+ * <p>
+ * Removing an int moves the last one into its place, so indices are only stable as long as the
+ * set isn't changed.
+ */
+public class IndexedIntSet {
+
+    private static final int NO_INDEX = -1;
+
+    private final TIntArrayList values;
+    // The index of every value in values
+    private final TIntIntHashMap indices;
+
+    public IndexedIntSet() {
+        this.values = new TIntArrayList();
+        this.indices = new TIntIntHashMap(10, .5F, 0, NO_INDEX);
+    }
+
+    /**
+     * @return True if value wasn't in the set already.
+     */
+    public boolean add(int value) {
+        if (indices.containsKey(value)) {
+            return false;
+        }
+        indices.put(value, values.size());
+        values.add(value);
+        return true;
+    }
+
+    /**
+     * @return True if value was in the set.
+     */
+    public boolean remove(int value) {
+        int index = indices.remove(value);
+        if (index == NO_INDEX) {
+            return false;
+        }
+        int last = values.removeAt(values.size() - 1);
+        if (index < values.size()) {
+            values.set(index, last);
+            indices.put(last, index);
+        }
+        return true;
+    }
+
+    public boolean contains(int value) {
+        return indices.containsKey(value);
+    }
+
+    /**
+     * @return The value at index, where index is between 0 (inclusive) and {@link #size()}
+     * (exclusive).
+     */
+    public int get(int index) {
+        return values.get(index);
+    }
+
+    public int size() {
+        return values.size();
+    }
+
+    public boolean isEmpty() {
+        return values.isEmpty();
+    }
+
+    public void clear() {
+        values.resetQuick();
+        indices.clear();
+    }
+}
@@ -1,8 +1,10 @@
 package org.valkyrienskies.mod.common.util.datastructures;
 
+import lombok.Getter;
 import lombok.experimental.Delegate;
 import net.minecraft.util.math.BlockPos;
 
+import javax.annotation.Nonnull;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -14,6 +16,8 @@ public class NaiveBlockPosSet implements IBlockPosSet {
 
     @Delegate
     private final Set<BlockPos> blockPosSet;
+    @Getter
+    private int modificationCount;
 
     public NaiveBlockPosSet() {
         this.blockPosSet = new HashSet<>();
@@ -21,12 +25,44 @@ public class NaiveBlockPosSet implements IBlockPosSet {
 
     @Override
     public boolean add(int x, int y, int z) {
-        return blockPosSet.add(new BlockPos(x, y, z));
+        return add(new BlockPos(x, y, z));
+    }
+
+    @Override
+    public boolean add(BlockPos pos) {
+        if (blockPosSet.add(pos)) {
+            modificationCount++;
+            return true;
+        }
+        return false;
     }
 
     @Override
     public boolean remove(int x, int y, int z) {
-        return blockPosSet.remove(new BlockPos(x, y, z));
+        return remove((Object) new BlockPos(x, y, z));
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (blockPosSet.remove(o)) {
+            modificationCount++;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void clear() {
+        modificationCount++;
+        blockPosSet.clear();
+    }
+
+    @Nonnull
+    @Override
+    public NaiveBlockPosSet copy() {
+        NaiveBlockPosSet copy = new NaiveBlockPosSet();
+        copy.blockPosSet.addAll(blockPosSet);
+        return copy;
     }
 
     @Override
@@ -2,6 +2,11 @@ package org.valkyrienskies.mod.common.util.datastructures;
 
 public class SimpleBitOctree implements IBitOctree {
 
+    // The possible results of overlap()
+    private static final int NO_OVERLAP = 0;
+    private static final int PARTIAL_OVERLAP = 1;
+    private static final int FULL_OVERLAP = 2;
+
     private final IBitSet bitbuffer;
 
     public SimpleBitOctree() {
@@ -29,6 +34,90 @@ public class SimpleBitOctree implements IBitOctree {
         return bitbuffer.get(index);
     }
 
+    @Override
+    public boolean anySolidInBox(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        minX = Math.max(minX, 0);
+        minY = Math.max(minY, 0);
+        minZ = Math.max(minZ, 0);
+        maxX = Math.min(maxX, 15);
+        maxY = Math.min(maxY, 15);
+        maxZ = Math.min(maxZ, 15);
+        if (minX > maxX || minY > maxY || minZ > maxZ) {
+            return false;
+        }
+        // Descend the 8x8x8, 4x4x4 and 2x2x2 nodes that overlap the box, skipping the empty ones.
+        // If the box contains all of a non empty node then we're already done.
+        for (int levelThree = 0; levelThree < 8; levelThree++) {
+            int levelThreeX = (levelThree & 1) << 3;
+            int levelThreeY = ((levelThree >> 1) & 1) << 3;
+            int levelThreeZ = ((levelThree >> 2) & 1) << 3;
+            int levelThreeIndex = getOctreeLevelThreeIndex(levelThree);
+            int levelThreeOverlap = overlap(levelThreeX, levelThreeY, levelThreeZ, 8, minX, minY,
+                minZ, maxX, maxY, maxZ);
+            if (levelThreeOverlap == NO_OVERLAP || !bitbuffer.get(levelThreeIndex)) {
+                continue;
+            }
+            if (levelThreeOverlap == FULL_OVERLAP) {
+                return true;
+            }
+            for (int levelTwo = 0; levelTwo < 8; levelTwo++) {
+                int levelTwoX = levelThreeX + ((levelTwo & 1) << 2);
+                int levelTwoY = levelThreeY + (((levelTwo >> 1) & 1) << 2);
+                int levelTwoZ = levelThreeZ + (((levelTwo >> 2) & 1) << 2);
+                int levelTwoIndex = getOctreeLevelTwoIndex(levelThreeIndex, levelTwo);
+                int levelTwoOverlap = overlap(levelTwoX, levelTwoY, levelTwoZ, 4, minX, minY,
+                    minZ, maxX, maxY, maxZ);
+                if (levelTwoOverlap == NO_OVERLAP || !bitbuffer.get(levelTwoIndex)) {
+                    continue;
+                }
+                if (levelTwoOverlap == FULL_OVERLAP) {
+                    return true;
+                }
+                for (int levelOne = 0; levelOne < 8; levelOne++) {
+                    int levelOneX = levelTwoX + ((levelOne & 1) << 1);
+                    int levelOneY = levelTwoY + (((levelOne >> 1) & 1) << 1);
+                    int levelOneZ = levelTwoZ + (((levelOne >> 2) & 1) << 1);
+                    int levelOneIndex = getOctreeLevelOneIndex(levelTwoIndex, levelOne);
+                    int levelOneOverlap = overlap(levelOneX, levelOneY, levelOneZ, 2, minX, minY,
+                        minZ, maxX, maxY, maxZ);
+                    if (levelOneOverlap == NO_OVERLAP || !bitbuffer.get(levelOneIndex)) {
+                        continue;
+                    }
+                    if (levelOneOverlap == FULL_OVERLAP) {
+                        return true;
+                    }
+                    for (int x = Math.max(levelOneX, minX); x <= Math.min(levelOneX + 1, maxX); x++) {
+                        for (int y = Math.max(levelOneY, minY); y <= Math.min(levelOneY + 1, maxY); y++) {
+                            for (int z = Math.max(levelOneZ, minZ); z <= Math.min(levelOneZ + 1, maxZ); z++) {
+                                if (bitbuffer.get(getBlockIndex(x, y, z))) {
+                                    return true;
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return How much of the cube of the given size at (nodeX, nodeY, nodeZ) is inside the box.
+     */
+    private static int overlap(int nodeX, int nodeY, int nodeZ, int size, int minX, int minY,
+        int minZ, int maxX, int maxY, int maxZ) {
+        int nodeMaxX = nodeX + size - 1, nodeMaxY = nodeY + size - 1, nodeMaxZ = nodeZ + size - 1;
+        if (nodeX > maxX || nodeMaxX < minX || nodeY > maxY || nodeMaxY < minY || nodeZ > maxZ
+            || nodeMaxZ < minZ) {
+            return NO_OVERLAP;
+        }
+        if (nodeX >= minX && nodeMaxX <= maxX && nodeY >= minY && nodeMaxY <= maxY
+            && nodeZ >= minZ && nodeMaxZ <= maxZ) {
+            return FULL_OVERLAP;
+        }
+        return PARTIAL_OVERLAP;
+    }
+
     @Override
     public int getOctreeLevelOneIndex(int levelTwoIndex, int offset) {
         return levelTwoIndex + offset + 1;
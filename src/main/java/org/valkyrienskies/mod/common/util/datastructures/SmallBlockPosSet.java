@@ -48,6 +48,8 @@ public class SmallBlockPosSet implements IBlockPosSet {
     private final TIntIntMap listValueToIndex;
     @Getter
     private final int centerX, centerZ;
+    @Getter
+    private int modificationCount;
 
     public SmallBlockPosSet(int centerX, int centerZ) {
         this.compressedBlockPosList = new TIntArrayList();
@@ -67,6 +69,7 @@ public class SmallBlockPosSet implements IBlockPosSet {
         }
         compressedBlockPosList.add(compressedPos);
         listValueToIndex.put(compressedPos, compressedBlockPosList.size() - 1);
+        modificationCount++;
         return true;
     }
 
@@ -92,6 +95,7 @@ public class SmallBlockPosSet implements IBlockPosSet {
             listValueToIndex.put(lastElementValue, elementIndex);
         }
         listValueToIndex.remove(compressedPos);
+        modificationCount++;
 
         return true;
     }
@@ -138,10 +142,20 @@ public class SmallBlockPosSet implements IBlockPosSet {
         }
     }
 
+    @Nonnull
+    @Override
+    public SmallBlockPosSet copy() {
+        SmallBlockPosSet copy = new SmallBlockPosSet(centerX, centerZ);
+        copy.compressedBlockPosList.addAll(compressedBlockPosList);
+        copy.listValueToIndex.putAll(listValueToIndex);
+        return copy;
+    }
+
     @Override
     public void clear() {
         compressedBlockPosList.clear();
         listValueToIndex.clear();
+        modificationCount++;
     }
 
     @Nonnull
@@ -154,15 +168,6 @@ public class SmallBlockPosSet implements IBlockPosSet {
         return new BlockPos(x + centerX, y, z + centerZ);
     }
 
-    private void decompressMutable(int compressed, BlockPos.MutableBlockPos mutableBlockPos) {
-        int z = compressed >> 20;
-        int y = (compressed >> 12) & BOT_8_BITS;
-        // this basically left-pads the int when casting so that the sign is preserved
-        // not sure if there is a better way
-        int x = (compressed & BOT_12_BITS) << 20 >> 20;
-        mutableBlockPos.setPos(x + centerX, y, z + centerZ);
-    }
-
     private int compress(int x, int y, int z) {
         // Allocate 12 bits for x, 12 bits for z, and 8 bits for y.
         int xBits = (x - centerX) & BOT_12_BITS;
@@ -171,23 +176,6 @@ public class SmallBlockPosSet implements IBlockPosSet {
         return xBits | (yBits << 12) | (zBits << 20);
     }
 
-    @Override
-    public void forEachUnsafe(@Nonnull VSIterationUtils.IntTernaryConsumer action) {
-        int curIndex = 0;
-        BlockPos.MutableBlockPos mutableBlockPos = new BlockPos.MutableBlockPos();
-        while (compressedBlockPosList.size() >= curIndex) {
-            try {
-                int currentValue = compressedBlockPosList.get(curIndex);
-                curIndex++;
-                decompressMutable(currentValue, mutableBlockPos);
-                action.accept(mutableBlockPos.getX(), mutableBlockPos.getY(), mutableBlockPos.getZ());
-            } catch (Exception e) {
-                // Catch concurrent read/write race condition
-                return;
-            }
-        }
-    }
-
     private class SmallBlockPosIterator implements Iterator<BlockPos> {
 
         private final TIntIterator iterator;
@@ -51,6 +51,19 @@ public class SmallBlockPosSetAABB implements IBlockPosSetAABB {
         this.zMap = new FastMinMaxMap(zSize);
     }
 
+    private SmallBlockPosSetAABB(SmallBlockPosSetAABB toCopy) {
+        this.blockPosSet = toCopy.blockPosSet.copy();
+        this.centerX = toCopy.centerX;
+        this.centerY = toCopy.centerY;
+        this.centerZ = toCopy.centerZ;
+        this.xSize = toCopy.xSize;
+        this.ySize = toCopy.ySize;
+        this.zSize = toCopy.zSize;
+        this.xMap = toCopy.xMap.copy();
+        this.yMap = toCopy.yMap.copy();
+        this.zMap = toCopy.zMap.copy();
+    }
+
     @Nullable
     @Override
     public AxisAlignedBB makeAABB() {
@@ -130,6 +143,17 @@ public class SmallBlockPosSetAABB implements IBlockPosSetAABB {
         blockPosSet.forEach(action);
     }
 
+    @Override
+    public int getModificationCount() {
+        return blockPosSet.getModificationCount();
+    }
+
+    @Nonnull
+    @Override
+    public SmallBlockPosSetAABB copy() {
+        return new SmallBlockPosSetAABB(this);
+    }
+
     public static class WrapperSmallBlockPosSetAABBSerializer extends StdSerializer<SmallBlockPosSetAABB> {
 
         public WrapperSmallBlockPosSetAABBSerializer() {
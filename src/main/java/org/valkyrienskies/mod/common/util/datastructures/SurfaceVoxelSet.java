@@ -0,0 +1,235 @@
+package org.valkyrienskies.mod.common.util.datastructures;
+
+import gnu.trove.map.TLongObjectMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+
+/**
+ * A sparse set of solid voxels that also keeps track of which of them are on the surface, meaning
+ * at least one of their 6 neighbours isn't solid. Voxels inside a solid hull can never touch
+ * anything outside of it, so collision only has to look at the surface ones.
+ * <p>
+ * The surface voxels of every 16x16x16 section are kept in an {@link IBitOctree}, so that empty
+ * parts of a box can be skipped quickly with {@link #anySurfaceInBox}. The solid voxels of every
+ * section can also be read as cuboids made by {@link GreedyCuboidMesher}, which are only merged
+ * again after a voxel in that section changes.
+ * <p>
+ * Only one thread may modify this, but any thread may read it. Like with the octrees of chunks, a
+ * reader might not see a change right away.
+ */
+public class SurfaceVoxelSet {
+
+    // Copied whenever a section is added, so readers never see the map being resized.
+    private volatile TLongObjectMap<Section> sections;
+
+    public SurfaceVoxelSet() {
+        this.sections = new TLongObjectHashMap<>();
+    }
+
+    /**
+     * Sets whether the voxel at (x, y, z) is solid, and updates the surface of it and its
+     * neighbours.
+     */
+    public void setSolid(int x, int y, int z, boolean solid) {
+        Section section = sections.get(sectionKey(x >> 4, y >> 4, z >> 4));
+        if (section == null) {
+            if (!solid) {
+                return;
+            }
+            section = createSection(x >> 4, y >> 4, z >> 4);
+        }
+        if (section.isSolid(x & 15, y & 15, z & 15) == solid) {
+            return;
+        }
+        section.setSolid(x & 15, y & 15, z & 15, solid);
+        section.version++;
+
+        updateSurface(x, y, z);
+        updateSurface(x - 1, y, z);
+        updateSurface(x + 1, y, z);
+        updateSurface(x, y - 1, z);
+        updateSurface(x, y + 1, z);
+        updateSurface(x, y, z - 1);
+        updateSurface(x, y, z + 1);
+    }
+
+    public boolean isSolid(int x, int y, int z) {
+        Section section = sections.get(sectionKey(x >> 4, y >> 4, z >> 4));
+        return section != null && section.isSolid(x & 15, y & 15, z & 15);
+    }
+
+    /**
+     * @return True if the voxel at (x, y, z) is solid and has a neighbour that isn't.
+     */
+    public boolean isSurface(int x, int y, int z) {
+        Section section = sections.get(sectionKey(x >> 4, y >> 4, z >> 4));
+        return section != null && section.surface.get(x & 15, y & 15, z & 15);
+    }
+
+    /**
+     * @return True if there's a surface voxel inside the given box. The bounds are inclusive.
+     */
+    public boolean anySurfaceInBox(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        TLongObjectMap<Section> sections = this.sections;
+        for (int sectionX = minX >> 4; sectionX <= maxX >> 4; sectionX++) {
+            for (int sectionY = minY >> 4; sectionY <= maxY >> 4; sectionY++) {
+                for (int sectionZ = minZ >> 4; sectionZ <= maxZ >> 4; sectionZ++) {
+                    Section section = sections.get(sectionKey(sectionX, sectionY, sectionZ));
+                    if (section == null) {
+                        continue;
+                    }
+                    // The octree clamps the box to its own 16x16x16 area
+                    int offsetX = sectionX << 4;
+                    int offsetY = sectionY << 4;
+                    int offsetZ = sectionZ << 4;
+                    if (section.surface.anySolidInBox(minX - offsetX, minY - offsetY,
+                        minZ - offsetZ, maxX - offsetX, maxY - offsetY, maxZ - offsetZ)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gives consumer every cuboid of solid voxels, with inclusive bounds.
+     */
+    public void forEachCuboid(CuboidConsumer consumer) {
+        sections.forEachEntry((key, section) -> {
+            // Undo sectionKey(), with the sign extended
+            int offsetX = (int) (key >> 38) << 4;
+            int offsetY = (int) (key << 26 >> 52) << 4;
+            int offsetZ = (int) (key << 38 >> 38) << 4;
+            for (int cuboid : section.getCuboids()) {
+                consumer.accept(offsetX + GreedyCuboidMesher.getMinX(cuboid),
+                    offsetY + GreedyCuboidMesher.getMinY(cuboid),
+                    offsetZ + GreedyCuboidMesher.getMinZ(cuboid),
+                    offsetX + GreedyCuboidMesher.getMaxX(cuboid),
+                    offsetY + GreedyCuboidMesher.getMaxY(cuboid),
+                    offsetZ + GreedyCuboidMesher.getMaxZ(cuboid));
+            }
+            return true;
+        });
+    }
+
+    /**
+     * Gives consumer the cuboids of solid voxels that intersect the given box, clipped to the box.
+     * The bounds are inclusive, both of the box and of the cuboids given to consumer. Cuboids never
+     * cross the border of a 16x16x16 section, even if the voxels on both sides are solid.
+     */
+    public void forEachCuboidInBox(int minX, int minY, int minZ, int maxX, int maxY, int maxZ,
+        CuboidConsumer consumer) {
+        TLongObjectMap<Section> sections = this.sections;
+        for (int sectionX = minX >> 4; sectionX <= maxX >> 4; sectionX++) {
+            for (int sectionY = minY >> 4; sectionY <= maxY >> 4; sectionY++) {
+                for (int sectionZ = minZ >> 4; sectionZ <= maxZ >> 4; sectionZ++) {
+                    Section section = sections.get(sectionKey(sectionX, sectionY, sectionZ));
+                    if (section == null) {
+                        continue;
+                    }
+                    int offsetX = sectionX << 4;
+                    int offsetY = sectionY << 4;
+                    int offsetZ = sectionZ << 4;
+                    for (int cuboid : section.getCuboids()) {
+                        int cuboidMinX = Math.max(minX, offsetX + GreedyCuboidMesher.getMinX(cuboid));
+                        int cuboidMinY = Math.max(minY, offsetY + GreedyCuboidMesher.getMinY(cuboid));
+                        int cuboidMinZ = Math.max(minZ, offsetZ + GreedyCuboidMesher.getMinZ(cuboid));
+                        int cuboidMaxX = Math.min(maxX, offsetX + GreedyCuboidMesher.getMaxX(cuboid));
+                        int cuboidMaxY = Math.min(maxY, offsetY + GreedyCuboidMesher.getMaxY(cuboid));
+                        int cuboidMaxZ = Math.min(maxZ, offsetZ + GreedyCuboidMesher.getMaxZ(cuboid));
+                        if (cuboidMinX <= cuboidMaxX && cuboidMinY <= cuboidMaxY
+                            && cuboidMinZ <= cuboidMaxZ) {
+                            consumer.accept(cuboidMinX, cuboidMinY, cuboidMinZ, cuboidMaxX,
+                                cuboidMaxY, cuboidMaxZ);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private void updateSurface(int x, int y, int z) {
+        Section section = sections.get(sectionKey(x >> 4, y >> 4, z >> 4));
+        if (section == null) {
+            // Nothing solid here, so nothing to update
+            return;
+        }
+        boolean isSurface = section.isSolid(x & 15, y & 15, z & 15)
+            && (!isSolid(x - 1, y, z) || !isSolid(x + 1, y, z)
+            || !isSolid(x, y - 1, z) || !isSolid(x, y + 1, z)
+            || !isSolid(x, y, z - 1) || !isSolid(x, y, z + 1));
+        section.surface.set(x & 15, y & 15, z & 15, isSurface);
+    }
+
+    private Section createSection(int sectionX, int sectionY, int sectionZ) {
+        Section section = new Section();
+        TLongObjectMap<Section> newSections = new TLongObjectHashMap<>(sections);
+        newSections.put(sectionKey(sectionX, sectionY, sectionZ), section);
+        sections = newSections;
+        return section;
+    }
+
+    // Packs the section coordinates the same way BlockPos.toLong() does
+    private static long sectionKey(int sectionX, int sectionY, int sectionZ) {
+        return ((long) sectionX & 0x3FFFFFF) << 38 | ((long) sectionY & 0xFFF) << 26
+            | ((long) sectionZ & 0x3FFFFFF);
+    }
+
+    private static class Section {
+
+        final long[] solid = new long[4096 / 64];
+        final IBitOctree surface = new SimpleBitOctree();
+        // Increased by the writer every time a voxel of this section changes
+        volatile int version;
+        // The cuboids of the solid voxels, merged by whichever reader first needed them
+        private volatile MergedCuboids mergedCuboids;
+
+        int[] getCuboids() {
+            int currentVersion = version;
+            MergedCuboids merged = mergedCuboids;
+            if (merged == null || merged.version != currentVersion) {
+                // If the writer changes a voxel while this is merging, the version won't match
+                // next time and it gets merged again.
+                merged = new MergedCuboids(currentVersion, GreedyCuboidMesher.mesh(solid));
+                mergedCuboids = merged;
+            }
+            return merged.cuboids;
+        }
+
+        boolean isSolid(int x, int y, int z) {
+            int index = getIndex(x, y, z);
+            return (solid[index >> 6] & (1L << index)) != 0;
+        }
+
+        void setSolid(int x, int y, int z, boolean isSolid) {
+            int index = getIndex(x, y, z);
+            if (isSolid) {
+                solid[index >> 6] |= 1L << index;
+            } else {
+                solid[index >> 6] &= ~(1L << index);
+            }
+        }
+
+        private static int getIndex(int x, int y, int z) {
+            return y << 8 | z << 4 | x;
+        }
+    }
+
+    private static class MergedCuboids {
+
+        final int version;
+        final int[] cuboids;
+
+        MergedCuboids(int version, int[] cuboids) {
+            this.version = version;
+            this.cuboids = cuboids;
+        }
+    }
+
+    @FunctionalInterface
+    public interface CuboidConsumer {
+
+        void accept(int minX, int minY, int minZ, int maxX, int maxY, int maxZ);
+
+    }
+}
@@ -0,0 +1,185 @@
+package org.valkyrienskies.mod.common.util.multithreaded;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * A fixed number of named daemon threads with a bounded queue, for work that shouldn't have to
+ * compete with whatever else is running in a shared pool. When the queue is full the thread that
+ * submitted the work runs it itself, so the queue never grows past its capacity and submitting
+ * never blocks.
+ * <p>
+ * Keeps track of how busy its threads are, so that we can tell whether it has enough of them.
+ */
+@Log4j2
+public class BoundedWorkerPool {
+
+    @Getter
+    private final String name;
+    @Getter
+    private final int threadCount;
+    @Getter
+    private final int queueCapacity;
+    private final ThreadPoolExecutor executor;
+    // The statistics since the last reset()
+    private final AtomicLong busyNanos;
+    private final AtomicLong tasksRun;
+    private final AtomicLong tasksRunByCaller;
+    private final AtomicInteger maxQueueDepth;
+    private volatile long resetTimeNanos;
+
+    public BoundedWorkerPool(String name, int threadCount, int queueCapacity) {
+        this.name = name;
+        this.threadCount = threadCount;
+        this.queueCapacity = queueCapacity;
+        AtomicInteger workerID = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threadCount, threadCount, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                Thread thread = new Thread(runnable, name + " " + workerID.getAndIncrement());
+                thread.setDaemon(true);
+                thread.setUncaughtExceptionHandler((t, throwable) ->
+                    log.error("Uncaught exception in " + t.getName(), throwable));
+                return thread;
+            }, (runnable, pool) -> runByCaller(runnable));
+        this.busyNanos = new AtomicLong();
+        this.tasksRun = new AtomicLong();
+        this.tasksRunByCaller = new AtomicLong();
+        this.maxQueueDepth = new AtomicInteger();
+        this.resetTimeNanos = System.nanoTime();
+    }
+
+    /**
+     * Runs all the given tasks and waits for them to finish. The calling thread runs the last
+     * task itself instead of waiting idly. Exceptions thrown by tasks are logged, and don't stop
+     * the other tasks.
+     * <p>
+     * If the calling thread is interrupted, the tasks that haven't started yet are skipped, but
+     * this still waits for the running ones, so that nothing is still writing their results once
+     * this returns.
+     *
+     * @return True if every task ran and finished normally. Otherwise the results of the tasks
+     * are incomplete.
+     */
+    public boolean invokeAll(List<? extends Runnable> tasks) {
+        if (tasks.isEmpty()) {
+            return true;
+        }
+        AtomicBoolean cancelled = new AtomicBoolean(false);
+        AtomicBoolean failed = new AtomicBoolean(false);
+        CountDownLatch finished = new CountDownLatch(tasks.size());
+        for (int i = 0; i < tasks.size() - 1; i++) {
+            executor.execute(guarded(tasks.get(i), cancelled, failed, finished));
+            maxQueueDepth.accumulateAndGet(executor.getQueue().size(), Math::max);
+        }
+        guarded(tasks.get(tasks.size() - 1), cancelled, failed, finished).run();
+        tasksRunByCaller.incrementAndGet();
+        try {
+            finished.await();
+        } catch (InterruptedException e) {
+            cancelled.set(true);
+            // The running tasks are still writing their results
+            Uninterruptibles.awaitUninterruptibly(finished);
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return !failed.get();
+    }
+
+    /**
+     * @return The number of tasks waiting for a thread right now.
+     */
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * @return The most tasks that were waiting for a thread at once since the last reset.
+     */
+    public int getMaxQueueDepth() {
+        return maxQueueDepth.get();
+    }
+
+    public long getTasksRun() {
+        return tasksRun.get();
+    }
+
+    /**
+     * @return The number of tasks since the last reset that were run by the thread that submitted
+     * them, either because the queue was full or because it was the last task of {@link
+     * #invokeAll(List)}.
+     */
+    public long getTasksRunByCaller() {
+        return tasksRunByCaller.get();
+    }
+
+    /**
+     * @return The fraction of the time since the last reset that the threads of this pool (and
+     * callers running tasks for it) spent running tasks. Can go above 1 when callers helped out.
+     */
+    public double getUtilisation() {
+        long elapsedNanos = System.nanoTime() - resetTimeNanos;
+        if (elapsedNanos <= 0) {
+            return 0;
+        }
+        return (double) busyNanos.get() / ((double) elapsedNanos * threadCount);
+    }
+
+    public void resetStatistics() {
+        busyNanos.set(0);
+        tasksRun.set(0);
+        tasksRunByCaller.set(0);
+        maxQueueDepth.set(0);
+        resetTimeNanos = System.nanoTime();
+    }
+
+    private void runByCaller(Runnable runnable) {
+        tasksRunByCaller.incrementAndGet();
+        runnable.run();
+    }
+
+    /**
+     * Wraps task so that it's skipped once cancelled is set, sets failed unless it finishes
+     * normally, and counts down finished either way.
+     */
+    private Runnable guarded(Runnable task, AtomicBoolean cancelled, AtomicBoolean failed,
+        CountDownLatch finished) {
+        Runnable measuredTask = measured(task);
+        return () -> {
+            boolean succeeded = false;
+            try {
+                if (!cancelled.get()) {
+                    measuredTask.run();
+                    succeeded = true;
+                }
+            } catch (RuntimeException e) {
+                log.error("Cache rebuild task failed in " + name, e);
+            } finally {
+                if (!succeeded) {
+                    failed.set(true);
+                }
+                finished.countDown();
+            }
+        };
+    }
+
+    private Runnable measured(Runnable task) {
+        return () -> {
+            long startTime = System.nanoTime();
+            try {
+                task.run();
+            } finally {
+                busyNanos.addAndGet(System.nanoTime() - startTime);
+                tasksRun.incrementAndGet();
+            }
+        };
+    }
+}
@@ -0,0 +1,137 @@
+package org.valkyrienskies.mod.common.util.multithreaded;
+
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntSupplier;
+import lombok.Getter;
+
+/**
+ * Decides when physics ticks run. Physics ticks are scheduled on a fixed grid of one tick every
+ * {@link #tickPeriodNano}, the scheduler waits (with {@link LockSupport#parkNanos(long)}, so waits
+ * aren't truncated to whole milliseconds) until the next tick is due, and then reports how many
+ * ticks are due.
+ * <p>
+ * If we fall behind, up to {@code maxCatchUpSteps} ticks are run back-to-back to catch up. Any
+ * debt beyond that is forgiven rather than carried over, so one lag spike can't cause seconds of
+ * physics bursts afterwards.
+ * <p>
+ * If a tick consistently takes longer than its period then catching up is hopeless, so the
+ * scheduler enters overload mode. In overload mode ticks are run one at a time, spaced slightly
+ * further apart than they take to run, so the simulation slows down smoothly in proportion to
+ * the load instead of alternating between stalls and bursts that starve the game thread.
+ */
+public class PhysicsTickScheduler {
+
+    // How much the average tick time moves towards each new tick time.
+    private static final double TICK_TIME_SMOOTHING = .05;
+    // Enter overload mode when ticks take this much of the tick period on average.
+    private static final double OVERLOAD_ENTER_LOAD = .95;
+    // Leave overload mode once ticks take less than this much of the tick period on average.
+    private static final double OVERLOAD_EXIT_LOAD = .8;
+    // In overload mode, ticks are spaced this much further apart than they take to run.
+    private static final double OVERLOAD_HEADROOM = 1.05;
+
+    @Getter
+    private final long tickPeriodNano;
+    private final IntSupplier maxCatchUpSteps;
+    // The time the next tick is due to run.
+    private long nextTickTimeNano;
+    // Exponential moving average of how long a single tick takes to run.
+    private volatile double averageTickTimeNano;
+    /**
+     * If true then ticks are taking longer than the tick period, and the simulation is running
+     * slower than real time.
+     */
+    @Getter
+    private volatile boolean overloaded;
+
+    /**
+     * @param tickPeriodNano  The real time between physics ticks.
+     * @param maxCatchUpSteps The most ticks that may be run back-to-back to catch up. This is a
+     *                        supplier so that config changes take effect immediately.
+     */
+    public PhysicsTickScheduler(long tickPeriodNano, IntSupplier maxCatchUpSteps) {
+        if (tickPeriodNano <= 0) {
+            throw new IllegalArgumentException("Tick period must be positive, was " + tickPeriodNano);
+        }
+        this.tickPeriodNano = tickPeriodNano;
+        this.maxCatchUpSteps = maxCatchUpSteps;
+        this.nextTickTimeNano = System.nanoTime();
+        this.averageTickTimeNano = 0;
+        this.overloaded = false;
+    }
+
+    /**
+     * Blocks until the next physics tick is due.
+     *
+     * @param keepWaiting Checked every time the thread wakes up. If it returns false then we stop
+     *                    waiting and return 0.
+     * @return The number of physics ticks that should be run now, at least 1 unless we stopped
+     * waiting early.
+     */
+    public int awaitNextTicks(BooleanSupplier keepWaiting) {
+        long now = System.nanoTime();
+        while (now - nextTickTimeNano < 0) {
+            if (!keepWaiting.getAsBoolean()) {
+                return 0;
+            }
+            LockSupport.parkNanos(this, nextTickTimeNano - now);
+            now = System.nanoTime();
+        }
+
+        if (overloaded) {
+            // Don't try to catch up, we already can't keep up. Just space the ticks out according
+            // to how long they're taking.
+            nextTickTimeNano = now + (long) (averageTickTimeNano * OVERLOAD_HEADROOM);
+            return 1;
+        }
+
+        int maxSteps = Math.max(1, maxCatchUpSteps.getAsInt());
+        long ticksDue = (now - nextTickTimeNano) / tickPeriodNano + 1;
+        int ticksToRun = (int) Math.min(ticksDue, maxSteps);
+        nextTickTimeNano += ticksToRun * tickPeriodNano;
+        if (ticksDue > maxSteps) {
+            // We're further behind than we're allowed to catch up, forgive the rest.
+            nextTickTimeNano = now + tickPeriodNano;
+        }
+        return ticksToRun;
+    }
+
+    /**
+     * Forgets any ticks we're behind on and schedules the next tick one period from now.
+     */
+    public void restartTickGrid() {
+        nextTickTimeNano = System.nanoTime() + tickPeriodNano;
+    }
+
+    /**
+     * Must be called after every physics tick with how long that tick took to run.
+     */
+    public void onTickFinished(long tickTimeNano) {
+        if (averageTickTimeNano == 0) {
+            averageTickTimeNano = tickTimeNano;
+        } else {
+            averageTickTimeNano += (tickTimeNano - averageTickTimeNano) * TICK_TIME_SMOOTHING;
+        }
+
+        double load = averageTickTimeNano / tickPeriodNano;
+        if (!overloaded && load > OVERLOAD_ENTER_LOAD) {
+            overloaded = true;
+        } else if (overloaded && load < OVERLOAD_EXIT_LOAD) {
+            overloaded = false;
+            // Start again on the grid from now, don't try to make up for the time we were
+            // overloaded.
+            restartTickGrid();
+        }
+    }
+
+    /**
+     * @return How fast the simulation is running compared to real time, 1 when not overloaded.
+     */
+    public double getSimulationSpeed() {
+        if (!overloaded) {
+            return 1;
+        }
+        return Math.min(1, tickPeriodNano / (averageTickTimeNano * OVERLOAD_HEADROOM));
+    }
+}
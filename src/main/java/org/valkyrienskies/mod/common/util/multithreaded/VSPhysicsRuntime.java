@@ -0,0 +1,180 @@
+package org.valkyrienskies.mod.common.util.multithreaded;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+import org.valkyrienskies.mod.common.config.VSConfig;
+
+/**
+ * Runs the physics of every world. There is a single scheduler thread that decides when physics
+ * ticks happen, and a single work-stealing pool that every world's physics tick (and every task
+ * those ticks fork, such as collision tasks) runs on. This way idle worlds cost nothing, and a
+ * single busy world can use every physics thread.
+ * <p>
+ * The scheduler thread parks while no worlds are registered.
+ */
+@Log4j2
+public class VSPhysicsRuntime {
+
+    private final static long NS_PER_TICK = 10000000;
+    // The number of physics ticks to be considered in the average tick time.
+    private final static long TICK_TIME_QUEUE = 100;
+    // The most collision cache tasks that can wait for a thread, beyond that physics threads run
+    // them themselves.
+    private final static int COLLISION_CACHE_QUEUE_CAPACITY = 256;
+
+    @Getter
+    private final ForkJoinPool workerPool;
+    /**
+     * Finds the world blocks close enough to big ships to collide with, see {@link
+     * org.valkyrienskies.mod.common.collision.WorldPhysicsCollider}. Separate from the worker pool
+     * so that how long that takes doesn't depend on what else the worker pool is doing.
+     */
+    @Getter
+    private final BoundedWorkerPool collisionCachePool;
+    @Getter
+    private final PhysicsTickScheduler scheduler;
+    private final List<WorldPhysicsTicker> worlds;
+    private final Queue<Long> latestPhysicsTickTimes;
+    private final Thread schedulerThread;
+
+    /**
+     * @param threadCount               The number of threads in the worker pool.
+     * @param collisionCacheThreadCount The number of threads in the collision cache pool.
+     */
+    public VSPhysicsRuntime(int threadCount, int collisionCacheThreadCount) {
+        AtomicInteger workerID = new AtomicInteger();
+        this.workerPool = new ForkJoinPool(threadCount, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("VS Physics Worker " + workerID.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }, (thread, throwable) -> log.error("Uncaught exception in " + thread.getName(), throwable), false);
+        this.collisionCachePool = new BoundedWorkerPool("VS Collision Cache Worker",
+            collisionCacheThreadCount, COLLISION_CACHE_QUEUE_CAPACITY);
+        this.scheduler = new PhysicsTickScheduler(NS_PER_TICK, () -> VSConfig.maxPhysicsCatchUpTicks);
+        this.worlds = new CopyOnWriteArrayList<>();
+        this.latestPhysicsTickTimes = new ConcurrentLinkedQueue<>();
+        this.schedulerThread = new Thread(this::run, "VS Physics Scheduler");
+        this.schedulerThread.setDaemon(true);
+        this.schedulerThread.start();
+    }
+
+    /**
+     * Starts ticking the physics of the given world.
+     */
+    public void registerWorld(WorldPhysicsTicker ticker) {
+        worlds.add(ticker);
+        LockSupport.unpark(schedulerThread);
+        log.trace("Started ticking physics for " + ticker.getName());
+    }
+
+    /**
+     * Stops ticking the physics of the given world. A physics tick of that world that is already
+     * running will still finish.
+     */
+    public void unregisterWorld(WorldPhysicsTicker ticker) {
+        worlds.remove(ticker);
+        log.trace("Stopped ticking physics for " + ticker.getName());
+    }
+
+    /**
+     * Runs all the given tasks in the worker pool and waits for them to finish. When called from
+     * within the worker pool the calling thread works on the tasks too.
+     */
+    public void invokeAll(Collection<? extends Callable<?>> tasks) {
+        if (ForkJoinTask.getPool() == workerPool) {
+            List<ForkJoinTask<?>> forkJoinTasks = new ArrayList<>(tasks.size());
+            for (Callable<?> task : tasks) {
+                forkJoinTasks.add(ForkJoinTask.adapt(task));
+            }
+            try {
+                ForkJoinTask.invokeAll(forkJoinTasks);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        } else {
+            workerPool.invokeAll(tasks);
+        }
+    }
+
+    private void run() {
+        long lastTicksEndNano = System.nanoTime();
+        while (true) {
+            if (worlds.isEmpty()) {
+                LockSupport.park(this);
+                // Don't try to catch up on the time we spent with nothing to do.
+                scheduler.restartTickGrid();
+                lastTicksEndNano = System.nanoTime();
+                continue;
+            }
+
+            int ticksToRun = scheduler.awaitNextTicks(() -> !worlds.isEmpty());
+            for (int i = 0; i < ticksToRun; i++) {
+                long startOfPhysicsTickTimeNano = System.nanoTime();
+                // Run the physics code
+                tickAllWorlds();
+                scheduler.onTickFinished(System.nanoTime() - startOfPhysicsTickTimeNano);
+            }
+
+            if (ticksToRun > 0) {
+                long endOfTicksNano = System.nanoTime();
+                // Update the average tick time here, each of the ticks we just ran gets an equal
+                // share of the real time that passed.
+                long deltaTickTimeFullNano = (endOfTicksNano - lastTicksEndNano) / ticksToRun;
+                lastTicksEndNano = endOfTicksNano;
+                for (int i = 0; i < ticksToRun; i++) {
+                    latestPhysicsTickTimes.add(deltaTickTimeFullNano);
+                }
+                while (latestPhysicsTickTimes.size() > TICK_TIME_QUEUE) {
+                    // Remove the head of this queue.
+                    latestPhysicsTickTimes.poll();
+                }
+            }
+        }
+    }
+
+    private void tickAllWorlds() {
+        List<ForkJoinTask<?>> worldTicks = new ArrayList<>(worlds.size());
+        for (WorldPhysicsTicker ticker : worlds) {
+            // Skip worlds with nothing to simulate
+            if (ticker.hasWork()) {
+                worldTicks.add(workerPool.submit(ticker::tick));
+            }
+        }
+        for (ForkJoinTask<?> worldTick : worldTicks) {
+            try {
+                worldTick.join();
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * @return The average runtime of the last 100 physics ticks in nanoseconds.
+     */
+    public long getAveragePhysicsTickTimeNano() {
+        if (latestPhysicsTickTimes.size() >= TICK_TIME_QUEUE) {
+            long average = 0;
+            for (Long tickTime : latestPhysicsTickTimes) {
+                average += tickTime;
+            }
+            return average / TICK_TIME_QUEUE;
+        }
+        // If we don't have enough data to get an average, just assume its the ideal
+        // tick time.
+        return NS_PER_TICK;
+    }
+}
@@ -0,0 +1,391 @@
+package org.valkyrienskies.mod.common.util.multithreaded;
+
+import com.google.common.collect.ImmutableList;
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+import net.minecraft.client.Minecraft;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.world.World;
+import net.minecraftforge.fml.relauncher.Side;
+import net.minecraftforge.fml.relauncher.SideOnly;
+import org.valkyrienskies.mod.common.ValkyrienSkiesMod;
+import org.valkyrienskies.mod.common.config.VSConfig;
+import org.valkyrienskies.mod.common.collision.ShipBroadphase;
+import org.valkyrienskies.mod.common.collision.ShipCollisionTask;
+import org.valkyrienskies.mod.common.collision.ShipShipCollider;
+import org.valkyrienskies.mod.common.ships.ship_world.IHasShipManager;
+import org.valkyrienskies.mod.common.ships.ship_world.PhysicsObject;
+import org.valkyrienskies.mod.common.util.profiling.PhysicsTickProfiler;
+import org.valkyrienskies.mod.common.util.profiling.PhysicsTickProfiler.PhysicsPhase;
+import org.valkyrienskies.mod.common.util.profiling.PhysicsTickProfiler.ShipProfile;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Handles all the physics processing for a world separate from the game tick. The ticks
+ * themselves are run by the {@link VSPhysicsRuntime} shared between all worlds.
+ *
+ * @author thebest108
+ */
+@Log4j2
+public class WorldPhysicsTicker {
+
+    // How often (in physics ticks) the profiles of ships that no longer exist are thrown away.
+    private final static int PROFILER_PRUNE_INTERVAL = 100;
+    // Used to give each world ticker a unique name
+    private static final AtomicInteger tickerID = new AtomicInteger();
+    @Getter
+    private final String name;
+    private final World hostWorld;
+    // The ships we will be ticking physics for every tick, and sending those
+    // updates to players.
+    private int physicsTicksCount;
+
+    private Queue<Runnable> taskQueue;
+    private ImmutableList<PhysicsObject> immutableShipsList;
+    private final ConcurrentLinkedQueue<IPhysTimeTask> recurringTasks;
+    @Getter
+    private final PhysicsTickProfiler profiler;
+    /**
+     * The ships whose AABBs overlap, as of the last physics tick. Only kept up to date while {@link
+     * VSConfig#shipShipCollisions} is enabled, and only safe to use from the physics thread.
+     */
+    @Getter
+    private final ShipBroadphase broadphase;
+    private final ShipShipCollider shipShipCollider;
+
+    public WorldPhysicsTicker(World host) {
+        this.name = "VS World Ticker " + tickerID.getAndIncrement();
+        this.hostWorld = host;
+        this.physicsTicksCount = 0;
+        this.taskQueue = new ConcurrentLinkedQueue<>();
+        this.immutableShipsList = ImmutableList.of();
+        this.recurringTasks = new ConcurrentLinkedQueue<>();
+        this.profiler = new PhysicsTickProfiler();
+        this.broadphase = new ShipBroadphase();
+        this.shipShipCollider = new ShipShipCollider();
+        log.trace(name + " created.");
+    }
+
+    @SideOnly(Side.CLIENT)
+    private static boolean isSinglePlayerPaused() {
+        return Minecraft.getMinecraft().isGamePaused();
+    }
+
+    public void addScheduledTask(Runnable r) {
+        taskQueue.add(r);
+    }
+
+    public void addRecurringTask(IPhysTimeTask physTask) {
+        recurringTasks.add(physTask);
+    }
+
+    /**
+     * @return False if ticking this world would do nothing, so the tick can be skipped.
+     */
+    boolean hasWork() {
+        return !taskQueue.isEmpty() || !recurringTasks.isEmpty()
+            || !((IHasShipManager) hostWorld).getManager().getAllLoadedThreadSafe().isEmpty();
+    }
+
+    /**
+     * Runs a single physics tick of this world. Called by the {@link VSPhysicsRuntime} from its
+     * worker pool, never concurrently with itself.
+     */
+    void tick() {
+        runGameLoop();
+    }
+
+    private void runGameLoop() {
+        // First update the references to ships from the thread
+        immutableShipsList = ((IHasShipManager) hostWorld).getManager().getAllLoadedThreadSafe();
+
+        // Run tasks queued to run on physics thread
+        recurringTasks.forEach(task -> task.runTask(VSConfig.timeSimulatedPerPhysicsTick));
+        taskQueue.forEach(Runnable::run);
+        taskQueue.clear();
+
+        MinecraftServer mcServer = hostWorld.getMinecraftServer();
+        assert mcServer != null;
+        if (mcServer.isServerRunning()) {
+            if (mcServer.isDedicatedServer()) {
+                // Always tick the physics
+                physicsTick();
+            } else {
+                // Only tick the physics if the game isn't paused
+                if (!isSinglePlayerPaused()) {
+                    physicsTick();
+                }
+            }
+        }
+    }
+
+    // The whole time need to be careful the game thread isn't messing with these
+    // values.
+    private void physicsTick() {
+
+        // Make a sublist of physics objects to process physics on.
+        List<ShipTick> shipTicks = new ArrayList<>();
+        for (PhysicsObject physicsObject : immutableShipsList) {
+            if (physicsObject.isPhysicsEnabled() && physicsObject.getCachedSurroundingChunks().isCached()) {
+                int ticksToSimulate = physicsObject.getPhysicsCalculations()
+                    .prepareForPhysicsTick(getPhysicsTickInterval(physicsObject));
+                if (ticksToSimulate > 0) {
+                    shipTicks.add(new ShipTick(physicsObject,
+                        profiler.getShipProfile(physicsObject.getUuid(), physicsObject.getName()),
+                        ticksToSimulate * VSConfig.timeSimulatedPerPhysicsTick,
+                        isUsingCoarseCollision(physicsObject)));
+                }
+            }
+        }
+
+        // Tick ship physics here
+        long startTime = System.nanoTime();
+        tickThePhysicsAndCollision(shipTicks);
+        profiler.recordWorld(PhysicsPhase.TOTAL, System.nanoTime() - startTime);
+
+        physicsTicksCount++;
+        if (physicsTicksCount % PROFILER_PRUNE_INTERVAL == 0) {
+            Set<UUID> loadedShips = new HashSet<>();
+            for (PhysicsObject physicsObject : immutableShipsList) {
+                loadedShips.add(physicsObject.getUuid());
+            }
+            profiler.retainShips(loadedShips);
+        }
+    }
+
+    /**
+     * @return How many physics ticks pass between each time the given ship is simulated, based on
+     * how far away the closest player is.
+     */
+    private static int getPhysicsTickInterval(PhysicsObject ship) {
+        VSConfig.PhysicsLodSettings settings = VSConfig.PHYSICS_LOD_SETTINGS;
+        if (!settings.enabled) {
+            return 1;
+        }
+        double distance = ship.getNearestPlayerDistance();
+        if (distance >= settings.farDistance) {
+            return settings.farTickInterval;
+        } else if (distance >= settings.midDistance) {
+            return settings.midTickInterval;
+        }
+        return 1;
+    }
+
+    private static boolean isUsingCoarseCollision(PhysicsObject ship) {
+        VSConfig.PhysicsLodSettings settings = VSConfig.PHYSICS_LOD_SETTINGS;
+        return settings.enabled && settings.farCoarseCollision
+            && ship.getNearestPlayerDistance() >= settings.farDistance;
+    }
+
+    /**
+     * Ticks physics and collision for the List of PhysicsWrapperEntity passed in.
+     * <p>
+     * Every ship goes through the same three stages: pre-collision (forces, collision cache and
+     * splitting into collision tasks), the collision tasks, and then collision resolution with
+     * post-collision. The collision tasks of all ships always run in parallel. If {@link
+     * VSConfig#parallelShipPhysics} is enabled then the other two stages run in parallel across
+     * ships as well, which is safe because ships don't touch each other's physics. Either way
+     * every ship finishes a stage before any ship starts the next.
+     */
+    private void tickThePhysicsAndCollision(List<ShipTick> shipTicks) {
+        boolean parallel = VSConfig.parallelShipPhysics && shipTicks.size() > 1;
+
+        runStage(shipTicks, parallel, ShipTick::tickPreCollision);
+
+        List<ShipCollisionTask> collisionTasks = new ArrayList<>(
+            shipTicks.size() * 2);
+        for (ShipTick shipTick : shipTicks) {
+            // Small ships already ran their collision tasks themselves
+            if (!shipTick.collisionRanInline) {
+                collisionTasks.addAll(shipTick.collisionTasks);
+            }
+        }
+        long collisionTasksStart = System.nanoTime();
+        try {
+            // The individual collision tasks will sort through a lot of data to find
+            // collision points
+            ValkyrienSkiesMod.getPHYSICS_RUNTIME().invokeAll(collisionTasks);
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+        // The world gets the wall time of the fan-out, each ship gets the cpu time of its tasks.
+        profiler.recordWorld(PhysicsPhase.COLLISION_TASKS, System.nanoTime() - collisionTasksStart);
+
+        if (VSConfig.shipShipCollisions) {
+            long shipCollisionsStart = System.nanoTime();
+            try {
+                collideShips(shipTicks);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+            profiler.recordWorld(PhysicsPhase.SHIP_COLLISIONS, System.nanoTime() - shipCollisionsStart);
+        }
+
+        runStage(shipTicks, parallel, ShipTick::tickPostCollision);
+
+        // The world gets the sum of the ships' times for every other phase.
+        for (PhysicsPhase phase : new PhysicsPhase[] {PhysicsPhase.PRE_COLLISION,
+            PhysicsPhase.COLLISION_CACHE_UPDATE, PhysicsPhase.SPLIT_COLLISION_TASKS,
+            PhysicsPhase.PROCESS_COLLISIONS, PhysicsPhase.POST_COLLISION}) {
+            long phaseTime = 0;
+            for (ShipTick shipTick : shipTicks) {
+                phaseTime += shipTick.profile.getTickTime(phase);
+            }
+            profiler.recordWorld(phase, phaseTime);
+        }
+        for (ShipTick shipTick : shipTicks) {
+            shipTick.profile.commitTick();
+        }
+    }
+
+    /**
+     * Pushes apart the ships that are simulated this tick and whose blocks overlap. Runs on this
+     * thread alone, since every pair changes the velocities of both its ships. Ships that aren't
+     * simulated this tick don't get pushed, but sleeping ones are woken up by ships touching them.
+     */
+    private void collideShips(List<ShipTick> shipTicks) {
+        List<PhysicsObject> physicsShips = new ArrayList<>(immutableShipsList.size());
+        for (PhysicsObject physicsObject : immutableShipsList) {
+            if (physicsObject.isPhysicsEnabled()) {
+                physicsShips.add(physicsObject);
+            }
+        }
+        broadphase.update(physicsShips);
+
+        Set<PhysicsObject> simulatedShips = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (ShipTick shipTick : shipTicks) {
+            simulatedShips.add(shipTick.ship);
+        }
+        for (ShipBroadphase.ShipPair pair : broadphase.getOverlappingPairs()) {
+            boolean firstSimulated = simulatedShips.contains(pair.getFirst());
+            boolean secondSimulated = simulatedShips.contains(pair.getSecond());
+            if (firstSimulated && secondSimulated) {
+                shipShipCollider.collide(pair);
+            } else if (firstSimulated && pair.getSecond().getPhysicsCalculations().isSleeping()) {
+                pair.getSecond().getPhysicsCalculations().wakeUp();
+            } else if (secondSimulated && pair.getFirst().getPhysicsCalculations().isSleeping()) {
+                pair.getFirst().getPhysicsCalculations().wakeUp();
+            }
+        }
+    }
+
+    /**
+     * Runs one stage for every ship, and returns once every ship has finished it.
+     */
+    private static void runStage(List<ShipTick> shipTicks, boolean parallel, Consumer<ShipTick> stage) {
+        if (parallel) {
+            List<Callable<Void>> stageTasks = new ArrayList<>(shipTicks.size());
+            for (ShipTick shipTick : shipTicks) {
+                stageTasks.add(() -> {
+                    stage.accept(shipTick);
+                    return null;
+                });
+            }
+            ValkyrienSkiesMod.getPHYSICS_RUNTIME().invokeAll(stageTasks);
+        } else {
+            shipTicks.forEach(stage);
+        }
+    }
+
+    /**
+     * The work of a single ship over a single physics tick. Only one thread touches a ShipTick at
+     * a time.
+     */
+    private static class ShipTick {
+
+        final PhysicsObject ship;
+        final ShipProfile profile;
+        final List<ShipCollisionTask> collisionTasks;
+        // The seconds of simulation time to advance the ship by
+        final double timeStep;
+        final boolean coarseCollision;
+        // True if the collision tasks were run by tickPreCollision() instead of the worker pool
+        boolean collisionRanInline;
+
+        ShipTick(PhysicsObject ship, ShipProfile profile, double timeStep, boolean coarseCollision) {
+            this.ship = ship;
+            this.profile = profile;
+            this.collisionTasks = new ArrayList<>();
+            this.timeStep = timeStep;
+            this.coarseCollision = coarseCollision;
+        }
+
+        void tickPreCollision() {
+            // Update the physics simulation
+            long startTime = System.nanoTime();
+            long preCollisionEnd = startTime;
+            long cacheUpdateEnd = startTime;
+            long splitEnd = startTime;
+            try {
+                ship.getPhysicsCalculations().rawPhysTickPreCol(timeStep);
+                ship.getPhysicsCalculations().getWorldCollision().setCoarseCollision(coarseCollision);
+                preCollisionEnd = System.nanoTime();
+                // Update the collision task if necessary
+                ship.getPhysicsCalculations().getWorldCollision()
+                        .tickUpdatingTheCollisionCache();
+                cacheUpdateEnd = System.nanoTime();
+                // Take the big collision and split into tiny ones
+                ship.getPhysicsCalculations().getWorldCollision()
+                        .splitIntoCollisionTasks(collisionTasks,
+                            ValkyrienSkiesMod.getPHYSICS_RUNTIME().getWorkerPool().getParallelism());
+                splitEnd = System.nanoTime();
+                // Not worth handing to another thread, tickPostCollision() records the time
+                if (ship.getPhysicsCalculations().getWorldCollision().shouldRunCollisionTasksInline()) {
+                    collisionRanInline = true;
+                    for (ShipCollisionTask task : collisionTasks) {
+                        task.call();
+                    }
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+            // If something threw then the phases after it get no time, rather than garbage.
+            preCollisionEnd = Math.max(preCollisionEnd, startTime);
+            cacheUpdateEnd = Math.max(cacheUpdateEnd, preCollisionEnd);
+            splitEnd = Math.max(splitEnd, cacheUpdateEnd);
+            profile.add(PhysicsPhase.PRE_COLLISION, preCollisionEnd - startTime);
+            profile.add(PhysicsPhase.COLLISION_CACHE_UPDATE, cacheUpdateEnd - preCollisionEnd);
+            profile.add(PhysicsPhase.SPLIT_COLLISION_TASKS, splitEnd - cacheUpdateEnd);
+        }
+
+        void tickPostCollision() {
+            // The collision points found by the collision tasks have to be solved
+            // sequentially. Thankfully this step is not cpu intensive.
+            long startTime = System.nanoTime();
+            for (ShipCollisionTask task : collisionTasks) {
+                profile.add(PhysicsPhase.COLLISION_TASKS, task.getComputeTimeNano());
+                profile.recordCollisionTask(task.getComputeTimeNano());
+                try {
+                    task.getToTask().processCollisionTask(task);
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }
+            try {
+                ship.getPhysicsCalculations().getWorldCollision().solveContacts();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+            long processEnd = System.nanoTime();
+            try {
+                ship.getPhysicsCalculations().rawPhysTickPostCol();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+            profile.add(PhysicsPhase.PROCESS_COLLISIONS, processEnd - startTime);
+            profile.add(PhysicsPhase.POST_COLLISION, System.nanoTime() - processEnd);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package org.valkyrienskies.mod.common.util.profiling;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.Getter;
+
+/**
+ * Records how long each phase of a physics tick takes, both for a whole world and for every ship
+ * in it, so that we can tell which phase is responsible when a physics tick runs over budget.
+ * <p>
+ * Only physics threads record into this; any thread may read or reset it.
+ */
+public class PhysicsTickProfiler {
+
+    private final Map<PhysicsPhase, LatencyHistogram> worldHistograms;
+    private final Map<UUID, ShipProfile> shipProfiles;
+
+    public PhysicsTickProfiler() {
+        Map<PhysicsPhase, LatencyHistogram> histograms = new EnumMap<>(PhysicsPhase.class);
+        for (PhysicsPhase phase : PhysicsPhase.values()) {
+            histograms.put(phase, new LatencyHistogram());
+        }
+        this.worldHistograms = Collections.unmodifiableMap(histograms);
+        this.shipProfiles = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Records the time a phase took across the whole world for a single physics tick.
+     */
+    public void recordWorld(PhysicsPhase phase, long nanos) {
+        worldHistograms.get(phase).record(nanos);
+    }
+
+    public LatencyHistogram getWorldHistogram(PhysicsPhase phase) {
+        return worldHistograms.get(phase);
+    }
+
+    /**
+     * Gets or creates the profile of the ship with the given UUID.
+     */
+    public ShipProfile getShipProfile(UUID shipID, String shipName) {
+        ShipProfile profile = shipProfiles.computeIfAbsent(shipID, ShipProfile::new);
+        profile.shipName = shipName;
+        return profile;
+    }
+
+    public Collection<ShipProfile> getShipProfiles() {
+        return Collections.unmodifiableCollection(shipProfiles.values());
+    }
+
+    /**
+     * Drops the profiles of ships that are no longer being simulated, otherwise unloaded ships
+     * would pile up in here forever.
+     */
+    public void retainShips(Collection<UUID> shipIDs) {
+        shipProfiles.keySet().retainAll(shipIDs);
+    }
+
+    public void reset() {
+        worldHistograms.values().forEach(LatencyHistogram::reset);
+        shipProfiles.clear();
+    }
+
+    /**
+     * The phase timings of a single ship. Timings are accumulated with {@link #add(PhysicsPhase,
+     * long)} over the course of a tick, then recorded into the histograms by {@link
+     * #commitTick()}.
+     */
+    public static class ShipProfile {
+
+        @Getter
+        private final UUID shipID;
+        @Getter
+        private volatile String shipName;
+        private final Map<PhysicsPhase, LatencyHistogram> histograms;
+        // The time each single collision task of this ship took
+        @Getter
+        private final LatencyHistogram collisionTaskHistogram;
+        // Only touched by one physics thread at a time
+        private final long[] currentTick;
+        private int currentTickCollisionTasks;
+        /**
+         * The number of collision tasks of this ship in the last committed tick.
+         */
+        @Getter
+        private volatile int collisionTaskCount;
+
+        private ShipProfile(UUID shipID) {
+            this.shipID = shipID;
+            this.histograms = new EnumMap<>(PhysicsPhase.class);
+            for (PhysicsPhase phase : PhysicsPhase.values()) {
+                histograms.put(phase, new LatencyHistogram());
+            }
+            this.collisionTaskHistogram = new LatencyHistogram();
+            this.currentTick = new long[PhysicsPhase.values().length];
+        }
+
+        public void add(PhysicsPhase phase, long nanos) {
+            currentTick[phase.ordinal()] += nanos;
+        }
+
+        /**
+         * Records the time a single collision task took. The time also has to be added to {@link
+         * PhysicsPhase#COLLISION_TASKS} separately.
+         */
+        public void recordCollisionTask(long nanos) {
+            collisionTaskHistogram.record(nanos);
+            currentTickCollisionTasks++;
+        }
+
+        /**
+         * @return The time accumulated for the given phase this tick, so far.
+         */
+        public long getTickTime(PhysicsPhase phase) {
+            return currentTick[phase.ordinal()];
+        }
+
+        /**
+         * Records the phase times accumulated this tick, and their sum as {@link
+         * PhysicsPhase#TOTAL}.
+         */
+        public void commitTick() {
+            long total = 0;
+            for (PhysicsPhase phase : PhysicsPhase.values()) {
+                if (phase == PhysicsPhase.TOTAL) {
+                    continue;
+                }
+                long nanos = currentTick[phase.ordinal()];
+                histograms.get(phase).record(nanos);
+                total += nanos;
+                currentTick[phase.ordinal()] = 0;
+            }
+            histograms.get(PhysicsPhase.TOTAL).record(total);
+            collisionTaskCount = currentTickCollisionTasks;
+            currentTickCollisionTasks = 0;
+        }
+
+        public LatencyHistogram getHistogram(PhysicsPhase phase) {
+            return histograms.get(phase);
+        }
+    }
+
+    public enum PhysicsPhase {
+        PRE_COLLISION("pre-collision"),
+        COLLISION_CACHE_UPDATE("collision cache update"),
+        SPLIT_COLLISION_TASKS("split collision tasks"),
+        COLLISION_TASKS("collision tasks"),
+        PROCESS_COLLISIONS("process collisions"),
+        POST_COLLISION("post-collision"),
+        /**
+         * Collisions between ships, only recorded for the world.
+         */
+        SHIP_COLLISIONS("ship collisions"),
+        /**
+         * The entire tick for a world, or the sum of the other phases for a ship.
+         */
+        TOTAL("total");
+
+        @Getter
+        private final String displayName;
+
+        PhysicsPhase(String displayName) {
+            this.displayName = displayName;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package org.valkyrienskies.mod.common.capability;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import net.minecraft.nbt.NBTBase;
+import net.minecraft.nbt.NBTTagByteArray;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.util.math.AxisAlignedBB;
+import net.minecraft.util.math.ChunkPos;
+import org.joml.Vector3d;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.valkyrienskies.mod.common.ships.QueryableShipData;
+import org.valkyrienskies.mod.common.ships.ShipData;
+import org.valkyrienskies.mod.common.ships.chunk_claims.VSChunkClaim;
+import org.valkyrienskies.mod.common.ships.persistence.ShipRegionFile;
+import org.valkyrienskies.mod.common.ships.ship_transform.ShipTransform;
+import org.valkyrienskies.mod.common.util.jackson.VSJacksonUtil;
+
+public class VSWorldDataCapabilityTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static Set<UUID> getUuids(QueryableShipData ships) {
+        Set<UUID> uuids = new HashSet<>();
+        for (ShipData ship : ships) {
+            uuids.add(ship.getUuid());
+        }
+        return uuids;
+    }
+
+    /**
+     * Worlds saved before the ships had their own file have all of them in an NBT byte array. They
+     * have to load, and the next save has to write every one of them to the ship file.
+     */
+    @Test
+    public void testOldWorldsAreUpgraded() throws IOException {
+        File file = tempDir.resolve("ships.dat").toFile();
+        ObjectMapper mapper = VSJacksonUtil.getDefaultMapper();
+
+        VSWorldDataCapability old = new VSWorldDataCapability(mapper);
+        QueryableShipData ships = old.get().getQueryableShipData();
+        for (int i = 0; i < 5; i++) {
+            ships.addShip(ShipData.createData(ships.getAllShips(), "ship " + i,
+                new VSChunkClaim(new ChunkPos(320000 + i * 100, 0)), UUID.randomUUID(),
+                new ShipTransform(new Vector3d(i, 64, 0), new Vector3d()),
+                new AxisAlignedBB(0, 0, 0, 1, 1, 1)));
+        }
+        Set<UUID> uuids = getUuids(ships);
+        NBTBase oldNBT = old.writeNBT(null);
+        assertThat(oldNBT, instanceOf(NBTTagByteArray.class));
+
+        VSWorldDataCapability upgraded = new VSWorldDataCapability(mapper);
+        upgraded.setShipSaveFile(file);
+        assertThat(getUuids(upgraded.readNBT(oldNBT, null).getQueryableShipData()), equalTo(uuids));
+        NBTBase newNBT = upgraded.writeNBT(null);
+        upgraded.flushSaves();
+        assertThat(newNBT, instanceOf(NBTTagCompound.class));
+        assertThat(new ShipRegionFile(file).readAll().keySet(), equalTo(uuids));
+
+        VSWorldDataCapability reloaded = new VSWorldDataCapability(mapper);
+        reloaded.setShipSaveFile(file);
+        assertThat(getUuids(reloaded.readNBT(newNBT, null).getQueryableShipData()), equalTo(uuids));
+    }
+}
@@ -0,0 +1,127 @@
+package org.valkyrienskies.mod.common.collision;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.util.Random;
+import net.minecraft.util.math.AxisAlignedBB;
+import org.joml.Quaterniond;
+import org.joml.Vector3d;
+import org.joml.Vector3dc;
+import org.junit.jupiter.api.Test;
+import org.valkyrienskies.mod.common.ships.ship_transform.ShipTransform;
+import org.valkyrienskies.mod.common.ships.ship_transform.ShipTransformationManager;
+import valkyrienwarfare.api.TransformType;
+
+/**
+ * Checks that {@link BlockPolygonCollider} gives exactly the same results as colliding {@link
+ * Polygon}s with {@link PhysPolygonCollider} and {@link PolygonCollisionPointFinder}, and that its
+ * sweep finds when a moving ship box first touches a block.
+ */
+public class BlockPolygonColliderTest {
+
+    @Test
+    public void testMatchesPolygonCollider() {
+        Random random = new Random(1337);
+        BlockPolygonCollider collider = new BlockPolygonCollider();
+        int collisions = 0;
+
+        for (int transformCount = 0; transformCount < 200; transformCount++) {
+            ShipTransform transform = new ShipTransform(
+                random.nextDouble() * 1000 - 500, random.nextDouble() * 256,
+                random.nextDouble() * 1000 - 500,
+                new Quaterniond().rotateXYZ(random.nextDouble() * 7, random.nextDouble() * 7,
+                    random.nextDouble() * 7),
+                new Vector3d(random.nextDouble() * 16, random.nextDouble() * 16,
+                    random.nextDouble() * 16));
+            Vector3dc[] axes = ShipTransformationManager.createCollisionNormals(transform);
+
+            for (int pairCount = 0; pairCount < 200; pairCount++) {
+                int shipX = random.nextInt(16), shipY = random.nextInt(16), shipZ = random.nextInt(16);
+                // Pick a world block next to where the ship block ended up
+                Vector3d shipBlockInWorld = new Vector3d(shipX + .5, shipY + .5, shipZ + .5);
+                transform.transformPosition(shipBlockInWorld, TransformType.SUBSPACE_TO_GLOBAL);
+                int worldX = (int) Math.floor(shipBlockInWorld.x) + random.nextInt(3) - 1;
+                int worldY = (int) Math.floor(shipBlockInWorld.y) + random.nextInt(3) - 1;
+                int worldZ = (int) Math.floor(shipBlockInWorld.z) + random.nextInt(3) - 1;
+
+                Polygon shipPoly = new Polygon(
+                    new AxisAlignedBB(shipX, shipY, shipZ, shipX + 1, shipY + 1, shipZ + 1),
+                    transform, TransformType.SUBSPACE_TO_GLOBAL);
+                Polygon worldPoly = new Polygon(
+                    new AxisAlignedBB(worldX, worldY, worldZ, worldX + 1, worldY + 1, worldZ + 1));
+                PhysPolygonCollider expected = new PhysPolygonCollider(shipPoly, worldPoly, axes);
+
+                boolean collided = collider.collide(shipX, shipY, shipZ, worldX, worldY, worldZ,
+                    transform, axes);
+                assertThat(collided, equalTo(!expected.seperated));
+                if (!collided) {
+                    continue;
+                }
+                collisions++;
+
+                assertThat(collider.getMinDistanceIndex(), equalTo(expected.minDistanceIndex));
+                for (int i = 0; i < axes.length; i++) {
+                    assertThat(collider.getPenetrationDistance(i),
+                        equalTo(expected.collisions[i].penetrationDistance));
+                }
+
+                for (int axisIndex = 0; axisIndex < axes.length; axisIndex++) {
+                    PhysCollisionObject expectedCollision = expected.collisions[axisIndex];
+                    Vector3dc[] expectedPoints = PolygonCollisionPointFinder
+                        .getPointsOfCollisionForPolygons(expectedCollision);
+                    collider.findContactPoints(axisIndex);
+
+                    assertThat(collider.getAxis(axisIndex),
+                        sameInstance(expectedCollision.collision_normal));
+                    assertThat(new Vector3d(collider.getContactTop()),
+                        equalTo(new Vector3d(expectedPoints[0])));
+                    assertThat(new Vector3d(collider.getContactBottom()),
+                        equalTo(new Vector3d(expectedPoints[1])));
+                }
+            }
+        }
+
+        // Make sure we actually tested some collisions
+        assertThat(collisions, greaterThan(1000));
+    }
+
+    @Test
+    public void testSweepUnrotated() {
+        // Some of the axes of an unrotated ship are cross products of parallel axes
+        ShipTransform transform = new ShipTransform(0, 0, 0, new Quaterniond(), new Vector3d());
+        Vector3dc[] axes = ShipTransformationManager.createCollisionNormals(transform);
+        BlockPolygonCollider collider = new BlockPolygonCollider();
+
+        // The box from x = 0 to 1 moves 4 blocks along x, and touches the block at x = 3 halfway
+        assertThat(collider.sweep(0, 64, 0, 1, 65, 1, 3, 64, 0, transform, axes,
+            new Vector3d(4, 0, 0)), closeTo(.5, 1e-9));
+        // Moving the other way it never gets there
+        assertThat(collider.sweep(0, 64, 0, 1, 65, 1, 3, 64, 0, transform, axes,
+            new Vector3d(-4, 0, 0)), equalTo(-1.0));
+        // Passes above the block
+        assertThat(collider.sweep(0, 66, 0, 1, 67, 1, 3, 64, 0, transform, axes,
+            new Vector3d(4, 0, 0)), equalTo(-1.0));
+        // Already touching at the start
+        assertThat(collider.sweep(0, 64, 0, 1, 65, 1, 0, 64, 0, transform, axes,
+            new Vector3d(4, 0, 0)), equalTo(-1.0));
+    }
+
+    @Test
+    public void testSweepOnlyTurnedAroundY() {
+        // Centered on z = .5, so the corner hits the middle of the side of the block
+        ShipTransform transform = new ShipTransform(0, 0, .5,
+            new Quaterniond().rotateY(Math.PI / 4), new Vector3d());
+        Vector3dc[] axes = ShipTransformationManager.createCollisionNormals(transform);
+        BlockPolygonCollider collider = new BlockPolygonCollider();
+
+        // Turned 45 degrees, the corner of the box sticks out sqrt(2) / 2 along x
+        assertThat(collider.sweep(-.5, 64, -.5, .5, 65, .5, 3, 64, 0, transform, axes,
+            new Vector3d(4, 0, 0)), closeTo((3 - Math.sqrt(2) / 2) / 4, 1e-9));
+        assertThat(collider.sweep(-.5, 64, -.5, .5, 65, .5, 3, 66, 0, transform, axes,
+            new Vector3d(4, 0, 0)), equalTo(-1.0));
+    }
+}
@@ -0,0 +1,45 @@
+package org.valkyrienskies.mod.common.collision;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+import org.junit.jupiter.api.Test;
+
+public class CollisionTaskSizerTest {
+
+    @Test
+    public void testSmallShipsRunInline() {
+        CollisionTaskSizer sizer = new CollisionTaskSizer();
+        sizer.recordTick(10, 10 * 1000);
+        assertThat(sizer.shouldRunInline(10), equalTo(true));
+        assertThat(sizer.getTaskSize(10, 8), equalTo(10));
+        assertThat(sizer.shouldRunInline(100000), equalTo(false));
+    }
+
+    @Test
+    public void testTaskSizeFollowsMeasuredCost() {
+        CollisionTaskSizer sizer = new CollisionTaskSizer();
+        for (int i = 0; i < 100; i++) {
+            sizer.recordTick(1000, 1000 * 100);
+        }
+        // 100ns per potential hit, so 500 of them make a task long enough to be worth forking
+        assertThat(sizer.getTaskSize(10000, 8), equalTo(500));
+
+        for (int i = 0; i < 100; i++) {
+            sizer.recordTick(1000, 1000 * 12000);
+        }
+        // 12us per potential hit, so a task only needs 5
+        assertThat(sizer.getTaskSize(100, 8), equalTo(5));
+    }
+
+    @Test
+    public void testHugeShipsAreSplitPerThread() {
+        CollisionTaskSizer sizer = new CollisionTaskSizer();
+        int potentialHits = 1000000;
+        int parallelism = 8;
+        int taskSize = sizer.getTaskSize(potentialHits, parallelism);
+        int taskCount = (potentialHits + taskSize - 1) / taskSize;
+        assertThat(taskCount, lessThanOrEqualTo(parallelism * CollisionTaskSizer.TASKS_PER_THREAD));
+    }
+}
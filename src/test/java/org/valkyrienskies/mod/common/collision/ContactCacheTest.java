@@ -0,0 +1,71 @@
+package org.valkyrienskies.mod.common.collision;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+
+import org.joml.Vector3d;
+import org.junit.jupiter.api.Test;
+
+public class ContactCacheTest {
+
+    private static CollisionInformationHolder createInfo(int worldX, int axisIndex) {
+        return new CollisionInformationHolder(new Vector3d(0, 1, 0), axisIndex, -.1,
+            new Vector3d(), new Vector3d(), worldX, 64, 0, 10, 20, 30, null, null);
+    }
+
+    @Test
+    public void testContactsAreKeyedByBlocksAndFeature() {
+        ContactCache cache = new ContactCache();
+        cache.nextStep();
+        ContactCache.Contact contact = cache.getContact(createInfo(5, 1), true);
+
+        assertThat(cache.getContact(createInfo(5, 1), true), sameInstance(contact));
+        assertThat(cache.getContact(createInfo(5, 1), false), not(sameInstance(contact)));
+        assertThat(cache.getContact(createInfo(5, 2), true), not(sameInstance(contact)));
+        assertThat(cache.getContact(createInfo(6, 1), true), not(sameInstance(contact)));
+    }
+
+    @Test
+    public void testWarmStart() {
+        ContactCache cache = new ContactCache();
+        cache.nextStep();
+        ContactCache.Contact contact = cache.getContact(createInfo(0, 1), true);
+        // New contacts don't get warm started
+        assertThat(cache.beginSolving(contact, .5), equalTo(true));
+        assertThat(contact.accumulatedImpulse, equalTo(0.0));
+        contact.accumulatedImpulse = 4;
+        contact.accumulatedFriction.set(.4, 0, 0);
+        // Beginning it again in the same step does nothing
+        assertThat(cache.beginSolving(contact, .5), equalTo(false));
+        assertThat(contact.accumulatedImpulse, equalTo(4.0));
+
+        cache.nextStep();
+        assertThat(cache.getContact(createInfo(0, 1), true), sameInstance(contact));
+        assertThat(cache.beginSolving(contact, .5), equalTo(true));
+        assertThat(contact.accumulatedImpulse, equalTo(2.0));
+        assertThat(contact.accumulatedFriction, equalTo(new Vector3d(.2, 0, 0)));
+    }
+
+    @Test
+    public void testStaleContactsExpire() {
+        ContactCache cache = new ContactCache();
+        cache.nextStep();
+        ContactCache.Contact contact = cache.getContact(createInfo(0, 1), true);
+        cache.beginSolving(contact, .5);
+        contact.accumulatedImpulse = 4;
+        contact.accumulatedFriction.set(.4, 0, 0);
+
+        // The contact wasn't solved in this step, so it's gone after the next one starts
+        cache.nextStep();
+        assertThat(cache.size(), equalTo(1));
+        cache.nextStep();
+        assertThat(cache.size(), equalTo(0));
+
+        ContactCache.Contact newContact = cache.getContact(createInfo(0, 1), true);
+        cache.beginSolving(newContact, .5);
+        assertThat(newContact.accumulatedImpulse, equalTo(0.0));
+        assertThat(newContact.accumulatedFriction, equalTo(new Vector3d()));
+    }
+}
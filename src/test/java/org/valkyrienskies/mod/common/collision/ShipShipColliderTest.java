@@ -0,0 +1,98 @@
+package org.valkyrienskies.mod.common.collision;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.joml.Quaterniond;
+import org.joml.Quaterniondc;
+import org.joml.Vector3d;
+import org.joml.Vector3dc;
+import org.junit.jupiter.api.Test;
+import org.valkyrienskies.mod.common.ships.ship_transform.ShipTransform;
+import valkyrienwarfare.api.TransformType;
+
+public class ShipShipColliderTest {
+
+    private final ShipShipCollider collider = new ShipShipCollider();
+
+    /**
+     * @return A single block, centered on position and turned by rotation.
+     */
+    private static ShipShipCollider.Box block(double x, double y, double z, Quaterniondc rotation) {
+        ShipTransform transform = new ShipTransform(x, y, z, rotation, new Vector3d());
+        ShipShipCollider.Box box = new ShipShipCollider.Box(ShipShipCollider.getAxes(
+            transform.createRotationMatrix(TransformType.SUBSPACE_TO_GLOBAL)));
+        box.set(new double[] {-.5, -.5, -.5, .5, .5, .5}, transform);
+        return box;
+    }
+
+    private static ShipShipCollider.Box block(double x, double y, double z) {
+        return block(x, y, z, new Quaterniond());
+    }
+
+    private static void assertVector(Vector3dc actual, double x, double y, double z) {
+        assertThat(actual.x(), closeTo(x, 1e-9));
+        assertThat(actual.y(), closeTo(y, 1e-9));
+        assertThat(actual.z(), closeTo(z, 1e-9));
+    }
+
+    @Test
+    public void testSeparated() {
+        assertThat(collider.findContact(block(0, 0, 0), block(1.5, 0, 0)), nullValue());
+        assertThat(collider.findContact(block(0, 0, 0), block(.9, 1.2, 0)), nullValue());
+    }
+
+    @Test
+    public void testTouching() {
+        // Touching faces don't push each other
+        assertThat(collider.findContact(block(0, 0, 0), block(1, 0, 0)), nullValue());
+
+        ShipShipCollider.Contact contact = collider.findContact(block(0, 0, 0), block(.9, 0, 0));
+        assertThat(contact, notNullValue());
+        assertThat(contact.penetration, closeTo(.1, 1e-9));
+        assertVector(contact.normal, -1, 0, 0);
+        // Halfway between the face of the first block inside the second, and the other way around
+        assertThat(contact.point.x, closeTo(.45, 1e-9));
+    }
+
+    @Test
+    public void testRotated() {
+        Quaterniond turned = new Quaterniond().rotateY(Math.PI / 4);
+        assertThat(collider.findContact(block(0, 0, 0), block(1.1, 0, 0)), nullValue());
+        // The corner of the turned block reaches further
+        ShipShipCollider.Contact contact = collider.findContact(block(0, 0, 0),
+            block(1.1, 0, 0, turned));
+        assertThat(contact, notNullValue());
+        assertThat(contact.penetration, closeTo(.5 + Math.sqrt(.5) - 1.1, 1e-9));
+        assertVector(contact.normal, -1, 0, 0);
+        // It is the corner of the turned block that's inside the other one
+        assertThat(contact.point.x, lessThan(.5));
+    }
+
+    @Test
+    public void testNormalDirection() {
+        // Always points from the second box towards the first
+        assertVector(collider.findContact(block(0, .9, 0), block(0, 0, 0)).normal, 0, 1, 0);
+        assertVector(collider.findContact(block(0, 0, 0), block(0, .9, 0)).normal, 0, -1, 0);
+        assertVector(collider.findContact(block(0, 0, -.8), block(0, 0, 0)).normal, 0, 0, -1);
+    }
+
+    @Test
+    public void testKeepNearest() {
+        List<double[]> boxes = new ArrayList<>();
+        for (int x = -200; x < 200; x++) {
+            boxes.add(new double[] {x, 0, 0, x + 1, 1, 1});
+        }
+        ShipShipCollider.keepNearest(boxes, 0, .5, .5);
+        assertThat(boxes.size(), equalTo(ShipShipCollider.MAX_BOXES_PER_SHIP));
+        for (double[] box : boxes) {
+            assertThat(Math.abs(box[0] + .5), lessThan(ShipShipCollider.MAX_BOXES_PER_SHIP / 2.0));
+        }
+    }
+}
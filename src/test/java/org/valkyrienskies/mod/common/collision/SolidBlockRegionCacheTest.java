@@ -0,0 +1,56 @@
+package org.valkyrienskies.mod.common.collision;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Consumer;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.gen.structure.StructureBoundingBox;
+import org.junit.jupiter.api.RepeatedTest;
+
+public class SolidBlockRegionCacheTest {
+
+    private static final Random random = new Random();
+
+    /**
+     * Makes sure the boxes given by forEachBoxInDifference cover exactly the blocks inside a but not
+     * inside b, without overlapping.
+     */
+    @RepeatedTest(100)
+    public void testForEachBoxInDifference() {
+        StructureBoundingBox a = randomBox();
+        StructureBoundingBox b = randomBox();
+
+        Set<BlockPos> expected = new HashSet<>();
+        forEachPos(a, pos -> {
+            if (!b.isVecInside(pos)) {
+                expected.add(pos);
+            }
+        });
+
+        Set<BlockPos> actual = new HashSet<>();
+        SolidBlockRegionCache.forEachBoxInDifference(a, b, box -> forEachPos(box, pos ->
+            assertThat("Boxes overlap at " + pos, actual.add(pos), equalTo(true))));
+
+        assertThat(actual, equalTo(expected));
+    }
+
+    private static StructureBoundingBox randomBox() {
+        int minX = random.nextInt(10), minY = random.nextInt(10), minZ = random.nextInt(10);
+        return new StructureBoundingBox(minX, minY, minZ, minX + random.nextInt(8),
+            minY + random.nextInt(8), minZ + random.nextInt(8));
+    }
+
+    private static void forEachPos(StructureBoundingBox box, Consumer<BlockPos> consumer) {
+        for (int x = box.minX; x <= box.maxX; x++) {
+            for (int y = box.minY; y <= box.maxY; y++) {
+                for (int z = box.minZ; z <= box.maxZ; z++) {
+                    consumer.accept(new BlockPos(x, y, z));
+                }
+            }
+        }
+    }
+}
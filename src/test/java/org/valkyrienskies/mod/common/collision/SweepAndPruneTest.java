@@ -0,0 +1,101 @@
+package org.valkyrienskies.mod.common.collision;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import net.minecraft.util.math.AxisAlignedBB;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+public class SweepAndPruneTest {
+
+    private static final Random random = new Random();
+
+    @Test
+    public void testTouchingBoxesOverlap() {
+        SweepAndPrune<String> sweepAndPrune = new SweepAndPrune<>();
+        Map<String, AxisAlignedBB> bounds = new HashMap<>();
+        bounds.put("a", new AxisAlignedBB(0, 0, 0, 1, 1, 1));
+        bounds.put("b", new AxisAlignedBB(1, 0, 0, 2, 1, 1));
+        bounds.put("c", new AxisAlignedBB(2.5, 0, 0, 3, 1, 1));
+        List<AxisAlignedBB> overlaps = new ArrayList<>();
+        sweepAndPrune.update(bounds.keySet(), bounds::get,
+            (first, second, overlap) -> overlaps.add(overlap));
+        assertThat(overlaps, equalTo(Arrays.asList(new AxisAlignedBB(1, 0, 0, 1, 1, 1))));
+    }
+
+    /**
+     * Moves random boxes around, adding and removing some between updates, and makes sure the
+     * pairs found are exactly the ones a check of every pair finds.
+     */
+    @RepeatedTest(20)
+    public void testMatchesAllPairs() {
+        SweepAndPrune<Object> sweepAndPrune = new SweepAndPrune<>();
+        Map<Object, AxisAlignedBB> bounds = new HashMap<>();
+        for (int i = 0; i < 30; i++) {
+            bounds.put(new Object(), randomBox());
+        }
+        for (int update = 0; update < 50; update++) {
+            List<Object> objects = new ArrayList<>(bounds.keySet());
+            for (Object object : objects) {
+                int choice = random.nextInt(20);
+                if (choice == 0) {
+                    bounds.remove(object);
+                } else if (choice == 1) {
+                    // Moved far, or doesn't have bounds right now
+                    bounds.put(object, random.nextBoolean() ? randomBox() : null);
+                } else {
+                    AxisAlignedBB box = bounds.get(object);
+                    if (box != null) {
+                        bounds.put(object, box.offset(random.nextGaussian(), random.nextGaussian(),
+                            random.nextGaussian()));
+                    }
+                }
+            }
+            for (int i = random.nextInt(3); i > 0; i--) {
+                bounds.put(new Object(), randomBox());
+            }
+
+            Map<Set<Object>, AxisAlignedBB> found = new HashMap<>();
+            sweepAndPrune.update(bounds.keySet(), bounds::get, (first, second, overlap) ->
+                assertThat("Pair found twice", found.put(pair(first, second), overlap),
+                    equalTo(null)));
+
+            Map<Set<Object>, AxisAlignedBB> expected = new HashMap<>();
+            List<Object> all = new ArrayList<>(bounds.keySet());
+            for (int i = 0; i < all.size(); i++) {
+                for (int j = i + 1; j < all.size(); j++) {
+                    AxisAlignedBB a = bounds.get(all.get(i));
+                    AxisAlignedBB b = bounds.get(all.get(j));
+                    if (a != null && b != null && a.minX <= b.maxX && a.maxX >= b.minX
+                        && a.minY <= b.maxY && a.maxY >= b.minY && a.minZ <= b.maxZ && a.maxZ >= b.minZ) {
+                        expected.put(pair(all.get(i), all.get(j)), new AxisAlignedBB(
+                            Math.max(a.minX, b.minX), Math.max(a.minY, b.minY), Math.max(a.minZ, b.minZ),
+                            Math.min(a.maxX, b.maxX), Math.min(a.maxY, b.maxY), Math.min(a.maxZ, b.maxZ)));
+                    }
+                }
+            }
+            assertThat(found, equalTo(expected));
+        }
+    }
+
+    private static Set<Object> pair(Object first, Object second) {
+        return new HashSet<>(Arrays.asList(first, second));
+    }
+
+    private static AxisAlignedBB randomBox() {
+        double x = random.nextDouble() * 60;
+        double y = random.nextDouble() * 20;
+        double z = random.nextDouble() * 20;
+        return new AxisAlignedBB(x, y, z, x + random.nextDouble() * 10, y + random.nextDouble() * 10,
+            z + random.nextDouble() * 10);
+    }
+}
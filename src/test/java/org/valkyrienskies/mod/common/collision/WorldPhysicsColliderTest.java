@@ -0,0 +1,98 @@
+package org.valkyrienskies.mod.common.collision;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
+
+import java.util.HashSet;
+import java.util.Set;
+import net.minecraft.util.math.BlockPos;
+import org.joml.Quaterniond;
+import org.joml.Vector3d;
+import org.joml.Vector3dc;
+import org.junit.jupiter.api.Test;
+import org.valkyrienskies.mod.common.ships.ship_transform.ShipTransform;
+import org.valkyrienskies.mod.common.ships.ship_transform.ShipTransformationManager;
+import org.valkyrienskies.mod.common.util.datastructures.SurfaceVoxelSet;
+
+/**
+ * Checks when {@link WorldPhysicsCollider} updates its collision cache, and that its continuous
+ * collision detection stops fast ships at the first block in their way.
+ */
+public class WorldPhysicsColliderTest {
+
+    private static double sweep(SurfaceVoxelSet ship, ShipTransform transform,
+        Set<BlockPos> world, Vector3dc displacement) {
+        Vector3dc[] axes = ShipTransformationManager.createCollisionNormals(transform);
+        return WorldPhysicsCollider.sweepForTimeOfImpact(ship, transform, axes,
+            (x, y, z) -> world.contains(new BlockPos(x, y, z)), displacement);
+    }
+
+    @Test
+    public void testCacheUpdates() {
+        // A resting ship keeps its cache for a while
+        assertThat(WorldPhysicsCollider.isCacheOutdated(.1, 0), equalTo(false));
+        assertThat(WorldPhysicsCollider.isCacheOutdated(WorldPhysicsCollider.MAX_CACHE_AGE + .01, 0),
+            equalTo(true));
+        // A moving one updates it once it could have moved into blocks that aren't in it
+        assertThat(WorldPhysicsCollider.isCacheOutdated(.1, .5), equalTo(false));
+        assertThat(WorldPhysicsCollider.isCacheOutdated(.1,
+            WorldPhysicsCollider.CACHE_UPDATE_DISTANCE + .01), equalTo(true));
+    }
+
+    @Test
+    public void testFastUnrotatedShipStopsInFrontOfWall() {
+        SurfaceVoxelSet ship = new SurfaceVoxelSet();
+        ship.setSolid(0, 64, 0, true);
+        ship.setSolid(1, 64, 0, true);
+        ShipTransform transform = new ShipTransform(0, 0, 0, new Quaterniond(), new Vector3d());
+        Set<BlockPos> world = new HashSet<>();
+        world.add(new BlockPos(5, 64, 0));
+
+        // Far enough in one step to end up past the wall
+        Vector3d displacement = new Vector3d(10, 0, 0);
+        double timeOfImpact = sweep(ship, transform, world, displacement);
+        // The shrunk box reaches the wall once the ship moved 3.2 blocks
+        assertThat(timeOfImpact, closeTo(.32, 1e-9));
+        // Only as far into the wall as the contact solver can handle
+        assertThat(2 + displacement.x * timeOfImpact, lessThan(5.5));
+
+        // Nothing in the way
+        assertThat(sweep(ship, transform, world, new Vector3d(-10, 0, 0)), equalTo(1.0));
+    }
+
+    @Test
+    public void testFastShipTurnedAroundYStopsInFrontOfWall() {
+        SurfaceVoxelSet ship = new SurfaceVoxelSet();
+        ship.setSolid(0, 64, 0, true);
+        ship.setSolid(0, 64, 1, true);
+        // Turns the ship blocks from along z to along x, from z = -1 to 0
+        ShipTransform transform = new ShipTransform(0, 0, 0,
+            new Quaterniond().rotateY(Math.PI / 2), new Vector3d());
+        Set<BlockPos> world = new HashSet<>();
+        world.add(new BlockPos(5, 64, -1));
+
+        assertThat(sweep(ship, transform, world, new Vector3d(10, 0, 0)), closeTo(.32, 1e-9));
+    }
+
+    @Test
+    public void testRestingShipSlidingAlongTheGroundIsNotAnImpact() {
+        SurfaceVoxelSet ship = new SurfaceVoxelSet();
+        ship.setSolid(0, 65, 0, true);
+        ship.setSolid(1, 65, 0, true);
+        // Sunk a little into the ground, like ships resting on it are
+        ShipTransform transform = new ShipTransform(0, -.1, 0, new Quaterniond(), new Vector3d());
+        Set<BlockPos> world = new HashSet<>();
+        for (int x = -2; x < 16; x++) {
+            for (int z = -2; z < 3; z++) {
+                world.add(new BlockPos(x, 64, z));
+            }
+        }
+
+        assertThat(sweep(ship, transform, world, new Vector3d(10, 0, 0)), equalTo(1.0));
+        // But it does hit a wall on the ground
+        world.add(new BlockPos(8, 65, 0));
+        assertThat(sweep(ship, transform, world, new Vector3d(10, 0, 0)), closeTo(.62, 1e-9));
+    }
+}
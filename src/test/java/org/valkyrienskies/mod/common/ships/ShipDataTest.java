@@ -1,9 +1,24 @@
 package org.valkyrienskies.mod.common.ships;
 
+import net.minecraft.util.math.AxisAlignedBB;
+import net.minecraft.util.math.ChunkPos;
+import org.joml.Vector3d;
 import org.junit.jupiter.api.Test;
 import org.valkyrienskies.mod.common.ships.ShipData;
+import org.valkyrienskies.mod.common.ships.chunk_claims.VSChunkClaim;
+import org.valkyrienskies.mod.common.ships.ship_transform.ShipTransform;
+import org.valkyrienskies.mod.common.util.cqengine.ConcurrentUpdatableIndexedCollection;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class ShipDataTest {
 
@@ -15,4 +30,29 @@ public class ShipDataTest {
         });
     }
 
+    @Test
+    public void testSnapshotsOnlyCopyChangedForcePositions() {
+        VSChunkClaim claim = new VSChunkClaim(new ChunkPos(320000, 0));
+        ShipData shipData = ShipData.createData(new ConcurrentUpdatableIndexedCollection<>(), "test", claim,
+            UUID.randomUUID(), new ShipTransform(new Vector3d(), new Vector3d()), new AxisAlignedBB(0, 0, 0, 1, 1, 1));
+        int x = claim.getCenterPos().getXStart(), z = claim.getCenterPos().getZStart();
+        shipData.activeForcePositions.add(x, 10, z);
+
+        ShipDataSnapshot first = shipData.publishSnapshot();
+        ShipDataSnapshot second = shipData.publishSnapshot();
+        assertTrue(second.sharesForcePositionsWith(first));
+        assertThat(second.getVersion(), equalTo(first.getVersion() + 1));
+
+        shipData.activeForcePositions.add(x + 1, 20, z);
+        ShipDataSnapshot third = shipData.publishSnapshot();
+        assertFalse(third.sharesForcePositionsWith(second));
+        assertThat(third.getForcePositionCount(), equalTo(2));
+
+        // Snapshots taken before the change still see the old positions
+        List<Integer> ys = new ArrayList<>();
+        second.forEachForcePosition((posX, posY, posZ) -> ys.add(posY));
+        assertThat(ys, contains(10));
+        assertThat(shipData.getSnapshot(), equalTo(third));
+    }
+
 }
@@ -0,0 +1,96 @@
+package org.valkyrienskies.mod.common.ships.persistence;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.minecraft.util.math.AxisAlignedBB;
+import net.minecraft.util.math.ChunkPos;
+import org.joml.Vector3d;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.valkyrienskies.mod.common.ships.QueryableShipData;
+import org.valkyrienskies.mod.common.ships.ShipData;
+import org.valkyrienskies.mod.common.ships.chunk_claims.VSChunkClaim;
+import org.valkyrienskies.mod.common.ships.ship_transform.ShipTransform;
+import org.valkyrienskies.mod.common.util.cqengine.ConcurrentUpdatableIndexedCollection;
+import org.valkyrienskies.mod.common.util.jackson.VSJacksonUtil;
+
+public class ShipDataStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Counts how many ships it encodes.
+     */
+    private static class CountingMapper extends CBORMapper {
+
+        final AtomicInteger shipsEncoded = new AtomicInteger();
+
+        CountingMapper() {
+            VSJacksonUtil.configureMapper(this);
+        }
+
+        @Override
+        public byte[] writeValueAsBytes(Object value) throws JsonProcessingException {
+            if (value instanceof ShipData) {
+                shipsEncoded.incrementAndGet();
+            }
+            return super.writeValueAsBytes(value);
+        }
+    }
+
+    private static QueryableShipData createShips(int count) {
+        ConcurrentUpdatableIndexedCollection<ShipData> collection = new ConcurrentUpdatableIndexedCollection<>();
+        for (int i = 0; i < count; i++) {
+            collection.add(ShipData.createData(collection, "ship " + i,
+                new VSChunkClaim(new ChunkPos(320000 + i * 100, 0)), UUID.randomUUID(),
+                new ShipTransform(new Vector3d(i, 64, 0), new Vector3d()), new AxisAlignedBB(0, 0, 0, 1, 1, 1)));
+        }
+        return new QueryableShipData(collection);
+    }
+
+    @Test
+    public void testUnchangedShipsAreNotEncodedAgain() throws IOException {
+        File file = tempDir.resolve("ships.dat").toFile();
+        CountingMapper mapper = new CountingMapper();
+        ShipDataStore store = new ShipDataStore(file, mapper);
+        QueryableShipData ships = createShips(3);
+
+        store.save(ships);
+        store.flush();
+        assertThat(mapper.shipsEncoded.get(), equalTo(3));
+
+        // Nothing changed
+        store.save(ships);
+        store.flush();
+        assertThat(mapper.shipsEncoded.get(), equalTo(3));
+
+        ShipData renamed = ships.iterator().next();
+        renamed.setName("renamed");
+        store.save(ships);
+        store.flush();
+        assertThat(mapper.shipsEncoded.get(), equalTo(4));
+
+        // Only the renamed ship was written again, but the file has all of them
+        Map<UUID, String> names = new HashMap<>();
+        for (ShipData ship : new ShipDataStore(file, mapper).load()) {
+            names.put(ship.getUuid(), ship.getName());
+        }
+        Map<UUID, String> expected = new HashMap<>();
+        for (ShipData ship : ships) {
+            expected.put(ship.getUuid(), ship.getName());
+        }
+        assertThat(names, equalTo(expected));
+        assertThat(names.get(renamed.getUuid()), equalTo("renamed"));
+    }
+}
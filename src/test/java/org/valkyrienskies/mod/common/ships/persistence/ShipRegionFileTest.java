@@ -0,0 +1,89 @@
+package org.valkyrienskies.mod.common.ships.persistence;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ShipRegionFileTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testReadsBackWhatWasWritten() throws IOException {
+        File file = tempDir.resolve("ships.dat").toFile();
+        Random random = new Random(42);
+        List<UUID> uuids = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            uuids.add(UUID.randomUUID());
+        }
+        Map<UUID, byte[]> expected = new HashMap<>();
+        ShipRegionFile regionFile = new ShipRegionFile(file);
+        for (int step = 0; step < 200; step++) {
+            Map<UUID, byte[]> toWrite = new HashMap<>();
+            for (int i = 0; i < 5; i++) {
+                UUID uuid = uuids.get(random.nextInt(uuids.size()));
+                if (random.nextInt(5) == 0) {
+                    expected.remove(uuid);
+                    toWrite.remove(uuid);
+                } else {
+                    // Sometimes larger than a sector
+                    byte[] bytes = new byte[random.nextInt(random.nextBoolean() ? 100 : 20000)];
+                    random.nextBytes(bytes);
+                    expected.put(uuid, bytes);
+                    toWrite.put(uuid, bytes);
+                }
+            }
+            regionFile.write(toWrite, expected.keySet());
+            if (step % 20 == 0) {
+                // Also check that a file that was just opened finds the records
+                regionFile = new ShipRegionFile(file);
+                assertContentsEqual(regionFile.readAll(), expected);
+            }
+        }
+        assertContentsEqual(new ShipRegionFile(file).readAll(), expected);
+    }
+
+    @Test
+    public void testKeepsOldRecordWhenNewOneIsCorrupted() throws IOException {
+        File file = tempDir.resolve("ships.dat").toFile();
+        UUID uuid = UUID.randomUUID();
+        ShipRegionFile regionFile = new ShipRegionFile(file);
+        regionFile.write(Collections.singletonMap(uuid, new byte[] {1, 2, 3}), Collections.singleton(uuid));
+        long oldLength = file.length();
+
+        // Copy the record to the next sector with a higher generation and a broken payload, like a crash would
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            byte[] record = new byte[(int) oldLength];
+            randomAccessFile.readFully(record);
+            record[11]++; // The lowest byte of the generation
+            record[36] = 9; // The first byte of the payload
+            randomAccessFile.seek(oldLength);
+            randomAccessFile.write(record);
+        }
+
+        Map<UUID, byte[]> contents = new ShipRegionFile(file).readAll();
+        assertThat(contents.size(), equalTo(1));
+        assertThat(contents.get(uuid), equalTo(new byte[] {1, 2, 3}));
+    }
+
+    private static void assertContentsEqual(Map<UUID, byte[]> actual, Map<UUID, byte[]> expected) {
+        assertThat(actual.keySet(), equalTo(expected.keySet()));
+        for (Map.Entry<UUID, byte[]> entry : expected.entrySet()) {
+            assertThat(actual.get(entry.getKey()), equalTo(entry.getValue()));
+        }
+    }
+}
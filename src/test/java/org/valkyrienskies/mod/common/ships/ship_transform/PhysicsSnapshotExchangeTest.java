@@ -0,0 +1,107 @@
+package org.valkyrienskies.mod.common.ships.ship_transform;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+
+import net.minecraft.util.math.AxisAlignedBB;
+import org.joml.Matrix4d;
+import org.joml.Quaterniond;
+import org.joml.Vector3d;
+import org.junit.jupiter.api.Test;
+
+public class PhysicsSnapshotExchangeTest {
+
+    @Test
+    public void testReadBeforePublish() {
+        PhysicsSnapshotExchange exchange = new PhysicsSnapshotExchange();
+        PhysicsSnapshotExchange.Snapshot snapshot = new PhysicsSnapshotExchange.Snapshot();
+        assertThat(exchange.read(snapshot), equalTo(0L));
+    }
+
+    @Test
+    public void testReadLatestStep() {
+        PhysicsSnapshotExchange exchange = new PhysicsSnapshotExchange();
+        PhysicsSnapshotExchange.Snapshot snapshot = new PhysicsSnapshotExchange.Snapshot();
+        for (int step = 1; step <= 3; step++) {
+            publishStep(exchange, step);
+        }
+        assertThat(exchange.read(snapshot), equalTo(3L));
+        assertStepConsistent(snapshot);
+    }
+
+    @Test
+    public void testShipBBIsTransformed() {
+        PhysicsSnapshotExchange exchange = new PhysicsSnapshotExchange();
+        PhysicsSnapshotExchange.Snapshot snapshot = new PhysicsSnapshotExchange.Snapshot();
+        ShipTransform transform = new ShipTransform(10, 20, 30,
+            new Quaterniond().rotateY(Math.PI / 2), new Vector3d(.5, .5, .5));
+        exchange.publish(10, 20, 30, new Quaterniond().rotateY(Math.PI / 2), new Vector3d(.5, .5, .5),
+            transform.getSubspaceToGlobal(), new Vector3d(), new Vector3d(),
+            new AxisAlignedBB(0, 0, 0, 2, 1, 1));
+        exchange.read(snapshot);
+
+        AxisAlignedBB shipBB = snapshot.createShipBB();
+        assertThat(shipBB.minX, closeTo(9.5, 1e-9));
+        assertThat(shipBB.maxX, closeTo(10.5, 1e-9));
+        assertThat(shipBB.minY, closeTo(19.5, 1e-9));
+        assertThat(shipBB.maxY, closeTo(20.5, 1e-9));
+        assertThat(shipBB.minZ, closeTo(28.5, 1e-9));
+        assertThat(shipBB.maxZ, closeTo(30.5, 1e-9));
+    }
+
+    @Test
+    public void testNoShipBB() {
+        PhysicsSnapshotExchange exchange = new PhysicsSnapshotExchange();
+        PhysicsSnapshotExchange.Snapshot snapshot = new PhysicsSnapshotExchange.Snapshot();
+        exchange.publish(0, 0, 0, new Quaterniond(), new Vector3d(), new Matrix4d(), new Vector3d(),
+            new Vector3d(), null);
+        exchange.read(snapshot);
+        assertThat(snapshot.hasShipBB(), equalTo(false));
+    }
+
+    /**
+     * Every value of step n is n, so if the reader ever mixes two steps together we'll notice.
+     */
+    @Test
+    public void testConcurrentReadsAreConsistent() throws InterruptedException {
+        final long steps = 1000000;
+        PhysicsSnapshotExchange exchange = new PhysicsSnapshotExchange();
+        Thread writer = new Thread(() -> {
+            for (long step = 1; step <= steps; step++) {
+                publishStep(exchange, step);
+            }
+        });
+        writer.start();
+
+        PhysicsSnapshotExchange.Snapshot snapshot = new PhysicsSnapshotExchange.Snapshot();
+        long lastStep = 0;
+        while (lastStep < steps) {
+            long step = exchange.read(snapshot);
+            assertThat(step, greaterThanOrEqualTo(lastStep));
+            if (step != 0) {
+                assertStepConsistent(snapshot);
+            }
+            lastStep = step;
+        }
+        writer.join();
+        assertThat(exchange.getPublishedSteps(), equalTo(steps));
+    }
+
+    private static void publishStep(PhysicsSnapshotExchange exchange, long step) {
+        Vector3d value = new Vector3d(step, step, step);
+        exchange.publish(step, step, step, new Quaterniond(step, step, step, step), value,
+            new Matrix4d(), value, value, new AxisAlignedBB(0, 0, 0, step, step, step));
+    }
+
+    private static void assertStepConsistent(PhysicsSnapshotExchange.Snapshot snapshot) {
+        double step = snapshot.getStep();
+        assertThat(snapshot.getPosX(), equalTo(step));
+        assertThat(snapshot.getPosZ(), equalTo(step));
+        Vector3d velocity = new Vector3d();
+        assertThat(snapshot.getLinearVelocity(velocity).x, equalTo(step));
+        assertThat(snapshot.getAngularVelocity(velocity).z, equalTo(step));
+        assertThat(snapshot.createShipBB().maxY, equalTo(step));
+    }
+}
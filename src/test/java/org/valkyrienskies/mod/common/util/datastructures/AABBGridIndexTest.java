@@ -0,0 +1,75 @@
+package org.valkyrienskies.mod.common.util.datastructures;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import net.minecraft.util.math.AxisAlignedBB;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+public class AABBGridIndexTest {
+
+    @Test
+    public void testRemovedValuesAreNotFound() {
+        AABBGridIndex<Integer> index = new AABBGridIndex<>();
+        index.put(0, new AxisAlignedBB(0, 0, 0, 10, 10, 10));
+        index.put(1, new AxisAlignedBB(-500, 0, -500, 500, 10, 500));
+        index.remove(0);
+        index.remove(1);
+        assertThat(index.getIntersecting(new AxisAlignedBB(-1, -1, -1, 1, 1, 1)), empty());
+    }
+
+    @RepeatedTest(20)
+    public void testMatchesLinearScan() {
+        Random random = new Random();
+        AABBGridIndex<Integer> index = new AABBGridIndex<>();
+        Map<Integer, AxisAlignedBB> expected = new HashMap<>();
+        for (int step = 0; step < 2000; step++) {
+            int value = random.nextInt(100);
+            switch (random.nextInt(4)) {
+                case 0:
+                    index.remove(value);
+                    expected.remove(value);
+                    break;
+                case 1:
+                    // Moving a little, like ships do every tick
+                    if (expected.containsKey(value)) {
+                        AxisAlignedBB moved = expected.get(value)
+                            .offset(random.nextDouble() - .5, 0, random.nextDouble() - .5);
+                        index.update(value, moved);
+                        expected.put(value, moved);
+                    }
+                    break;
+                default:
+                    AxisAlignedBB aabb = randomAABB(random);
+                    index.put(value, aabb);
+                    expected.put(value, aabb);
+            }
+
+            AxisAlignedBB toCheck = randomAABB(random);
+            List<Integer> intersecting = new ArrayList<>();
+            expected.forEach((expectedValue, aabb) -> {
+                if (toCheck.intersects(aabb)) {
+                    intersecting.add(expectedValue);
+                }
+            });
+            assertThat(index.getIntersecting(toCheck),
+                containsInAnyOrder(intersecting.toArray(new Integer[0])));
+        }
+    }
+
+    private static AxisAlignedBB randomAABB(Random random) {
+        double x = random.nextDouble() * 2000 - 1000;
+        double y = random.nextDouble() * 256;
+        double z = random.nextDouble() * 2000 - 1000;
+        // Mostly ship sized, sometimes much larger than a column
+        double size = random.nextInt(10) == 0 ? random.nextDouble() * 1000 : random.nextDouble() * 50;
+        return new AxisAlignedBB(x, y, z, x + size, y + random.nextDouble() * 50, z + size);
+    }
+}
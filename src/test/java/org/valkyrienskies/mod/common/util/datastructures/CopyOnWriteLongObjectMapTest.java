@@ -0,0 +1,54 @@
+package org.valkyrienskies.mod.common.util.datastructures;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import net.minecraft.util.math.ChunkPos;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+public class CopyOnWriteLongObjectMapTest {
+
+    @Test
+    public void testShipyardChunks() {
+        CopyOnWriteLongObjectMap<String> map = new CopyOnWriteLongObjectMap<>();
+        // A ship claims a square of chunks far out in the shipyard
+        map.update(chunks -> {
+            for (int x = -7; x <= 7; x++) {
+                for (int z = -7; z <= 7; z++) {
+                    chunks.put(ChunkPos.asLong(x + 320000, z + 320000), "ship");
+                }
+            }
+        });
+        assertThat(map.size(), equalTo(225));
+        assertThat(map.get(ChunkPos.asLong(320007, 319993)), equalTo("ship"));
+        assertThat(map.get(ChunkPos.asLong(320008, 320000)), nullValue());
+        assertThat(map.get(ChunkPos.asLong(0, 0)), nullValue());
+    }
+
+    @RepeatedTest(20)
+    public void testMatchesHashMap() {
+        Random random = new Random();
+        CopyOnWriteLongObjectMap<Integer> map = new CopyOnWriteLongObjectMap<>();
+        Map<Long, Integer> expected = new HashMap<>();
+        for (int step = 0; step < 1000; step++) {
+            long key = random.nextInt(200) - 100;
+            if (random.nextBoolean()) {
+                int value = random.nextInt();
+                map.put(key, value);
+                expected.put(key, value);
+            } else {
+                map.remove(key);
+                expected.remove(key);
+            }
+            assertThat(map.size(), equalTo(expected.size()));
+            for (long toCheck = -100; toCheck < 100; toCheck++) {
+                assertThat(map.get(toCheck), equalTo(expected.get(toCheck)));
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package org.valkyrienskies.mod.common.util.datastructures;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+public class IndexedIntSetTest {
+
+    @Test
+    public void testRemoveMovesLastValue() {
+        IndexedIntSet set = new IndexedIntSet();
+        set.add(5);
+        set.add(-3);
+        set.add(7);
+        assertThat(set.add(-3), equalTo(false));
+        assertThat(set.remove(5), equalTo(true));
+        assertThat(set.remove(5), equalTo(false));
+        assertThat(set.size(), equalTo(2));
+        assertThat(set.get(0), equalTo(7));
+        assertThat(set.get(1), equalTo(-3));
+        // The moved value can still be removed
+        assertThat(set.remove(7), equalTo(true));
+        assertThat(set.get(0), equalTo(-3));
+    }
+
+    @RepeatedTest(20)
+    public void testMatchesHashSet() {
+        Random random = new Random();
+        IndexedIntSet set = new IndexedIntSet();
+        Set<Integer> expected = new HashSet<>();
+        for (int step = 0; step < 1000; step++) {
+            int value = random.nextInt(200) - 100;
+            if (random.nextBoolean()) {
+                assertThat(set.add(value), equalTo(expected.add(value)));
+            } else {
+                assertThat(set.remove(value), equalTo(expected.remove(value)));
+            }
+            if (random.nextInt(200) == 0) {
+                set.clear();
+                expected.clear();
+            }
+            assertThat(set.size(), equalTo(expected.size()));
+            Set<Integer> byIndex = new HashSet<>();
+            for (int index = 0; index < set.size(); index++) {
+                byIndex.add(set.get(index));
+            }
+            assertThat(byIndex, equalTo(expected));
+            for (int toCheck = -100; toCheck < 100; toCheck++) {
+                assertThat(set.contains(toCheck), equalTo(expected.contains(toCheck)));
+            }
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package org.valkyrienskies.mod.common.util.datastructures;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.util.Random;
+import org.junit.jupiter.api.RepeatedTest;
+
+public class SimpleBitOctreeTest {
+
+    private static final Random random = new Random();
+
+    /**
+     * Compares anySolidInBox() against checking every bit of the box, for octrees ranging from
+     * almost empty to almost full and for boxes that stick out of the octree.
+     */
+    @RepeatedTest(50)
+    public void testAnySolidInBox() {
+        SimpleBitOctree octree = new SimpleBitOctree();
+        int bitsToSet = random.nextInt(64);
+        for (int i = 0; i < bitsToSet; i++) {
+            octree.set(random.nextInt(16), random.nextInt(16), random.nextInt(16), true);
+        }
+
+        for (int i = 0; i < 1000; i++) {
+            int minX = random.nextInt(20) - 2, minY = random.nextInt(20) - 2, minZ = random.nextInt(20) - 2;
+            int maxX = minX + random.nextInt(10), maxY = minY + random.nextInt(10), maxZ = minZ + random.nextInt(10);
+            assertThat(octree.anySolidInBox(minX, minY, minZ, maxX, maxY, maxZ),
+                equalTo(bruteForce(octree, minX, minY, minZ, maxX, maxY, maxZ)));
+        }
+    }
+
+    private static boolean bruteForce(IBitOctree octree, int minX, int minY, int minZ, int maxX,
+        int maxY, int maxZ) {
+        for (int x = Math.max(minX, 0); x <= Math.min(maxX, 15); x++) {
+            for (int y = Math.max(minY, 0); y <= Math.min(maxY, 15); y++) {
+                for (int z = Math.max(minZ, 0); z <= Math.min(maxZ, 15); z++) {
+                    if (octree.get(x, y, z)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+}
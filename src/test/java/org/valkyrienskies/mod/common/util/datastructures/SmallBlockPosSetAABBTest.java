@@ -9,6 +9,29 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 
 public class SmallBlockPosSetAABBTest {
 
+    @Test
+    public void testCopyIsIndependent() {
+        SmallBlockPosSetAABB original = new SmallBlockPosSetAABB(0, 0, 0, 1024, 1024, 1024);
+        original.add(5, 10, 3);
+        original.add(-2, 5, 7);
+        SmallBlockPosSetAABB copy = original.copy();
+        assertEquals(original.makeAABB(), copy.makeAABB());
+
+        // Changing one doesn't change the other
+        original.add(100, 100, 100);
+        copy.remove(-2, 5, 7);
+        ExtremelyNaiveVoxelFieldAABBMaker originalAABBMaker = new ExtremelyNaiveVoxelFieldAABBMaker(0, 0);
+        originalAABBMaker.addVoxel(new BlockPos(5, 10, 3));
+        originalAABBMaker.addVoxel(new BlockPos(-2, 5, 7));
+        originalAABBMaker.addVoxel(new BlockPos(100, 100, 100));
+        ExtremelyNaiveVoxelFieldAABBMaker copyAABBMaker = new ExtremelyNaiveVoxelFieldAABBMaker(0, 0);
+        copyAABBMaker.addVoxel(new BlockPos(5, 10, 3));
+        assertEquals(originalAABBMaker.makeVoxelFieldAABB(), original.makeAABB());
+        assertEquals(copyAABBMaker.makeVoxelFieldAABB(), copy.makeAABB());
+        assertEquals(3, original.size());
+        assertEquals(1, copy.size());
+    }
+
     @Test
     public void testSmallBlockPosSetAABB() {
         SmallBlockPosSetAABB toTest = new SmallBlockPosSetAABB(0, 0, 0, 1024, 1024, 1024);
@@ -0,0 +1,169 @@
+package org.valkyrienskies.mod.common.util.datastructures;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+public class SurfaceVoxelSetTest {
+
+    private static final Random random = new Random();
+    // Crosses section borders on every axis, including negative coordinates
+    private static final int MIN = -20, MAX = 19;
+
+    @Test
+    public void testSolidCubeOnlyHasSurfaceOnTheOutside() {
+        SurfaceVoxelSet voxels = new SurfaceVoxelSet();
+        for (int x = 0; x < 5; x++) {
+            for (int y = 0; y < 5; y++) {
+                for (int z = 0; z < 5; z++) {
+                    voxels.setSolid(x, y, z, true);
+                }
+            }
+        }
+        assertThat(voxels.isSurface(0, 2, 2), equalTo(true));
+        assertThat(voxels.isSurface(2, 2, 2), equalTo(false));
+        assertThat(voxels.anySurfaceInBox(1, 1, 1, 3, 3, 3), equalTo(false));
+
+        // Digging a hole exposes the block under it
+        voxels.setSolid(2, 4, 2, false);
+        voxels.setSolid(2, 3, 2, false);
+        assertThat(voxels.isSurface(2, 2, 2), equalTo(true));
+        assertThat(voxels.anySurfaceInBox(1, 1, 1, 3, 3, 3), equalTo(true));
+    }
+
+    /**
+     * Randomly sets and clears voxels, then compares against working out the surface from
+     * scratch.
+     */
+    @RepeatedTest(20)
+    public void testMatchesBruteForce() {
+        int size = MAX - MIN + 1;
+        boolean[][][] solid = new boolean[size][size][size];
+        SurfaceVoxelSet voxels = new SurfaceVoxelSet();
+        for (int i = 0; i < 20000; i++) {
+            int x = MIN + random.nextInt(size), y = MIN + random.nextInt(size), z = MIN + random.nextInt(size);
+            // Bias towards solid so there are some interior voxels
+            boolean isSolid = random.nextInt(4) != 0;
+            solid[x - MIN][y - MIN][z - MIN] = isSolid;
+            voxels.setSolid(x, y, z, isSolid);
+        }
+
+        for (int x = MIN; x <= MAX; x++) {
+            for (int y = MIN; y <= MAX; y++) {
+                for (int z = MIN; z <= MAX; z++) {
+                    assertThat(voxels.isSolid(x, y, z), equalTo(isSolid(solid, x, y, z)));
+                    assertThat(voxels.isSurface(x, y, z), equalTo(isSurface(solid, x, y, z)));
+                }
+            }
+        }
+
+        for (int i = 0; i < 1000; i++) {
+            int minX = MIN + random.nextInt(size), minY = MIN + random.nextInt(size), minZ = MIN + random.nextInt(size);
+            int maxX = minX + random.nextInt(4), maxY = minY + random.nextInt(4), maxZ = minZ + random.nextInt(4);
+            boolean expected = false;
+            for (int x = minX; x <= maxX; x++) {
+                for (int y = minY; y <= maxY; y++) {
+                    for (int z = minZ; z <= maxZ; z++) {
+                        expected |= isSurface(solid, x, y, z);
+                    }
+                }
+            }
+            assertThat(voxels.anySurfaceInBox(minX, minY, minZ, maxX, maxY, maxZ), equalTo(expected));
+        }
+    }
+
+    @Test
+    public void testFlatDeckIsOneCuboidPerSection() {
+        SurfaceVoxelSet voxels = new SurfaceVoxelSet();
+        for (int x = 0; x < 32; x++) {
+            for (int z = 0; z < 16; z++) {
+                voxels.setSolid(x, 4, z, true);
+            }
+        }
+        List<int[]> cuboids = new ArrayList<>();
+        voxels.forEachCuboidInBox(-5, 0, -5, 40, 10, 40,
+            (minX, minY, minZ, maxX, maxY, maxZ) -> cuboids.add(new int[]{minX, minY, minZ, maxX, maxY, maxZ}));
+        assertThat(cuboids.size(), equalTo(2));
+
+        // Cuboids are clipped to the box
+        cuboids.clear();
+        voxels.forEachCuboidInBox(1, 3, 1, 2, 5, 2,
+            (minX, minY, minZ, maxX, maxY, maxZ) -> cuboids.add(new int[]{minX, minY, minZ, maxX, maxY, maxZ}));
+        assertThat(cuboids.size(), equalTo(1));
+        assertThat(cuboids.get(0), equalTo(new int[]{1, 4, 1, 2, 4, 2}));
+
+        // Only the changed section is merged again
+        voxels.setSolid(5, 4, 5, false);
+        cuboids.clear();
+        voxels.forEachCuboidInBox(-5, 0, -5, 40, 10, 40,
+            (minX, minY, minZ, maxX, maxY, maxZ) -> cuboids.add(new int[]{minX, minY, minZ, maxX, maxY, maxZ}));
+        assertThat(cuboids.size(), greaterThan(2));
+    }
+
+    /**
+     * The cuboids of random voxels must cover every solid voxel exactly once, and nothing else.
+     */
+    @RepeatedTest(20)
+    public void testCuboidsCoverSolidVoxels() {
+        int size = MAX - MIN + 1;
+        boolean[][][] solid = new boolean[size][size][size];
+        SurfaceVoxelSet voxels = new SurfaceVoxelSet();
+        for (int i = 0; i < 20000; i++) {
+            int x = MIN + random.nextInt(size), y = MIN + random.nextInt(size), z = MIN + random.nextInt(size);
+            boolean isSolid = random.nextInt(4) != 0;
+            solid[x - MIN][y - MIN][z - MIN] = isSolid;
+            voxels.setSolid(x, y, z, isSolid);
+        }
+
+        int[][][] coverCount = new int[size][size][size];
+        voxels.forEachCuboidInBox(MIN, MIN, MIN, MAX, MAX, MAX, (minX, minY, minZ, maxX, maxY, maxZ) -> {
+            for (int x = minX; x <= maxX; x++) {
+                for (int y = minY; y <= maxY; y++) {
+                    for (int z = minZ; z <= maxZ; z++) {
+                        coverCount[x - MIN][y - MIN][z - MIN]++;
+                    }
+                }
+            }
+        });
+        for (int x = MIN; x <= MAX; x++) {
+            for (int y = MIN; y <= MAX; y++) {
+                for (int z = MIN; z <= MAX; z++) {
+                    assertThat(coverCount[x - MIN][y - MIN][z - MIN], equalTo(isSolid(solid, x, y, z) ? 1 : 0));
+                }
+            }
+        }
+
+        // Every cuboid is inside the box, so forEachCuboid() must give the same ones
+        List<String> inBox = new ArrayList<>();
+        List<String> all = new ArrayList<>();
+        voxels.forEachCuboidInBox(MIN, MIN, MIN, MAX, MAX, MAX,
+            (minX, minY, minZ, maxX, maxY, maxZ) -> inBox.add(Arrays.toString(new int[]{minX, minY, minZ, maxX, maxY, maxZ})));
+        voxels.forEachCuboid(
+            (minX, minY, minZ, maxX, maxY, maxZ) -> all.add(Arrays.toString(new int[]{minX, minY, minZ, maxX, maxY, maxZ})));
+        Collections.sort(inBox);
+        Collections.sort(all);
+        assertThat(all, equalTo(inBox));
+    }
+
+    private static boolean isSolid(boolean[][][] solid, int x, int y, int z) {
+        if (x < MIN || x > MAX || y < MIN || y > MAX || z < MIN || z > MAX) {
+            return false;
+        }
+        return solid[x - MIN][y - MIN][z - MIN];
+    }
+
+    private static boolean isSurface(boolean[][][] solid, int x, int y, int z) {
+        return isSolid(solid, x, y, z)
+            && (!isSolid(solid, x - 1, y, z) || !isSolid(solid, x + 1, y, z)
+            || !isSolid(solid, x, y - 1, z) || !isSolid(solid, x, y + 1, z)
+            || !isSolid(solid, x, y, z - 1) || !isSolid(solid, x, y, z + 1));
+    }
+}
@@ -0,0 +1,71 @@
+package org.valkyrienskies.mod.common.util.profiling;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+public class LatencyHistogramTest {
+
+    @ParameterizedTest
+    @ValueSource(longs = {0, 1, 15, 16, 17, 1000, 123456789, 10000000000L, Long.MAX_VALUE})
+    public void testBucketContainsValue(long value) {
+        int index = LatencyHistogram.bucketIndex(value);
+        assertThat(LatencyHistogram.bucketUpperBound(index), greaterThanOrEqualTo(value));
+        if (index > 0) {
+            assertThat(LatencyHistogram.bucketUpperBound(index - 1), lessThanOrEqualTo(value - 1));
+        }
+    }
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        // 1 ms to 100 ms in 1 ms steps
+        for (long i = 1; i <= 100; i++) {
+            histogram.record(i * 1000000);
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertThat(snapshot.getTotalCount(), equalTo(100L));
+        assertThat(snapshot.getMax(), equalTo(100000000L));
+        assertWithinPrecision(snapshot.getPercentile(50), 50000000);
+        assertWithinPrecision(snapshot.getPercentile(95), 95000000);
+        assertWithinPrecision(snapshot.getPercentile(99), 99000000);
+        assertThat(snapshot.getPercentile(100), equalTo(100000000L));
+    }
+
+    @Test
+    public void testConcurrentRecording() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Random random = new Random(0);
+        long[] values = random.longs(100000, 0, 50000000).toArray();
+        IntStream.range(0, values.length).parallel().forEach(i -> histogram.record(values[i]));
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertThat(snapshot.getTotalCount(), equalTo((long) values.length));
+        assertThat(snapshot.getMax(), equalTo(Arrays.stream(values).max().getAsLong()));
+    }
+
+    @Test
+    public void testReset() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(12345);
+        histogram.reset();
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertThat(snapshot.getTotalCount(), equalTo(0L));
+        assertThat(snapshot.getPercentile(99), equalTo(0L));
+    }
+
+    private static void assertWithinPrecision(long actual, long expected) {
+        assertThat(actual, greaterThanOrEqualTo(expected));
+        assertThat(actual, lessThanOrEqualTo(expected + expected / 16));
+    }
+}